@@ -9,11 +9,17 @@
 package ltd.qubit.commons.dao;
 
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.annotation.Modified;
+import ltd.qubit.commons.annotation.NoAutoTest;
 import ltd.qubit.commons.dao.mapper.AddableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
+import ltd.qubit.commons.dao.model.UpsertResult;
 import ltd.qubit.commons.error.DuplicateKeyException;
 import ltd.qubit.commons.error.FieldTooLongException;
 import ltd.qubit.commons.error.FieldValueOutOfRangeException;
@@ -21,7 +27,14 @@ import ltd.qubit.commons.error.ForeignKeyConstraintFailException;
 import ltd.qubit.commons.error.InvalidFieldFormatException;
 import ltd.qubit.commons.error.NullFieldException;
 
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.addAllImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.addMultiImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.estimateRowSize;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateCache;
 import static ltd.qubit.commons.dao.DaoImplHelper.addImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measure;
+import static ltd.qubit.commons.dao.DaoUpsertImplHelper.addOrUpdateAllImpl;
+import static ltd.qubit.commons.dao.DaoUpsertImplHelper.addOrUpdateImpl;
 
 /**
  * This interface represents a DAO that implements the adding entity operation.
@@ -29,6 +42,14 @@ import static ltd.qubit.commons.dao.DaoImplHelper.addImpl;
  * This interface implements the following DAO operations:
  * <ul>
  * <li>{@link #add(T)}: Adds a new entity.</li>
+ * <li>{@link #addAll(Collection)}: Adds a collection of new entities in
+ * batches.</li>
+ * <li>{@link #addMulti(Collection)}: Adds a collection of new entities with
+ * multi-row statements.</li>
+ * <li>{@link #addOrUpdate(T)}: Adds a new entity, or updates the existing
+ * entity with the same unique key.</li>
+ * <li>{@link #addOrUpdateAll(Collection)}: Adds or updates a collection of
+ * entities in batches.</li>
  * </ul>
  *
  * @param <T>
@@ -37,6 +58,13 @@ import static ltd.qubit.commons.dao.DaoImplHelper.addImpl;
  */
 public interface AddableDao<T> extends Dao<T> {
 
+  /**
+   * The default maximum estimated size in bytes of the rows inserted by a
+   * single multi-row statement, which is half of the default value of the
+   * {@code max_allowed_packet} variable of MySQL 5.7.
+   */
+  int DEFAULT_MAX_STATEMENT_SIZE = 2 * 1024 * 1024;
+
   @Override
   AddableMapper<T> getMapper();
 
@@ -72,6 +100,252 @@ public interface AddableDao<T> extends Dao<T> {
    */
   @Modified({"id", "createTime", "modifyTime", "deleteTime"})
   default Instant add(final T obj) throws DataAccessException {
-    return addImpl(this, obj);
+    return measure(this, DaoOperationType.ADD, () -> addImpl(this, obj),
+        (r) -> 1, () -> invalidateCache(this, Collections.singletonList(obj)));
+  }
+
+  /**
+   * Adds a collection of new entities in batches.
+   *
+   * <p>The entities are sent to the database through the Mapper returned by
+   * {@link #getBatchMapper()}, in chunks of at most {@link #getBatchSize()}
+   * entities, and each chunk is flushed to the database in a single
+   * round-trip. The ID, creation time and modification time of every entity
+   * are filled in the same way as {@link #add(Object)}, and all the entities
+   * share the same creation time.</p>
+   *
+   * <p><b>Note: </b>The chunks already flushed to the database are not rolled
+   * back if a later chunk fails, unless this operation is executed in a
+   * transaction.</p>
+   *
+   * @param list
+   *     The collection of entities to be added.
+   * @return
+   *     An array of the numbers of entities added by each chunk, in the order
+   *     of the chunks. If the JDBC driver does not report the number of rows
+   *     affected by a statement of a chunk, the number of that chunk is
+   *     {@link #UNKNOWN_ROW_COUNT}.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of an entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of an entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of an entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of an entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of an entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Modified({"id", "createTime", "modifyTime", "deleteTime"})
+  default long[] addAll(final Collection<T> list) throws DataAccessException {
+    return measure(this, DaoOperationType.ADD_ALL, () -> addAllImpl(this, list),
+        DaoMetricsHelper::sum, () -> invalidateCache(this, list));
+  }
+
+  /**
+   * Adds a collection of new entities with multi-row statements.
+   *
+   * <p>The entities are split into chunks, and each chunk is inserted by a
+   * single call to {@link AddableMapper#addMulti(java.util.List)}. A chunk
+   * contains at most {@link #getBatchSize()} entities, and the total estimated
+   * size of its entities does not exceed {@link #getMaxStatementSize()}, so
+   * that the generated statement fits in the {@code max_allowed_packet} of the
+   * database server, provided that {@link #estimateSize(Object)} bounds the
+   * sizes of the rows. The ID, creation time and modification time of every
+   * entity are filled in the same way as {@link #add(Object)} before it is
+   * inserted, and all the entities share the same creation time.</p>
+   *
+   * <p><b>Note: </b>The chunks already inserted are not rolled back if a later
+   * chunk fails, unless this operation is executed in a transaction.</p>
+   *
+   * @param list
+   *     The collection of entities to be added.
+   * @return
+   *     An array of the numbers of entities added by each chunk, in the order
+   *     of the chunks.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of an entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of an entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of an entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of an entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of an entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Modified({"id", "createTime", "modifyTime", "deleteTime"})
+  default long[] addMulti(final Collection<T> list) throws DataAccessException {
+    return measure(this, DaoOperationType.ADD_MULTI,
+        () -> addMultiImpl(this, list), DaoMetricsHelper::sum,
+        () -> invalidateCache(this, list));
+  }
+
+  /**
+   * Gets the maximum estimated size in bytes of the rows inserted by a single
+   * multi-row statement.
+   *
+   * @return
+   *     The maximum estimated size in bytes of the rows inserted by a single
+   *     multi-row statement.
+   * @see #estimateSize(Object)
+   */
+  @NoAutoTest
+  default long getMaxStatementSize() {
+    return DEFAULT_MAX_STATEMENT_SIZE;
+  }
+
+  /**
+   * Estimates the size in bytes of the row of an entity in a multi-row insert
+   * statement.
+   *
+   * <p>The default implementation reads the bean properties of the entity, and
+   * counts every character of a text property as 3 bytes and every byte of a
+   * binary property as 2 bytes, which bounds their UTF-8 encoded and escaped
+   * sizes in the statement, and every other property as a small fixed size.
+   * The properties of the nested beans are counted in the same way, but the
+   * elements of the collections and arrays are not. Subclasses whose entities
+   * have large collections, or which know a cheaper bound of their rows,
+   * should override this function.</p>
+   *
+   * @param obj
+   *     The entity to be inserted.
+   * @return
+   *     The estimated size in bytes of the row of the entity.
+   */
+  @NoAutoTest
+  default long estimateSize(final T obj) {
+    return estimateRowSize(obj);
+  }
+
+  /**
+   * Adds a new entity, or updates the existing entity with the same unique key.
+   *
+   * <p>Unlike calling {@link #add(Object)} and then updating the existing
+   * entity on a {@link DuplicateKeyException}, this function adds or updates
+   * the entity with a single upsert statement of
+   * {@link AddableMapper#addOrUpdate(Object)}, in a single round-trip and
+   * without translating the error of the duplicated key. The properties of
+   * the entity are filled in the same way as {@link #add(Object)}. If an
+   * existing entity is updated, the ID of the entity is set to the ID of the
+   * existing entity, its modification time is set, and its creation time is
+   * cleared since it is unknown.</p>
+   *
+   * <p><b>Note: </b>Only MySQL reports enough information to distinguish all
+   * the outcomes. On H2, and for the DAOs whose IDs are generated by the
+   * database, an update may be reported as {@link UpsertResult#INSERTED},
+   * and the entity then keeps its generated ID and creation time, which are
+   * not those of the updated entity; see {@link UpsertResult}. Since the
+   * cached data of the updated entity could not be found by that ID, an
+   * outcome reported as inserted, or a failure, invalidates all the cached
+   * data of the DAO.</p>
+   *
+   * @param obj
+   *     The entity to be added or updated.
+   * @return
+   *     Whether the entity was added, updated or left unchanged.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of the entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of the entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of the entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of the entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the existing entity is updated, and the new value of a unique field
+   *     is the same as that of another existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Modified({"id", "createTime", "modifyTime", "deleteTime"})
+  default UpsertResult addOrUpdate(final T obj) throws DataAccessException {
+    return measure(this, DaoOperationType.ADD_OR_UPDATE,
+        () -> addOrUpdateImpl(this, obj),
+        (r) -> (r == UpsertResult.UNCHANGED ? 0 : 1));
+  }
+
+  /**
+   * Adds or updates a collection of entities in batches.
+   *
+   * <p>The upsert statements of {@link AddableMapper#addOrUpdate(Object)} are
+   * executed by the Mapper returned by {@link #getBatchMapper()}, in chunks
+   * of at most {@link #getBatchSize()} entities, and each chunk is flushed to
+   * the database in a single round-trip. The entities are filled in and fixed,
+   * and the cached data is invalidated, in the same way as
+   * {@link #addOrUpdate(Object)}, and all the entities share the same
+   * timestamp.</p>
+   *
+   * <p><b>Note: </b>The chunks already flushed to the database are not rolled
+   * back if a later chunk fails, unless this operation is executed in a
+   * transaction. If the JDBC driver does not report the number of rows
+   * affected by a batched statement, the outcome of the statement could only
+   * be determined from the ID written back to its entity.</p>
+   *
+   * @param list
+   *     The collection of entities to be added or updated.
+   * @return
+   *     The list of the outcomes of the entities, in the order of the entities
+   *     in the specified collection.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of an entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of an entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of an entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of an entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the existing entity is updated, and the new value of a unique field
+   *     is the same as that of another existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Modified({"id", "createTime", "modifyTime", "deleteTime"})
+  default List<UpsertResult> addOrUpdateAll(final Collection<T> list)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.ADD_OR_UPDATE_ALL,
+        () -> addOrUpdateAllImpl(this, list),
+        (r) -> r.stream().filter((u) -> u != UpsertResult.UNCHANGED).count());
   }
 }
@@ -8,11 +8,19 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.dao;
 
+import javax.annotation.Nullable;
+
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.dao.mapper.ClearableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
+import ltd.qubit.commons.dao.model.ChunkedDeleteOptions;
+import ltd.qubit.commons.dao.model.ChunkedDeleteProgress;
 
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.clearInChunksImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateAllCache;
 import static ltd.qubit.commons.dao.DaoImplHelper.clearImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measure;
 
 /**
  * This interface represents the DAO that implements the operation of clearing
@@ -22,6 +30,8 @@ import static ltd.qubit.commons.dao.DaoImplHelper.clearImpl;
  * <ul>
  * <li>{@link #clear()}: Completely removes <b>all</b> entities from the
  * database.</li>
+ * <li>{@link #clear(ChunkedDeleteOptions, ChunkedDeleteProgress)}: Completely
+ * removes <b>all</b> entities from the database in chunks.</li>
  * </ul>
  *
  * @param <T>
@@ -51,6 +61,47 @@ public interface ClearableDao<T> extends Dao<T> {
    * @see DeletableDao#purgeAll()
    */
   default long clear() throws DataAccessException {
-    return clearImpl(this);
+    return measure(this, DaoOperationType.CLEAR, () -> clearImpl(this),
+        Long::longValue, () -> invalidateAllCache(this));
+  }
+
+  /**
+   * Completely removes <b>all</b> entities from the database in chunks
+   * ordered by their IDs.
+   *
+   * <p>Unlike {@link #clear()}, which removes the entities with a single
+   * statement holding its locks until all the entities are removed, this
+   * function removes at most {@link ChunkedDeleteOptions#getChunkSize()}
+   * entities with each statement, and pauses between the statements as
+   * specified by the options, so that the concurrent transactions are not
+   * blocked for long and the replicas could catch up. The entities are not
+   * removed in a single transaction, and the deletion could be stopped by the
+   * stop condition of the options or by interrupting the current thread. The
+   * returned progress of a stopped deletion could be passed to this function
+   * to resume the deletion after the last removed chunk. A failed deletion
+   * throws an exception instead of returning its progress; it could be resumed
+   * from the last progress passed to
+   * {@link ChunkedDeleteOptions#getProgressListener()}, or restarted with a
+   * {@code null} progress, which only costs rescanning the IDs of the removed
+   * chunks. The caches of the DAO are invalidated after every chunk.</p>
+   *
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null} to
+   *     start a new deletion.
+   * @return
+   *     The progress of the deletion when it finished or stopped.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #clear()
+   */
+  default ChunkedDeleteProgress clear(final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed)
+      throws DataAccessException {
+    final long before = (resumed == null ? 0 : resumed.getDeleted());
+    return measure(this, DaoOperationType.CLEAR,
+        () -> clearInChunksImpl(this, options, resumed),
+        (r) -> r.getDeleted() - before, () -> invalidateAllCache(this));
   }
 }
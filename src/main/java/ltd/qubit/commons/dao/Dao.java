@@ -8,8 +8,12 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.dao;
 
+import javax.annotation.Nullable;
+
 import ltd.qubit.commons.annotation.NoAutoTest;
+import ltd.qubit.commons.dao.cache.EntityCache;
 import ltd.qubit.commons.dao.mapper.Mapper;
+import ltd.qubit.commons.dao.metrics.DaoMetricsRecorder;
 import ltd.qubit.commons.model.HasClock;
 import ltd.qubit.commons.model.HasLogger;
 
@@ -22,6 +26,18 @@ import ltd.qubit.commons.model.HasLogger;
  */
 public interface Dao<T> extends HasLogger, HasClock {
 
+  /**
+   * The default maximum number of entities sent to the database in one batch.
+   */
+  int DEFAULT_BATCH_SIZE = 1000;
+
+  /**
+   * The number of affected rows reported by the batched operations for a
+   * statement, or a chunk of statements, whose number of affected rows is not
+   * reported by the JDBC driver, i.e., is {@code Statement.SUCCESS_NO_INFO}.
+   */
+  long UNKNOWN_ROW_COUNT = -1;
+
   /**
    * Gets the type of entity accessed by the current DAO.
    *
@@ -45,6 +61,12 @@ public interface Dao<T> extends HasLogger, HasClock {
   /**
    * Generate the next ID.
    *
+   * <p>This function is called once for every added entity, and may be called
+   * concurrently by many threads during the bulk insertions. An implementation
+   * could hand out the IDs pre-generated by a
+   * {@link ltd.qubit.commons.dao.concurrent.StripedIdPool} to avoid the
+   * contention on the underlying generator.</p>
+   *
    * @return
    *     The next unique ID.
    */
@@ -62,4 +84,92 @@ public interface Dao<T> extends HasLogger, HasClock {
    */
   @NoAutoTest
   Mapper<T> getMapper();
+
+  /**
+   * Get the MyBatis Mapper used by the bulk operations of DAOs.
+   *
+   * <p>The returned Mapper should be bound to a MyBatis session using the
+   * {@code ExecutorType.BATCH} executor, for example, a Mapper created from a
+   * {@code SqlSessionTemplate} constructed with {@code ExecutorType.BATCH}, so
+   * that all statements of a chunk are sent to the database in a single
+   * round-trip when the Mapper is flushed. The default implementation returns
+   * the Mapper returned by {@link #getMapper()}, in which case the statements
+   * of a chunk are executed one by one.</p>
+   *
+   * <p><b>Note:</b> The returned Mapper must implement the same Mapper
+   * interfaces as the Mapper returned by {@link #getMapper()}. Since MyBatis
+   * cannot change the executor type within an existing transaction, the bulk
+   * operations should not be mixed with the ordinary operations in the same
+   * transaction if a separate batch Mapper is provided.</p>
+   *
+   * @return
+   *     The MyBatis Mapper used by the bulk operations of DAOs.
+   */
+  @NoAutoTest
+  default Mapper<T> getBatchMapper() {
+    return getMapper();
+  }
+
+  /**
+   * Get the maximum number of entities sent to the database in one batch by
+   * the bulk operations of DAOs.
+   *
+   * @return
+   *     The maximum number of entities sent to the database in one batch,
+   *     which must be positive.
+   */
+  @NoAutoTest
+  default int getBatchSize() {
+    return DEFAULT_BATCH_SIZE;
+  }
+
+  /**
+   * Get the cache of the entities accessed by the current DAO.
+   *
+   * <p>If a cache is provided, the read operations of
+   * {@link GettableDao} are served from the cache whenever possible, and the
+   * write operations of the DAO invalidate the cached entries of the entities
+   * they modified. A write operation executed in a Spring managed transaction
+   * invalidates the entries again after the transaction completes, and the
+   * later reads of the same transaction bypass the caches of the DAO. Note
+   * that the modifications made to the database without passing through the
+   * DAO, e.g., by other processes, are only visible after the cached entries
+   * expire.</p>
+   *
+   * <p><b>Note:</b> The returned cache must be the same instance throughout
+   * the lifetime of the DAO. The default implementation returns {@code null},
+   * which disables the caching.</p>
+   *
+   * @return
+   *     The cache of the entities accessed by the current DAO, or {@code null}
+   *     if the caching is disabled.
+   */
+  @NoAutoTest
+  @Nullable
+  default EntityCache<T> getEntityCache() {
+    return null;
+  }
+
+  /**
+   * Get the recorder of the metrics of the operations of the current DAO.
+   *
+   * <p>If a recorder is provided, the latency, the number of affected or
+   * returned entities, and the type of the thrown exception, if any, of every
+   * instrumented operation of the DAO are passed to the recorder. The
+   * instrumentation does not allocate any object, so it could be left enabled
+   * in production.</p>
+   *
+   * <p><b>Note:</b> The returned recorder must be the same instance throughout
+   * the lifetime of the DAO. The default implementation returns {@code null},
+   * which disables the instrumentation.</p>
+   *
+   * @return
+   *     The recorder of the metrics of the operations of the current DAO, or
+   *     {@code null} if the instrumentation is disabled.
+   */
+  @NoAutoTest
+  @Nullable
+  default DaoMetricsRecorder getMetricsRecorder() {
+    return null;
+  }
 }
@@ -0,0 +1,805 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongBiFunction;
+
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.slf4j.Logger;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.DataAccessException;
+
+import ltd.qubit.commons.dao.mapper.AddableMapper;
+import ltd.qubit.commons.dao.mapper.ClearableMapper;
+import ltd.qubit.commons.dao.mapper.DeletableMapper;
+import ltd.qubit.commons.dao.mapper.GettableMapper;
+import ltd.qubit.commons.dao.mapper.UpdatableMapper;
+import ltd.qubit.commons.dao.model.ChunkedDeleteOptions;
+import ltd.qubit.commons.dao.model.ChunkedDeleteProgress;
+import ltd.qubit.commons.model.Creatable;
+import ltd.qubit.commons.model.Deletable;
+import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.model.Modifiable;
+import ltd.qubit.commons.sql.Criterion;
+
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateAllCache;
+
+/**
+ * Provides functions to help implementing the bulk operations of DAOs.
+ *
+ * @author Haixing Hu
+ */
+public class DaoBatchImplHelper {
+
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  // the estimated size of a row besides its properties, e.g., the parentheses
+  private static final long ROW_OVERHEAD = 16;
+
+  // the estimated size of a property besides its text or binary value, e.g.,
+  // a number or a date, with the quotes and the separator
+  private static final long FIELD_SIZE = 32;
+
+  // the maximum depth of the nested beans whose properties are estimated
+  private static final int MAX_NESTED_DEPTH = 2;
+
+  /**
+   * Adds a collection of new entities in batches.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The collection of entities to be added.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     An array of the numbers of entities added by each chunk.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> long[] addAllImpl(final AddableDao<T> dao,
+      final Collection<T> list) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final int batchSize = getBatchSize(dao);
+    logger.debug("Adding {} {} in chunks of {}.", list.size(),
+        dao.getEntityName(), batchSize);
+    final long[] result = new long[getChunkCount(list.size(), batchSize)];
+    if (list.isEmpty()) {
+      return result;
+    }
+    final Instant now = dao.getClock().instant();
+    final AddableMapper<T> mapper = (AddableMapper<T>) dao.getBatchMapper();
+    int chunk = 0;
+    int count = 0;
+    long added = 0;
+    for (final T obj : list) {
+      prepareAdd(dao, obj, now);
+      added += getDirectCount(mapper.add(obj));
+      if (++count == batchSize) {
+        result[chunk++] = flush(mapper::flush, added);
+        count = 0;
+        added = 0;
+      }
+    }
+    if (count > 0) {
+      result[chunk] = flush(mapper::flush, added);
+    }
+    logger.debug("{} {} were added in {} chunks.", list.size(),
+        dao.getEntityName(), result.length);
+    return result;
+  }
+
+  /**
+   * Adds a collection of new entities with multi-row statements.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The collection of entities to be added.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     An array of the numbers of entities added by each chunk.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> long[] addMultiImpl(final AddableDao<T> dao,
+      final Collection<T> list) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final int batchSize = getBatchSize(dao);
+    final long maxSize = dao.getMaxStatementSize();
+    logger.debug("Adding {} {} with multi-row statements of at most {} rows "
+        + "and {} bytes.", list.size(), dao.getEntityName(), batchSize,
+        maxSize);
+    if (list.isEmpty()) {
+      return new long[0];
+    }
+    final Instant now = dao.getClock().instant();
+    final AddableMapper<T> mapper = dao.getMapper();
+    final List<Long> result = new ArrayList<>();
+    List<T> chunk = new ArrayList<>(Math.min(list.size(), batchSize));
+    long chunkSize = 0;
+    for (final T obj : list) {
+      prepareAdd(dao, obj, now);
+      final long size = dao.estimateSize(obj);
+      if ((!chunk.isEmpty())
+          && ((chunk.size() == batchSize) || (chunkSize + size > maxSize))) {
+        result.add(mapper.addMulti(chunk));
+        chunk = new ArrayList<>(chunk.size());
+        chunkSize = 0;
+      }
+      chunk.add(obj);
+      chunkSize += size;
+    }
+    result.add(mapper.addMulti(chunk));
+    logger.debug("{} {} were added with {} statements.", list.size(),
+        dao.getEntityName(), result.size());
+    return result.stream().mapToLong(Long::longValue).toArray();
+  }
+
+  /**
+   * Updates a collection of existing entities in batches.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The collection of entities to be updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     An array of the numbers of rows updated by each entity, in the order
+   *     of the entities in the specified collection.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Identifiable> long[] updateAllImpl(
+      final UpdatableDao<T> dao, final Collection<T> list)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final int batchSize = getBatchSize(dao);
+    logger.debug("Updating {} {} in chunks of {}.", list.size(),
+        dao.getEntityName(), batchSize);
+    final long[] result = new long[list.size()];
+    if (list.isEmpty()) {
+      return result;
+    }
+    final Instant now = dao.getClock().instant();
+    final UpdatableMapper<T> mapper = (UpdatableMapper<T>) dao.getBatchMapper();
+    int index = 0;
+    int chunkStart = 0;
+    for (final T obj : list) {
+      if (obj instanceof Modifiable) {
+        ((Modifiable) obj).setModifyTime(now);
+      }
+      result[index++] = getDirectCount(mapper.update(obj));
+      if (index - chunkStart == batchSize) {
+        flush(mapper::flush, result, chunkStart);
+        chunkStart = index;
+      }
+    }
+    if (index > chunkStart) {
+      flush(mapper::flush, result, chunkStart);
+    }
+    final long missing = Arrays.stream(result).filter((n) -> n == 0).count();
+    if (missing > 0) {
+      logger.debug("{} of the {} {} were not updated.", missing, list.size(),
+          dao.getEntityName());
+    }
+    return result;
+  }
+
+  /**
+   * Gets the IDs of the existing entities among the specified IDs.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The collection of the specified IDs.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The set of IDs of the existing entities among the specified IDs, in
+   *     the order of their first occurrences in the specified collection.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable> Set<Long> existingImpl(
+      final GettableDao<T> dao, final Collection<Long> ids)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final Set<Long> keys = distinct(ids);
+    logger.debug("Testing the existence of {} {} by IDs.", keys.size(),
+        dao.getEntityName());
+    final GettableMapper<T> mapper = dao.getMapper();
+    final Set<Long> found = new HashSet<>();
+    forEachChunk(keys, getBatchSize(dao),
+        (chunk) -> found.addAll(mapper.existing(chunk)));
+    keys.retainAll(found);
+    logger.debug("{} of the IDs of {} exist.", keys.size(),
+        dao.getEntityName());
+    return keys;
+  }
+
+  /**
+   * Gets the existing entities with the specified IDs.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The collection of the IDs of the specified entities.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The map from the IDs to the corresponding existing entities, in the
+   *     order of the first occurrences of the IDs in the specified collection.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable> Map<Long, T> getAllImpl(
+      final GettableDao<T> dao, final Collection<Long> ids)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final Set<Long> keys = distinct(ids);
+    logger.debug("Getting {} {} by IDs.", keys.size(), dao.getEntityName());
+    final GettableMapper<T> mapper = dao.getMapper();
+    final Map<Long, T> found = new HashMap<>();
+    forEachChunk(keys, getBatchSize(dao), (chunk) -> {
+      for (final T obj : mapper.getAll(chunk)) {
+        found.put(obj.getId(), obj);
+      }
+    });
+    final Map<Long, T> result = new LinkedHashMap<>();
+    for (final Long id : keys) {
+      final T obj = found.get(id);
+      if (obj != null) {
+        result.put(id, obj);
+      }
+    }
+    if (result.size() < keys.size()) {
+      logger.debug("{} of the {} with the specified IDs do not exist.",
+          keys.size() - result.size(), dao.getEntityName());
+    }
+    return result;
+  }
+
+  /**
+   * Marks the entities with the specified IDs as deleted in chunks.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The collection of the IDs of the entities to be marked as deleted.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The number of entities marked by this operation.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable & Deletable> long deleteAllImpl(
+      final DeletableDao<T> dao, final Collection<Long> ids)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final Set<Long> keys = distinct(ids);
+    final Instant now = dao.getClock().instant();
+    logger.debug("Marking {} {} as deleted by IDs at {}.", keys.size(),
+        dao.getEntityName(), now);
+    final DeletableMapper<T> mapper = dao.getMapper();
+    final long[] count = {0};
+    forEachChunk(keys, getBatchSize(dao),
+        (chunk) -> count[0] += mapper.deleteAll(chunk, now));
+    logger.debug("{} of the {} {} were marked as deleted.", count[0],
+        keys.size(), dao.getEntityName());
+    return count[0];
+  }
+
+  /**
+   * Marks the entities that match the specified criteria as deleted.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities, which must not be {@code null}.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The number of entities marked by this operation.
+   * @throws IllegalArgumentException
+   *     If the filter is {@code null}.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable & Deletable> long deleteWhereImpl(
+      final DeletableDao<T> dao, final Criterion<T> filter)
+      throws DataAccessException {
+    if (filter == null) {
+      throw new IllegalArgumentException("The filter of the entities to be "
+          + "marked as deleted must not be null.");
+    }
+    final Logger logger = dao.getLogger();
+    final Instant now = dao.getClock().instant();
+    logger.debug("Marking {} as deleted at {}: filter = {}",
+        dao.getEntityName(), now, filter);
+    final long result = dao.getMapper().deleteWhere(filter, now);
+    logger.debug("{} {} were marked as deleted.", result,
+        dao.getEntityName());
+    return result;
+  }
+
+  /**
+   * Restores the mark deleted entities with the specified IDs in chunks.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The collection of the IDs of the entities to be restored.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The number of entities restored by this operation.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable & Deletable> long restoreAllImpl(
+      final DeletableDao<T> dao, final Collection<Long> ids)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final Set<Long> keys = distinct(ids);
+    logger.debug("Restoring {} {} by IDs.", keys.size(), dao.getEntityName());
+    final DeletableMapper<T> mapper = dao.getMapper();
+    final long[] count = {0};
+    forEachChunk(keys, getBatchSize(dao),
+        (chunk) -> count[0] += mapper.restoreAll(chunk));
+    logger.debug("{} of the {} {} were restored.", count[0], keys.size(),
+        dao.getEntityName());
+    return count[0];
+  }
+
+  /**
+   * Completely removes all the mark deleted entities in chunks ordered by
+   * their IDs.
+   *
+   * @param dao
+   *     The DAO.
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null} to
+   *     start a new deletion.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The progress of the deletion when it finished or stopped.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable & Deletable> ChunkedDeleteProgress
+      purgeAllInChunksImpl(final DeletableDao<T> dao,
+      final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed)
+      throws DataAccessException {
+    final DeletableMapper<T> mapper = dao.getMapper();
+    return deleteInChunks(dao, "Purging", options, resumed,
+        mapper::getPurgeChunkEnd, mapper::purgeChunk);
+  }
+
+  /**
+   * Completely removes all the entities in chunks ordered by their IDs.
+   *
+   * @param dao
+   *     The DAO.
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null} to
+   *     start a new deletion.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The progress of the deletion when it finished or stopped.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> ChunkedDeleteProgress clearInChunksImpl(
+      final ClearableDao<T> dao, final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed)
+      throws DataAccessException {
+    final ClearableMapper<T> mapper = dao.getMapper();
+    return deleteInChunks(dao, "Clearing", options, resumed,
+        mapper::getClearChunkEnd, mapper::clearChunk);
+  }
+
+  /**
+   * Deletes the entities in chunks ordered by their IDs, pausing between the
+   * chunks.
+   *
+   * <p>The caches of the DAO are invalidated after each chunk, so that the
+   * readers do not see the deleted entities during the long deletion.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param action
+   *     The name of the deletion used in the logs.
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null} to
+   *     start a new deletion.
+   * @param chunkEnd
+   *     The function getting the upper bound of the IDs of the next chunk from
+   *     the upper bound of the previous chunk and the chunk size.
+   * @param deleter
+   *     The function deleting the chunk in the range of IDs specified by the
+   *     exclusive lower bound and the inclusive upper bound.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The progress of the deletion when it finished or stopped.
+   */
+  static <T> ChunkedDeleteProgress deleteInChunks(final Dao<T> dao,
+      final String action, final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed,
+      final BiFunction<Long, Integer, Long> chunkEnd,
+      final ToLongBiFunction<Long, Long> deleter) {
+    final Logger logger = dao.getLogger();
+    final long startTime = System.nanoTime();
+    final Duration elapsedBefore;
+    Long lastId;
+    long deleted;
+    long chunks;
+    if (resumed == null) {
+      lastId = null;
+      deleted = 0;
+      chunks = 0;
+      elapsedBefore = Duration.ZERO;
+    } else if (resumed.isFinished()) {
+      return resumed;
+    } else {
+      lastId = resumed.getLastId();
+      deleted = resumed.getDeleted();
+      chunks = resumed.getChunks();
+      elapsedBefore = resumed.getElapsed();
+    }
+    logger.info("{} {} in chunks after the ID {}: {}", action,
+        dao.getEntityName(), lastId, options);
+    final BooleanSupplier stopCondition = options.getStopCondition();
+    final Consumer<ChunkedDeleteProgress> listener =
+        options.getProgressListener();
+    ChunkedDeleteProgress progress = new ChunkedDeleteProgress(lastId, deleted,
+        chunks, elapsedBefore, false);
+    while ((stopCondition == null) || (!stopCondition.getAsBoolean())) {
+      final long chunkStart = System.nanoTime();
+      final Long end = chunkEnd.apply(lastId, options.getChunkSize());
+      final long count = deleter.applyAsLong(lastId, end);
+      invalidateAllCache(dao);
+      deleted += count;
+      ++chunks;
+      if (end != null) {
+        lastId = end;
+      }
+      final Duration elapsed =
+          elapsedBefore.plusNanos(System.nanoTime() - startTime);
+      progress = new ChunkedDeleteProgress(lastId, deleted, chunks, elapsed,
+          end == null);
+      logger.debug("{} {}: {}", action, dao.getEntityName(), progress);
+      if (listener != null) {
+        listener.accept(progress);
+      }
+      if (end == null) {
+        logger.info("{} {} finished: {}", action, dao.getEntityName(),
+            progress);
+        return progress;
+      }
+      if (!pauseAfterChunk(options, count, System.nanoTime() - chunkStart)) {
+        break;
+      }
+    }
+    logger.info("{} {} stopped: {}", action, dao.getEntityName(), progress);
+    return progress;
+  }
+
+  /**
+   * Pauses after deleting a chunk, according to the options of the chunked
+   * deletion.
+   *
+   * @param options
+   *     The options of the chunked deletion.
+   * @param count
+   *     The number of entities deleted by the chunk.
+   * @param chunkNanos
+   *     The time spent on deleting the chunk, in nanoseconds.
+   * @return
+   *     {@code true} if the deletion should continue; {@code false} if the
+   *     current thread was interrupted or the stop condition was met while
+   *     waiting for the replicas.
+   */
+  private static boolean pauseAfterChunk(final ChunkedDeleteOptions options,
+      final long count, final long chunkNanos) {
+    long pauseNanos = options.getPause().toNanos();
+    final long maxRate = options.getMaxRowsPerSecond();
+    if (maxRate > 0) {
+      final long rateNanos = count * NANOS_PER_SECOND / maxRate - chunkNanos;
+      pauseNanos = Math.max(pauseNanos, rateNanos);
+    }
+    if (!sleep(pauseNanos)) {
+      return false;
+    }
+    final Supplier<Duration> replicaLag = options.getReplicaLag();
+    if (replicaLag == null) {
+      return true;
+    }
+    final BooleanSupplier stopCondition = options.getStopCondition();
+    final long pollNanos = options.getReplicaLagPollInterval().toNanos();
+    while (replicaLag.get().compareTo(options.getMaxReplicaLag()) > 0) {
+      if (((stopCondition != null) && stopCondition.getAsBoolean())
+          || (!sleep(pollNanos))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean sleep(final long nanos) {
+    if (nanos <= 0) {
+      return true;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+      return true;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Fills in the properties of an entity managed by the DAO before adding it.
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The entity to be added.
+   * @param now
+   *     The timestamp when the entity is added.
+   * @param <T>
+   *     The type of entities.
+   */
+  static <T> void prepareAdd(final Dao<T> dao, final T obj, final Instant now) {
+    if (obj instanceof Identifiable) {
+      ((Identifiable) obj).setId(dao.generateId());
+    }
+    if (obj instanceof Creatable) {
+      ((Creatable) obj).setCreateTime(now);
+    }
+    if (obj instanceof Modifiable) {
+      ((Modifiable) obj).setModifyTime(null);
+    }
+    if (obj instanceof Deletable) {
+      ((Deletable) obj).setDeleteTime(null);
+    }
+  }
+
+  /**
+   * Estimates the size in bytes of the row of an entity in a multi-row insert
+   * statement, from the lengths of its text and binary properties.
+   *
+   * @param obj
+   *     The entity.
+   * @return
+   *     An upper bound of the size in bytes of the row of the entity, unless
+   *     it contains large collections or arrays other than {@code byte[]}.
+   */
+  static long estimateRowSize(final Object obj) {
+    return ROW_OVERHEAD + estimatePropertiesSize(obj, 0);
+  }
+
+  private static long estimatePropertiesSize(final Object obj,
+      final int depth) {
+    long result = 0;
+    for (final PropertyDescriptor property
+        : BeanUtils.getPropertyDescriptors(obj.getClass())) {
+      final Method getter = property.getReadMethod();
+      if ((getter == null) || (getter.getDeclaringClass() == Object.class)) {
+        continue;
+      }
+      result += FIELD_SIZE;
+      final Class<?> type = property.getPropertyType();
+      if (CharSequence.class.isAssignableFrom(type)) {
+        final CharSequence value = (CharSequence) read(getter, obj);
+        // a char takes at most 3 bytes in UTF-8, or 2 bytes if escaped
+        result += (value == null ? 0 : 3L * value.length());
+      } else if (type == byte[].class) {
+        final byte[] value = (byte[]) read(getter, obj);
+        // a byte takes at most 2 bytes if escaped or hex encoded
+        result += (value == null ? 0 : 2L * value.length);
+      } else if ((depth < MAX_NESTED_DEPTH) && isNestedBean(type)) {
+        final Object value = read(getter, obj);
+        if (value != null) {
+          result += estimatePropertiesSize(value, depth + 1);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static boolean isNestedBean(final Class<?> type) {
+    return !type.isPrimitive()
+        && !type.isArray()
+        && !type.isEnum()
+        && !type.getName().startsWith("java.");
+  }
+
+  private static Object read(final Method getter, final Object obj) {
+    try {
+      return getter.invoke(obj);
+    } catch (final IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Failed to read the property by "
+          + getter, e);
+    }
+  }
+
+  static int getBatchSize(final Dao<?> dao) {
+    final int batchSize = dao.getBatchSize();
+    if (batchSize <= 0) {
+      throw new IllegalStateException("The batch size of the DAO for "
+          + dao.getEntityName() + " must be positive: " + batchSize);
+    }
+    return batchSize;
+  }
+
+  /**
+   * Gets the distinct non-null keys of a collection.
+   *
+   * @param keys
+   *     The collection of keys.
+   * @param <K>
+   *     The type of keys.
+   * @return
+   *     The mutable set of the distinct non-null keys, in the order of their
+   *     first occurrences in the specified collection.
+   */
+  static <K> Set<K> distinct(final Collection<K> keys) {
+    final Set<K> result = new LinkedHashSet<>();
+    for (final K key : keys) {
+      if (key != null) {
+        result.add(key);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Performs an action on each chunk of a collection of keys.
+   *
+   * @param keys
+   *     The collection of keys.
+   * @param chunkSize
+   *     The maximum number of keys in a chunk.
+   * @param action
+   *     The action to be performed on each non-empty chunk of keys.
+   * @param <K>
+   *     The type of keys.
+   */
+  static <K> void forEachChunk(final Collection<K> keys, final int chunkSize,
+      final Consumer<List<K>> action) {
+    List<K> chunk = new ArrayList<>(Math.min(keys.size(), chunkSize));
+    for (final K key : keys) {
+      chunk.add(key);
+      if (chunk.size() == chunkSize) {
+        action.accept(chunk);
+        chunk = new ArrayList<>(chunkSize);
+      }
+    }
+    if (!chunk.isEmpty()) {
+      action.accept(chunk);
+    }
+  }
+
+  static int getChunkCount(final int size, final int chunkSize) {
+    return (size + chunkSize - 1) / chunkSize;
+  }
+
+  /**
+   * Gets the number of rows affected by a statement executed by a Mapper.
+   *
+   * <p>A Mapper bound to a session using the batch executor returns a
+   * negative placeholder instead of the real number of affected rows, which
+   * is only available after flushing.</p>
+   *
+   * @param count
+   *     The value returned by the Mapper.
+   * @return
+   *     The number of affected rows, or 0 if the statement was batched.
+   */
+  static long getDirectCount(final long count) {
+    return (count > 0 ? count : 0);
+  }
+
+  /**
+   * Flushes the statements batched by a Mapper, and stores the number of rows
+   * affected by each statement.
+   *
+   * @param flusher
+   *     The function flushing the batched statements.
+   * @param counts
+   *     The array of the numbers of rows affected by the statements, which
+   *     already contains the numbers of rows affected by the statements
+   *     executed directly, if the Mapper is not bound to a batch session.
+   * @param offset
+   *     The index in the array of the first flushed statement.
+   * @see Dao#UNKNOWN_ROW_COUNT
+   */
+  static void flush(final Supplier<List<BatchResult>> flusher,
+      final long[] counts, final int offset) {
+    int index = offset;
+    for (final BatchResult result : flusher.get()) {
+      for (final int count : result.getUpdateCounts()) {
+        counts[index++] = (count == Statement.SUCCESS_NO_INFO
+                           ? Dao.UNKNOWN_ROW_COUNT
+                           : count);
+      }
+    }
+  }
+
+  /**
+   * Flushes the statements batched by a Mapper.
+   *
+   * @param flusher
+   *     The function flushing the batched statements.
+   * @param directCount
+   *     The number of rows affected by the statements executed directly, which
+   *     is used if the Mapper is not bound to a batch session.
+   * @return
+   *     The total number of rows affected by the flushed statements, or
+   *     {@link Dao#UNKNOWN_ROW_COUNT} if the number of rows affected by any
+   *     of them is not reported.
+   */
+  static long flush(final Supplier<List<BatchResult>> flusher,
+      final long directCount) {
+    final List<BatchResult> results = flusher.get();
+    if (results.isEmpty()) {
+      return directCount;
+    }
+    long total = 0;
+    for (final BatchResult result : results) {
+      for (final int count : result.getUpdateCounts()) {
+        if (count == Statement.SUCCESS_NO_INFO) {
+          return Dao.UNKNOWN_ROW_COUNT;
+        }
+        total += count;
+      }
+    }
+    return total;
+  }
+}
@@ -0,0 +1,637 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ltd.qubit.commons.dao.cache.CacheEntry;
+import ltd.qubit.commons.dao.cache.EntityCache;
+import ltd.qubit.commons.dao.cache.QueryCache;
+import ltd.qubit.commons.dao.cache.QueryKey;
+import ltd.qubit.commons.dao.concurrent.SingleFlight;
+import ltd.qubit.commons.dao.model.UpsertResult;
+import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.sql.Criterion;
+import ltd.qubit.commons.sql.SortRequest;
+
+import static ltd.qubit.commons.dao.DaoImplHelper.countImpl;
+import static ltd.qubit.commons.dao.DaoImplHelper.existKeyImpl;
+import static ltd.qubit.commons.dao.DaoImplHelper.getByKeyImpl;
+import static ltd.qubit.commons.dao.DaoImplHelper.getByKeyOrNullImpl;
+import static ltd.qubit.commons.dao.DaoImplHelper.listImpl;
+import static ltd.qubit.commons.dao.DaoListImplHelper.firstImpl;
+
+/**
+ * Provides functions to help implementing the caching of DAOs.
+ *
+ * <p>The read operations consult the cache returned by
+ * {@link Dao#getEntityCache()} before accessing the database, and the write
+ * operations invalidate the affected entries after accessing the database.
+ * The counts and lists of {@link ListableDao} are cached by the caches
+ * returned by {@link ListableDao#getCountCache()} and
+ * {@link ListableDao#getListCache()}, which are invalidated as a whole by
+ * every write operation.
+ * The concurrent queries of the same entity are coalesced by the
+ * {@link SingleFlight} returned by {@link GettableDao#getSingleFlight()}, if
+ * any.</p>
+ *
+ * <p>If a write operation is executed in a transaction, the affected entries
+ * are invalidated both immediately and after the transaction completes, since
+ * a concurrent reader may cache the old committed data in between. Until the
+ * transaction completes, the read operations of the same transaction bypass
+ * the caches of the DAO, so that they see the uncommitted modifications of the
+ * transaction and never publish them to the other threads.</p>
+ *
+ * @author Haixing Hu
+ */
+public class DaoCacheHelper {
+
+  /**
+   * Tests whether there exists an entity with the specified ID, through the
+   * cache of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The specified ID.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     {@code true} if the entity with the specified ID exists; {@code false}
+   *     otherwise.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T extends Identifiable> boolean existCachedImpl(
+      final GettableDao<T> dao, final Long id) throws DataAccessException {
+    final EntityCache<T> cache = dao.getEntityCache();
+    if ((cache == null) || (id == null) || isBypassed(dao)) {
+      return existKeyImpl(dao, () -> dao.getMapper().exist(id), "id", id);
+    }
+    final CacheEntry<T> entry = cache.get(id);
+    if (entry != null) {
+      return existKeyImpl(dao, () -> !entry.isMissing(), "id", id);
+    }
+    final long version = cache.getVersion(id);
+    return existKeyImpl(dao, () -> {
+      final boolean exist = dao.getMapper().exist(id);
+      if (!exist) {
+        cache.put(id, null, version);
+      }
+      return exist;
+    }, "id", id);
+  }
+
+  /**
+   * Gets the entity with the specified ID through the cache of the DAO, and
+   * throws a {@link ltd.qubit.commons.error.DataNotExistException} if there is
+   * no such entity.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the specified entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The entity with the specified ID.
+   * @throws DataAccessException
+   *     If the specified entity does not exist, or any other data access
+   *     error occurs.
+   */
+  public static <T extends Identifiable> T getCachedImpl(
+      final GettableDao<T> dao, final Long id) throws DataAccessException {
+    final EntityCache<T> cache = dao.getEntityCache();
+    if ((cache == null) || (id == null) || isBypassed(dao)) {
+      return getByKeyImpl(dao, () -> query(dao, id), "id", id);
+    }
+    final CacheEntry<T> entry = cache.get(id);
+    if (entry != null) {
+      return getByKeyImpl(dao, entry::getEntity, "id", id);
+    }
+    return getByKeyImpl(dao, () -> load(dao, cache, id), "id", id);
+  }
+
+  /**
+   * Gets the entity with the specified ID through the cache of the DAO, and
+   * returns {@code null} if there is no such entity.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the specified entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The entity with the specified ID, or {@code null} if no such entity.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Nullable
+  public static <T extends Identifiable> T getCachedOrNullImpl(
+      final GettableDao<T> dao, final Long id) throws DataAccessException {
+    final EntityCache<T> cache = dao.getEntityCache();
+    if ((cache == null) || (id == null) || isBypassed(dao)) {
+      return getByKeyOrNullImpl(dao, () -> query(dao, id), "id", id);
+    }
+    final CacheEntry<T> entry = cache.get(id);
+    if (entry != null) {
+      return getByKeyOrNullImpl(dao, entry::getEntity, "id", id);
+    }
+    return getByKeyOrNullImpl(dao, () -> load(dao, cache, id), "id", id);
+  }
+
+  /**
+   * Gets the number of entities that match the specified criteria from the
+   * count cache of the DAO, without accessing the database.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The cached number of matching entities, or {@code null} if it is not
+   *     cached, or the DAO has no count cache, or the count cache is bypassed
+   *     by the current transaction.
+   */
+  @Nullable
+  public static <T> Long getCachedCount(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter) {
+    final QueryCache<Long> cache = dao.getCountCache();
+    if ((cache == null) || isBypassed(dao)) {
+      return null;
+    }
+    return cache.get(QueryKey.of(filter));
+  }
+
+  /**
+   * Gets the specified subsequence of entities that match the specified
+   * criteria from the list cache of the DAO, without accessing the database.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @param limit
+   *     The maximum number of entities to be listed, or {@code null} if no
+   *     limit.
+   * @param offset
+   *     The number of matching entities to be skipped, or {@code null} if none.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The cached unmodifiable list of matching entities, or {@code null} if
+   *     it is not cached, or the DAO has no list cache, or the list cache is
+   *     bypassed by the current transaction.
+   */
+  @Nullable
+  public static <T> List<T> getCachedList(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset) {
+    final QueryCache<List<T>> cache = dao.getListCache();
+    if ((cache == null) || isBypassed(dao)) {
+      return null;
+    }
+    return cache.get(QueryKey.of(filter, sortRequest, limit, offset));
+  }
+
+  /**
+   * Gets the number of entities that match the specified criteria through the
+   * count cache of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The number of all entities matching the filtering criteria.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> long countCachedImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter) throws DataAccessException {
+    final QueryCache<Long> cache = dao.getCountCache();
+    if ((cache == null) || isBypassed(dao)) {
+      return countImpl(dao, filter);
+    }
+    final QueryKey key = QueryKey.of(filter);
+    final Long cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    final long generation = cache.getGeneration();
+    final long result = countImpl(dao, filter);
+    cache.put(key, result, generation);
+    return result;
+  }
+
+  /**
+   * Lists the specified subsequence of entities that match the specified
+   * criteria through the list cache of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @param limit
+   *     The maximum number of entities to be listed, or {@code null} if no
+   *     limit.
+   * @param offset
+   *     The number of matching entities to be skipped, or {@code null} if none.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The list of matching entities, which is unmodifiable if the DAO has a
+   *     list cache.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> List<T> listCachedImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset)
+      throws DataAccessException {
+    final QueryCache<List<T>> cache = dao.getListCache();
+    if ((cache == null) || isBypassed(dao)) {
+      return listImpl(dao, filter, sortRequest, limit, offset);
+    }
+    final QueryKey key = QueryKey.of(filter, sortRequest, limit, offset);
+    final List<T> cached = cache.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    final long generation = cache.getGeneration();
+    final List<T> result = List.copyOf(
+        listImpl(dao, filter, sortRequest, limit, offset));
+    cache.put(key, result, generation);
+    return result;
+  }
+
+  /**
+   * Gets the first entity that matches the specified criteria through the
+   * list cache of the DAO.
+   *
+   * <p>If the DAO has no list cache, or the list cache is bypassed by the
+   * current transaction, the entity is selected directly by
+   * {@link DaoListImplHelper#firstImpl(ListableDao, Criterion, SortRequest)};
+   * otherwise, it is taken from the cached list of at most one entity.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The first matching entity, or {@code null} if there is none.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Nullable
+  public static <T> T firstCachedImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest) throws DataAccessException {
+    if ((dao.getListCache() == null) || isBypassed(dao)) {
+      return firstImpl(dao, filter, sortRequest);
+    }
+    final List<T> list = listCachedImpl(dao, filter, sortRequest, 1, 0L);
+    return (list.isEmpty() ? null : list.get(0));
+  }
+
+  /**
+   * Loads the entity with the specified ID into the cache of the DAO.
+   *
+   * <p>Only the caller actually querying the database caches the loaded
+   * entity, with the version of the ID read right before its own query. A
+   * caller joining a call in flight never caches the shared result, since the
+   * call may have started before an invalidation the caller has observed, and
+   * its result could be stale.</p>
+   */
+  @Nullable
+  private static <T extends Identifiable> T load(final GettableDao<T> dao,
+      final EntityCache<T> cache, final Long id) {
+    final SingleFlight<Long, T> flight = dao.getSingleFlight();
+    if (flight == null) {
+      return loadAndPut(dao, cache, id);
+    } else {
+      return flight.execute(id, () -> loadAndPut(dao, cache, id));
+    }
+  }
+
+  @Nullable
+  private static <T extends Identifiable> T loadAndPut(
+      final GettableDao<T> dao, final EntityCache<T> cache, final Long id) {
+    final long version = cache.getVersion(id);
+    final T result = dao.getMapper().get(id);
+    cache.put(id, result, version);
+    return result;
+  }
+
+  @Nullable
+  private static <T extends Identifiable> T query(final GettableDao<T> dao,
+      final Long id) {
+    final SingleFlight<Long, T> flight = dao.getSingleFlight();
+    // a transaction with writes must not share the result of another
+    // connection, which cannot see its uncommitted modifications
+    if ((flight == null) || (id == null) || isBypassed(dao)) {
+      return dao.getMapper().get(id);
+    } else {
+      return flight.execute(id, () -> dao.getMapper().get(id));
+    }
+  }
+
+  /**
+   * Invalidates the cached data of the entity with the specified ID, after it
+   * was modified by a write operation of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the modified entity. A {@code null} value is ignored.
+   * @param <T>
+   *     The type of entities.
+   */
+  public static <T> void invalidateCache(final Dao<T> dao,
+      @Nullable final Long id) {
+    invalidateQueryCache(dao);
+    final EntityCache<T> cache = dao.getEntityCache();
+    if ((cache != null) && (id != null)) {
+      invalidateEntity(dao, cache, getPendingInvalidation(dao), id);
+    }
+  }
+
+  /**
+   * Invalidates the cached data of the specified entities, after they were
+   * modified by a write operation of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The modified entities. The entities not implementing the
+   *     {@link Identifiable} interface are ignored. A {@code null} value only
+   *     invalidates the cached query results.
+   * @param <T>
+   *     The type of entities.
+   */
+  public static <T> void invalidateCache(final Dao<T> dao,
+      @Nullable final Collection<T> list) {
+    invalidateQueryCache(dao);
+    final EntityCache<T> cache = dao.getEntityCache();
+    if ((cache != null) && (list != null)) {
+      final PendingInvalidation<T> pending = getPendingInvalidation(dao);
+      for (final T obj : list) {
+        if ((obj instanceof final Identifiable entity)
+            && (entity.getId() != null)) {
+          invalidateEntity(dao, cache, pending, entity.getId());
+        }
+      }
+    }
+  }
+
+  /**
+   * Invalidates the cached data of the entities with the specified IDs, after
+   * they were modified by a write operation of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The IDs of the modified entities. The {@code null} IDs are ignored,
+   *     and a {@code null} value only invalidates the cached query results.
+   * @param <T>
+   *     The type of entities.
+   */
+  public static <T> void invalidateCacheByIds(final Dao<T> dao,
+      @Nullable final Collection<Long> ids) {
+    invalidateQueryCache(dao);
+    final EntityCache<T> cache = dao.getEntityCache();
+    if ((cache != null) && (ids != null)) {
+      final PendingInvalidation<T> pending = getPendingInvalidation(dao);
+      for (final Long id : ids) {
+        if (id != null) {
+          invalidateEntity(dao, cache, pending, id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Invalidates the cached data of the entities added or updated by an upsert
+   * operation of the DAO.
+   *
+   * <p>An entity reported as {@link UpsertResult#INSERTED} may have updated an
+   * existing entity whose ID was not written back, e.g., on H2 or for the IDs
+   * generated by the database, and the cached data of that entity could not
+   * be found by the ID of the specified entity; see {@link UpsertResult}.
+   * Therefore, if any entity is reported as inserted, or the operation failed,
+   * all the cached data of the DAO is invalidated; otherwise, only the cached
+   * data of the specified entities is invalidated.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The entities added or updated.
+   * @param results
+   *     The outcomes of the entities, or {@code null} if the operation failed.
+   * @param <T>
+   *     The type of entities.
+   */
+  public static <T> void invalidateUpsertCache(final Dao<T> dao,
+      final Collection<T> list,
+      @Nullable final Collection<UpsertResult> results) {
+    if ((results == null) || results.contains(UpsertResult.INSERTED)) {
+      invalidateAllCache(dao);
+    } else {
+      invalidateCache(dao, list);
+    }
+  }
+
+  /**
+   * Invalidates all the cached data of the DAO, after an unknown set of
+   * entities were modified by a write operation of the DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param <T>
+   *     The type of entities.
+   */
+  public static <T> void invalidateAllCache(final Dao<T> dao) {
+    invalidateQueryCache(dao);
+    final EntityCache<T> cache = dao.getEntityCache();
+    if (cache != null) {
+      dao.getLogger().trace("Invalidating all the cached {}.",
+          dao.getEntityName());
+      cache.invalidateAll();
+      final PendingInvalidation<T> pending = getPendingInvalidation(dao);
+      if (pending != null) {
+        pending.all = true;
+      }
+    }
+  }
+
+  private static <T> void invalidateEntity(final Dao<T> dao,
+      final EntityCache<T> cache,
+      @Nullable final PendingInvalidation<T> pending, final Long id) {
+    dao.getLogger().trace("Invalidating the cached {} with ID {}.",
+        dao.getEntityName(), id);
+    cache.invalidate(id);
+    if (pending != null) {
+      pending.ids.add(id);
+    }
+  }
+
+  private static <T> void invalidateQueryCache(final Dao<T> dao) {
+    // the query results are always invalidated as a whole after the
+    // transaction completes, so only the pending invalidation is needed
+    if (hasCache(dao)) {
+      getPendingInvalidation(dao);
+    }
+    clearQueryCache(dao);
+  }
+
+  private static boolean hasCache(final Dao<?> dao) {
+    if (dao.getEntityCache() != null) {
+      return true;
+    } else if (dao instanceof final ListableDao<?> listable) {
+      return (listable.getCountCache() != null)
+          || (listable.getListCache() != null);
+    } else {
+      return false;
+    }
+  }
+
+  private static <T> void clearQueryCache(final Dao<T> dao) {
+    if (dao instanceof final ListableDao<T> listable) {
+      final QueryCache<Long> counts = listable.getCountCache();
+      if (counts != null) {
+        counts.invalidateAll();
+      }
+      final QueryCache<List<T>> lists = listable.getListCache();
+      if (lists != null) {
+        lists.invalidateAll();
+      }
+    }
+  }
+
+  /**
+   * Tests whether the caches of the DAO must be bypassed by the current
+   * thread, since the current transaction has modified the entities of the
+   * DAO.
+   */
+  private static boolean isBypassed(final Dao<?> dao) {
+    return TransactionSynchronizationManager.isSynchronizationActive()
+        && TransactionSynchronizationManager.hasResource(new PendingKey(dao));
+  }
+
+  /**
+   * Gets the invalidation of the caches of the DAO pending on the completion
+   * of the current transaction, and registers a new one if there is none.
+   *
+   * @return
+   *     The pending invalidation of the caches of the DAO, or {@code null} if
+   *     there is no active transaction synchronization.
+   */
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private static <T> PendingInvalidation<T> getPendingInvalidation(
+      final Dao<T> dao) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      return null;
+    }
+    final PendingKey key = new PendingKey(dao);
+    PendingInvalidation<T> result = (PendingInvalidation<T>)
+        TransactionSynchronizationManager.getResource(key);
+    if (result == null) {
+      result = new PendingInvalidation<>(dao, key);
+      TransactionSynchronizationManager.bindResource(key, result);
+      TransactionSynchronizationManager.registerSynchronization(result);
+    }
+    return result;
+  }
+
+  /**
+   * The key binding the pending invalidation of the caches of a DAO to the
+   * current transaction.
+   */
+  private record PendingKey(Dao<?> dao) {}
+
+  /**
+   * The invalidation of the caches of a DAO, which is performed again after
+   * the transaction modifying the entities of the DAO completes, whether it
+   * was committed or rolled back.
+   */
+  private static final class PendingInvalidation<T>
+      implements TransactionSynchronization {
+    final Dao<T> dao;
+    final PendingKey key;
+    final Set<Long> ids = new HashSet<>();
+    boolean all;
+
+    PendingInvalidation(final Dao<T> dao, final PendingKey key) {
+      this.dao = dao;
+      this.key = key;
+    }
+
+    @Override
+    public void suspend() {
+      TransactionSynchronizationManager.unbindResource(key);
+    }
+
+    @Override
+    public void resume() {
+      TransactionSynchronizationManager.bindResource(key, this);
+    }
+
+    @Override
+    public void afterCompletion(final int status) {
+      TransactionSynchronizationManager.unbindResourceIfPossible(key);
+      dao.getLogger().trace("Invalidating the cached {} modified by the "
+          + "completed transaction.", dao.getEntityName());
+      clearQueryCache(dao);
+      final EntityCache<T> cache = dao.getEntityCache();
+      if (cache == null) {
+        return;
+      }
+      if (all) {
+        cache.invalidateAll();
+      } else {
+        for (final Long id : ids) {
+          cache.invalidate(id);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,251 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.springframework.dao.DataAccessException;
+
+import ltd.qubit.commons.dao.mapper.ListableMapper;
+import ltd.qubit.commons.dao.model.KeysetCursor;
+import ltd.qubit.commons.dao.model.KeysetPage;
+import ltd.qubit.commons.sql.Criterion;
+import ltd.qubit.commons.sql.SortOrder;
+import ltd.qubit.commons.sql.SortRequest;
+
+import static ltd.qubit.commons.dao.DaoImplHelper.countImpl;
+import static ltd.qubit.commons.dao.DaoImplHelper.listImpl;
+
+/**
+ * Provides functions to help implementing the list query operations of DAOs.
+ *
+ * @author Haixing Hu
+ */
+public class DaoListImplHelper {
+
+  /**
+   * Gets the first entity that matches the specified criteria.
+   *
+   * <p>The entity is selected by {@link ListableMapper#first(Criterion,
+   * SortRequest)} if {@link ListableDao#isFirstStatementSupported()}, or by
+   * listing at most one entity otherwise.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities, or {@code null} if there is no
+   *     restriction.
+   * @param sortRequest
+   *     The sorting request, or {@code null} if the default sorting is used.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The first eligible entity, or {@code null} if there is none.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Nullable
+  public static <T> T firstImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    logger.debug("Getting the first {}: filter = {}, sortRequest = {}",
+        dao.getEntityName(), filter, sortRequest);
+    if (dao.isFirstStatementSupported()) {
+      return dao.getMapper().first(filter, sortRequest);
+    }
+    final List<T> list = listImpl(dao, filter, sortRequest, 1, 0L);
+    return (list.isEmpty() ? null : list.get(0));
+  }
+
+  /**
+   * Tests whether there is any entity that matches the specified criteria.
+   *
+   * <p>The existence is tested by {@link ListableMapper#existsAny(Criterion)}
+   * if {@link ListableDao#isFirstStatementSupported()}, or by counting the
+   * matching entities otherwise.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities, or {@code null} if there is no
+   *     restriction.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     {@code true} if there is any eligible entity; {@code false} otherwise.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> boolean existsAnyImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    logger.debug("Testing the existence of {}: filter = {}",
+        dao.getEntityName(), filter);
+    if (dao.isFirstStatementSupported()) {
+      return dao.getMapper().existsAny(filter);
+    }
+    return countImpl(dao, filter) > 0;
+  }
+
+  /**
+   * Lists a page of entities that match the specified criteria and follow the
+   * specified cursor.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities, or {@code null} if there is no
+   *     restriction.
+   * @param sortRequest
+   *     The sorting request, or {@code null} if the entities are sorted by
+   *     their IDs.
+   * @param cursor
+   *     The opaque cursor of the previous page, or {@code null} for the first
+   *     page.
+   * @param limit
+   *     The maximum number of entities in the page.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The page of eligible entities following the specified cursor.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> KeysetPage<T> listAfterImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final String cursor, final int limit)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    logger.debug("Listing {} after the cursor {}: filter = {}, "
+        + "sortRequest = {}, limit = {}", dao.getEntityName(), cursor, filter,
+        sortRequest, limit);
+    // one more entity is fetched, so the limit must leave room for it
+    if ((limit <= 0) || (limit == Integer.MAX_VALUE)) {
+      throw new IllegalArgumentException("The limit must be positive and less "
+          + "than " + Integer.MAX_VALUE + ": " + limit);
+    }
+    final String field = (sortRequest == null ? null : sortRequest.getField());
+    final SortOrder order = getSortOrder(sortRequest);
+    final KeysetCursor after = (cursor == null
+                                ? null
+                                : KeysetCursor.decode(cursor));
+    if ((after != null) && (!after.matches(field, order))) {
+      throw new IllegalArgumentException("The cursor was created for the "
+          + "sorting field " + after.getField() + " in the order "
+          + after.getOrder() + " instead of " + field + " in the order "
+          + order);
+    }
+    // fetch one more entity to detect whether there is a next page
+    final List<T> list = dao.getMapper().listAfter(filter, sortRequest, after,
+        limit + 1);
+    if (list.size() <= limit) {
+      return new KeysetPage<>(list, null);
+    }
+    final List<T> content = new ArrayList<>(list.subList(0, limit));
+    final T last = content.get(limit - 1);
+    return new KeysetPage<>(content,
+        KeysetCursor.of(field, order, last).encode());
+  }
+
+  private static SortOrder getSortOrder(
+      @Nullable final SortRequest<?> sortRequest) {
+    if ((sortRequest == null) || (sortRequest.getOrder() == null)) {
+      return SortOrder.ASC;
+    } else {
+      return sortRequest.getOrder();
+    }
+  }
+
+  /**
+   * Streams the entities that match the specified criteria from the database.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities, or {@code null} if there is no
+   *     restriction.
+   * @param sortRequest
+   *     The sorting request, or {@code null} if the default sorting is used.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The stream of eligible entities, which closes the underlying cursor
+   *     when it is closed.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> Stream<T> streamImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    logger.debug("Streaming {}: filter = {}, sortRequest = {}",
+        dao.getEntityName(), filter, sortRequest);
+    final Cursor<T> cursor = dao.getMapper().stream(filter, sortRequest);
+    return StreamSupport.stream(cursor.spliterator(), false)
+                        .onClose(() -> closeCursor(dao, cursor));
+  }
+
+  private static <T> void closeCursor(final ListableDao<T> dao,
+      final Cursor<T> cursor) {
+    dao.getLogger().debug("Closing the cursor of {} after {} entities.",
+        dao.getEntityName(), cursor.getCurrentIndex() + 1);
+    try {
+      cursor.close();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Performs an action on each entity that matches the specified criteria.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities, or {@code null} if there is no
+   *     restriction.
+   * @param sortRequest
+   *     The sorting request, or {@code null} if the default sorting is used.
+   * @param action
+   *     The action performed on each eligible entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The number of entities passed to the action.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> long forEachImpl(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      final Consumer<? super T> action) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    logger.debug("Iterating {}: filter = {}, sortRequest = {}",
+        dao.getEntityName(), filter, sortRequest);
+    final long[] count = {0};
+    dao.getMapper().forEach(filter, sortRequest, (context) -> {
+      action.accept(context.getResultObject());
+      ++count[0];
+    });
+    logger.debug("{} {} were iterated.", count[0], dao.getEntityName());
+    return count[0];
+  }
+}
@@ -0,0 +1,330 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao;
+
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+
+import ltd.qubit.commons.dao.metrics.DaoMetricsRecorder;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
+import ltd.qubit.commons.dao.metrics.SlowOperationDetector;
+import ltd.qubit.commons.sql.Criterion;
+import ltd.qubit.commons.sql.SortRequest;
+
+/**
+ * Provides functions to help instrumenting the operations of DAOs.
+ *
+ * <p>An instrumented operation calls {@link #startMetrics(Dao)} before
+ * accessing the database, and then either
+ * {@link #recordMetrics(Dao, DaoOperationType, long, long)} after it succeeds,
+ * or {@link #recordMetrics(Dao, DaoOperationType, long, RuntimeException)}
+ * after it fails. These functions do nothing if the DAO has no
+ * {@link DaoMetricsRecorder}, and never allocate any object.</p>
+ *
+ * <p>The query operations of {@link ListableDao} call
+ * {@link #startQueryMetrics(ListableDao)} instead, and additionally call
+ * {@link #detectSlowQuery(ListableDao, DaoOperationType, long, Criterion,
+ * SortRequest, Integer, Long)} once they complete, whether they succeed or
+ * not.</p>
+ *
+ * <p>The {@code measureXxx()} functions wrap an operation with the above
+ * calls, so that the default functions of the DAO interfaces only supply the
+ * operation, the number of rows of its result, and the invalidation of the
+ * caches to run whether it succeeds or not, e.g.:</p>
+ * <pre><code>
+ * default long deleteAll(final Collection&lt;Long&gt; ids) {
+ *   return measure(this, DaoOperationType.DELETE_ALL,
+ *       () -&gt; deleteAllImpl(this, ids), Long::longValue,
+ *       () -&gt; invalidateCacheByIds(this, ids));
+ * }
+ * </code></pre>
+ * <p>The lambdas capturing the arguments of the operation are allocated on
+ * every call, which is negligible compared with a round trip to the
+ * database.</p>
+ *
+ * @author Haixing Hu
+ */
+public class DaoMetricsHelper {
+
+  /**
+   * Starts measuring an operation of a DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @return
+   *     The start time of the operation, in nanoseconds, which should be passed
+   *     to the {@code recordMetrics()} functions; or 0 if the DAO has no
+   *     metrics recorder.
+   */
+  public static long startMetrics(final Dao<?> dao) {
+    return (dao.getMetricsRecorder() == null ? 0L : System.nanoTime());
+  }
+
+  /**
+   * Starts measuring a query operation of a {@link ListableDao}.
+   *
+   * @param dao
+   *     The DAO.
+   * @return
+   *     The start time of the operation, in nanoseconds, which should be passed
+   *     to the {@code recordMetrics()} functions and to
+   *     {@link #detectSlowQuery(ListableDao, DaoOperationType, long, Criterion,
+   *     SortRequest, Integer, Long)}; or 0 if the DAO has neither metrics
+   *     recorder nor slow operation detector.
+   */
+  public static long startQueryMetrics(final ListableDao<?> dao) {
+    if ((dao.getMetricsRecorder() == null)
+        && (dao.getSlowOperationDetector() == null)) {
+      return 0L;
+    } else {
+      return System.nanoTime();
+    }
+  }
+
+  /**
+   * Passes a completed query operation of a {@link ListableDao} to its slow
+   * operation detector, if any.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param start
+   *     The start time returned by {@link #startQueryMetrics(ListableDao)}.
+   * @param filter
+   *     The filter of the operation, or {@code null} if none.
+   * @param sortRequest
+   *     The sort request of the operation, or {@code null} if none.
+   * @param limit
+   *     The limit of the operation, or {@code null} if none.
+   * @param offset
+   *     The offset of the operation, or {@code null} if none.
+   * @param <T>
+   *     The type of entities.
+   */
+  public static <T> void detectSlowQuery(final ListableDao<T> dao,
+      final DaoOperationType operation, final long start,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset) {
+    final SlowOperationDetector detector = dao.getSlowOperationDetector();
+    if (detector != null) {
+      detector.check(dao.getEntityName(), operation, System.nanoTime() - start,
+          filter, sortRequest, limit, offset);
+    }
+  }
+
+  /**
+   * Records a successful operation of a DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param start
+   *     The start time returned by {@link #startMetrics(Dao)}.
+   * @param rows
+   *     The number of entities affected or returned by the operation.
+   */
+  public static void recordMetrics(final Dao<?> dao,
+      final DaoOperationType operation, final long start, final long rows) {
+    final DaoMetricsRecorder recorder = dao.getMetricsRecorder();
+    if (recorder != null) {
+      recorder.recordSuccess(dao.getEntityName(), operation,
+          System.nanoTime() - start, rows);
+    }
+  }
+
+  /**
+   * Records a failed operation of a DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param start
+   *     The start time returned by {@link #startMetrics(Dao)}.
+   * @param error
+   *     The exception thrown by the operation.
+   */
+  public static void recordMetrics(final Dao<?> dao,
+      final DaoOperationType operation, final long start,
+      final RuntimeException error) {
+    final DaoMetricsRecorder recorder = dao.getMetricsRecorder();
+    if (recorder != null) {
+      recorder.recordFailure(dao.getEntityName(), operation,
+          System.nanoTime() - start, error.getClass());
+    }
+  }
+
+  /**
+   * Measures an operation of a DAO.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param task
+   *     The operation to be measured.
+   * @param rows
+   *     The function returning the number of entities affected or returned by
+   *     the operation from its result.
+   * @param <R>
+   *     The type of the result of the operation.
+   * @return
+   *     The result of the operation.
+   */
+  public static <R> R measure(final Dao<?> dao,
+      final DaoOperationType operation, final Supplier<R> task,
+      final ToLongFunction<? super R> rows) {
+    return measure(dao, operation, task, rows, null);
+  }
+
+  /**
+   * Measures an operation of a DAO, and then runs a callback whether the
+   * operation succeeds or not, e.g., to invalidate the caches.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param task
+   *     The operation to be measured.
+   * @param rows
+   *     The function returning the number of entities affected or returned by
+   *     the operation from its result.
+   * @param completion
+   *     The callback to be run after the operation completes, or {@code null}
+   *     if none.
+   * @param <R>
+   *     The type of the result of the operation.
+   * @return
+   *     The result of the operation.
+   */
+  public static <R> R measure(final Dao<?> dao,
+      final DaoOperationType operation, final Supplier<R> task,
+      final ToLongFunction<? super R> rows,
+      @Nullable final Runnable completion) {
+    final long start = startMetrics(dao);
+    try {
+      final R result = task.get();
+      recordMetrics(dao, operation, start, rows.applyAsLong(result));
+      return result;
+    } catch (final RuntimeException e) {
+      recordMetrics(dao, operation, start, e);
+      throw e;
+    } finally {
+      if (completion != null) {
+        completion.run();
+      }
+    }
+  }
+
+  /**
+   * Measures an operation of a DAO affecting exactly one entity and returning
+   * nothing, and then runs a callback whether the operation succeeds or not.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param task
+   *     The operation to be measured.
+   * @param completion
+   *     The callback to be run after the operation completes, or {@code null}
+   *     if none.
+   */
+  public static void measureVoid(final Dao<?> dao,
+      final DaoOperationType operation, final Runnable task,
+      @Nullable final Runnable completion) {
+    final long start = startMetrics(dao);
+    try {
+      task.run();
+      recordMetrics(dao, operation, start, 1);
+    } catch (final RuntimeException e) {
+      recordMetrics(dao, operation, start, e);
+      throw e;
+    } finally {
+      if (completion != null) {
+        completion.run();
+      }
+    }
+  }
+
+  /**
+   * Measures a query operation of a {@link ListableDao}, and passes it to the
+   * slow operation detector of the DAO, if any, whether it succeeds or not.
+   *
+   * @param dao
+   *     The DAO.
+   * @param operation
+   *     The type of the operation.
+   * @param start
+   *     The start time returned by {@link #startQueryMetrics(ListableDao)},
+   *     which lets the caller record a cache hit without querying.
+   * @param task
+   *     The query to be measured.
+   * @param rows
+   *     The function returning the number of entities returned by the query
+   *     from its result.
+   * @param filter
+   *     The filter of the query, or {@code null} if none.
+   * @param sortRequest
+   *     The sort request of the query, or {@code null} if none.
+   * @param limit
+   *     The limit of the query, or {@code null} if none.
+   * @param offset
+   *     The offset of the query, or {@code null} if none.
+   * @param <T>
+   *     The type of entities.
+   * @param <R>
+   *     The type of the result of the query.
+   * @return
+   *     The result of the query.
+   */
+  public static <T, R> R measureQuery(final ListableDao<T> dao,
+      final DaoOperationType operation, final long start,
+      final Supplier<R> task, final ToLongFunction<? super R> rows,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset) {
+    try {
+      final R result = task.get();
+      recordMetrics(dao, operation, start, rows.applyAsLong(result));
+      return result;
+    } catch (final RuntimeException e) {
+      recordMetrics(dao, operation, start, e);
+      throw e;
+    } finally {
+      detectSlowQuery(dao, operation, start, filter, sortRequest, limit,
+          offset);
+    }
+  }
+
+  /**
+   * Gets the total number of entities affected by a batched operation.
+   *
+   * @param counts
+   *     The numbers of entities affected by every chunk of the operation.
+   * @return
+   *     The total number of entities affected by the operation, excluding the
+   *     chunks whose numbers are {@link Dao#UNKNOWN_ROW_COUNT}.
+   */
+  public static long sum(final long[] counts) {
+    long result = 0;
+    for (final long count : counts) {
+      if (count != Dao.UNKNOWN_ROW_COUNT) {
+        result += count;
+      }
+    }
+    return result;
+  }
+}
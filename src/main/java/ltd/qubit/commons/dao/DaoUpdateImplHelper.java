@@ -0,0 +1,382 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.springframework.beans.BeanUtils;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import ltd.qubit.commons.dao.error.UpdateConflictException;
+import ltd.qubit.commons.error.DataNotExistException;
+import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.model.Modifiable;
+
+/**
+ * Provides functions to help implementing the partial and optimistic updating
+ * operations of DAOs.
+ *
+ * @author Haixing Hu
+ */
+public class DaoUpdateImplHelper {
+
+  /**
+   * The names of the fields never updated by
+   * {@link UpdatableDao#update(Identifiable)}.
+   *
+   * <p><b>Note:</b> This set must be kept the same as the fields listed in the
+   * {@code @Unmodified} annotation of
+   * {@link UpdatableDao#update(Identifiable)}.</p>
+   */
+  static final Set<String> UNMODIFIED_FIELDS = Set.of("id", "code", "entity",
+      "app", "owner", "username", "password", "visible", "enabled", "state",
+      "createTime", "deleteTime");
+
+  /**
+   * The default initial backoff of {@link #updateWithRetry(UpdatableDao,
+   * Supplier, Consumer, int)}.
+   */
+  public static final Duration DEFAULT_RETRY_BACKOFF = Duration.ofMillis(10);
+
+  /**
+   * The maximum backoff between two attempts of
+   * {@link #updateWithRetry(UpdatableDao, Supplier, Consumer, int, Duration)}.
+   */
+  public static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(1);
+
+  private static final String MODIFY_TIME_FIELD = "modifyTime";
+
+  /**
+   * Updates the changed fields of an existing entity.
+   *
+   * @param dao
+   *     The DAO.
+   * @param original
+   *     The original data of the entity, e.g., as returned by the DAO before
+   *     being modified by the caller.
+   * @param obj
+   *     The new data of the entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The timestamp when the entity was modified, or {@code null} if no field
+   *     was changed and the entity was not updated.
+   * @throws DataNotExistException
+   *     If the specified entity does not exist.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  @Nullable
+  public static <T extends Identifiable> Instant updateChangedImpl(
+      final UpdatableDao<T> dao, final T original, final T obj)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final Long id = obj.getId();
+    if (!Objects.equals(original.getId(), id)) {
+      throw new IllegalArgumentException("The original " + dao.getEntityName()
+          + " has a different ID: " + original.getId() + " != " + id);
+    }
+    final Set<String> fields = getChangedFields(original, obj);
+    if (fields.isEmpty()) {
+      logger.debug("No field of the {} with ID {} was changed.",
+          dao.getEntityName(), id);
+      return null;
+    }
+    logger.debug("Updating the fields {} of the {} with ID {}.", fields,
+        dao.getEntityName(), id);
+    final Instant now = dao.getClock().instant().truncatedTo(ChronoUnit.MILLIS);
+    if (obj instanceof Modifiable) {
+      ((Modifiable) obj).setModifyTime(now);
+    }
+    final long count = dao.getMapper().updatePartial(obj, fields);
+    if (count == 0) {
+      throw new DataNotExistException(dao.getEntityClass(), "id", id);
+    }
+    return now;
+  }
+
+  /**
+   * Updates an existing entity if it has not been modified since it was read.
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The new data of the entity, whose modification time is the one when
+   *     it was read.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The new modification time of the entity.
+   * @throws UpdateConflictException
+   *     If the entity has been modified since it was read.
+   * @throws DataNotExistException
+   *     If the specified entity does not exist.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  public static <T extends Identifiable> Instant updateIfUnmodifiedImpl(
+      final UpdatableDao<T> dao, final T obj) throws DataAccessException {
+    if (!(obj instanceof Modifiable)) {
+      throw new IllegalArgumentException("The " + dao.getEntityName()
+          + " has no modification time to be used as its version.");
+    }
+    final Logger logger = dao.getLogger();
+    final Modifiable modifiable = (Modifiable) obj;
+    final Instant expected = modifiable.getModifyTime();
+    final Long id = obj.getId();
+    logger.debug("Updating the {} with ID {} modified at {}.",
+        dao.getEntityName(), id, expected);
+    // truncated to the precision of the database column, otherwise the
+    // in-memory version would never equal the stored one
+    Instant now = dao.getClock().instant().truncatedTo(ChronoUnit.MILLIS);
+    if ((expected != null) && (!now.isAfter(expected))) {
+      // the new version must differ from the old one even if the clock is
+      // coarse or goes backward
+      now = expected.plusMillis(1);
+    }
+    modifiable.setModifyTime(now);
+    final long count = dao.getMapper().updateIfUnmodified(obj, expected);
+    if (count > 0) {
+      return now;
+    }
+    modifiable.setModifyTime(expected);
+    if ((dao instanceof GettableDao) && !((GettableDao<?>) dao).exist(id)) {
+      throw new DataNotExistException(dao.getEntityClass(), "id", id);
+    }
+    logger.debug("The {} with ID {} was modified by another writer since {}.",
+        dao.getEntityName(), id, expected);
+    throw new UpdateConflictException(dao.getEntityName(), id, expected);
+  }
+
+  /**
+   * Reads, modifies and updates an entity optimistically, and retries on the
+   * conflicts with other writers.
+   *
+   * <p>This function is equivalent to {@link #updateWithRetry(UpdatableDao,
+   * Supplier, Consumer, int, Duration)} with the initial backoff
+   * {@link #DEFAULT_RETRY_BACKOFF}.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param reader
+   *     The function reading the current data of the entity, e.g.,
+   *     {@code () -> dao.get(id)}; the entity it returns is copied before
+   *     being modified.
+   * @param modifier
+   *     The modification applied to the copy of the entity, which may be
+   *     applied more than once and therefore must only depend on the entity it
+   *     receives.
+   * @param maxAttempts
+   *     The maximum number of attempts, which must be positive.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The updated copy of the entity.
+   * @throws UpdateConflictException
+   *     If the last attempt still conflicts with another writer, or the
+   *     attempt conflicts inside an active transaction.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  public static <T extends Identifiable> T updateWithRetry(
+      final UpdatableDao<T> dao, final Supplier<T> reader,
+      final Consumer<T> modifier, final int maxAttempts)
+      throws DataAccessException {
+    return updateWithRetry(dao, reader, modifier, maxAttempts,
+        DEFAULT_RETRY_BACKOFF);
+  }
+
+  /**
+   * Reads, modifies and updates an entity optimistically, and retries on the
+   * conflicts with other writers after a randomized exponential backoff.
+   *
+   * <p>Each attempt reads the entity, applies the modification to it, and
+   * updates it by {@link UpdatableDao#updateIfUnmodified(Identifiable)}. If
+   * the update fails with an {@link UpdateConflictException}, the current
+   * thread sleeps for a random duration between zero and the backoff, which
+   * starts from the initial backoff and doubles after every attempt up to
+   * {@link #MAX_RETRY_BACKOFF}; then the entity is read again and the
+   * modification is applied again, until the update succeeds or the maximum
+   * number of attempts is reached. The randomized backoff spreads the
+   * attempts of the conflicting writers, which would otherwise conflict again
+   * and again.</p>
+   *
+   * <p>The deadlocks and lock wait timeouts, i.e., the other
+   * {@link ConcurrencyFailureException}s, are retried in the same way. Inside
+   * an active transaction nothing is retried, and the first failure is
+   * rethrown: the database may have rolled back the whole transaction, and
+   * under the default {@code REPEATABLE READ} isolation level of MySQL the
+   * entity read again would come from the same snapshot, so every further
+   * attempt would conflict again. The whole transaction must be retried
+   * instead.</p>
+   *
+   * <p>The entity returned by the reader, which may be the instance shared by
+   * an {@link ltd.qubit.commons.dao.cache.EntityCache} without a copier, is
+   * never modified. Each attempt modifies and updates a shallow copy of it,
+   * made by {@link BeanUtils#copyProperties(Object, Object)}, so the entity
+   * class must have a no-argument constructor. The nested objects are shared
+   * by the copy, so the modifier should replace them instead of modifying
+   * them.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param reader
+   *     The function reading the current data of the entity, e.g.,
+   *     {@code () -> dao.get(id)}; the entity it returns is copied before
+   *     being modified.
+   * @param modifier
+   *     The modification applied to the copy of the entity, which may be
+   *     applied more than once and therefore must only depend on the entity it
+   *     receives.
+   * @param maxAttempts
+   *     The maximum number of attempts, which must be positive.
+   * @param initialBackoff
+   *     The maximum backoff after the first failed attempt, which must not be
+   *     negative.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The updated copy of the entity.
+   * @throws UpdateConflictException
+   *     If the last attempt still conflicts with another writer, or the
+   *     attempt conflicts inside an active transaction, or the current thread
+   *     is interrupted while backing off.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  public static <T extends Identifiable> T updateWithRetry(
+      final UpdatableDao<T> dao, final Supplier<T> reader,
+      final Consumer<T> modifier, final int maxAttempts,
+      final Duration initialBackoff) throws DataAccessException {
+    if (maxAttempts <= 0) {
+      throw new IllegalArgumentException("The maximum number of attempts must "
+          + "be positive: " + maxAttempts);
+    }
+    if (initialBackoff.isNegative()) {
+      throw new IllegalArgumentException("The initial backoff must not be "
+          + "negative: " + initialBackoff);
+    }
+    final long maxNanos = MAX_RETRY_BACKOFF.toNanos();
+    long backoffNanos = Math.min(initialBackoff.toNanos(), maxNanos);
+    for (int attempt = 1; ; ++attempt) {
+      final T obj = copyOf(reader.get());
+      modifier.accept(obj);
+      try {
+        dao.updateIfUnmodified(obj);
+        return obj;
+      } catch (final ConcurrencyFailureException e) {
+        if ((attempt >= maxAttempts) || !isRetryable()) {
+          throw e;
+        }
+        dao.getLogger().debug("Retrying the update of the {} with ID {} "
+            + "after {} failed attempts: {}", dao.getEntityName(),
+            obj.getId(), attempt, e.getMessage());
+        if (!backOff(backoffNanos)) {
+          throw e;
+        }
+        backoffNanos = Math.min(backoffNanos * 2, maxNanos);
+      }
+    }
+  }
+
+  private static boolean isRetryable() {
+    // a transaction re-reads the same snapshot, or has been rolled back
+    return !TransactionSynchronizationManager.isActualTransactionActive();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> T copyOf(final T obj) {
+    final T result = (T) BeanUtils.instantiateClass(obj.getClass());
+    BeanUtils.copyProperties(obj, result);
+    return result;
+  }
+
+  private static boolean backOff(final long maxNanos) {
+    if (maxNanos <= 0) {
+      return true;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(
+          ThreadLocalRandom.current().nextLong(maxNanos + 1));
+      return true;
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * Gets the names of the updatable fields whose values are different in two
+   * entities.
+   *
+   * <p>A field is updatable if it is a read-write bean property, and it is
+   * neither listed in {@link #UNMODIFIED_FIELDS} nor the modification time,
+   * which is set by the DAO. The values of the fields are compared with
+   * {@link Objects#deepEquals(Object, Object)}.</p>
+   *
+   * @param original
+   *     The original entity.
+   * @param obj
+   *     The modified entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The names of the changed updatable fields, which is empty if no field
+   *     was changed.
+   */
+  static <T> Set<String> getChangedFields(final T original, final T obj) {
+    if (original.getClass() != obj.getClass()) {
+      throw new IllegalArgumentException("The original entity has a different "
+          + "class: " + original.getClass().getName() + " != "
+          + obj.getClass().getName());
+    }
+    final Set<String> result = new LinkedHashSet<>();
+    for (final PropertyDescriptor property
+        : BeanUtils.getPropertyDescriptors(obj.getClass())) {
+      final String name = property.getName();
+      final Method getter = property.getReadMethod();
+      if ((getter == null)
+          || (property.getWriteMethod() == null)
+          || UNMODIFIED_FIELDS.contains(name)
+          || MODIFY_TIME_FIELD.equals(name)) {
+        continue;
+      }
+      if (!Objects.deepEquals(read(getter, original), read(getter, obj))) {
+        result.add(name);
+      }
+    }
+    return result;
+  }
+
+  private static Object read(final Method getter, final Object obj) {
+    try {
+      return getter.invoke(obj);
+    } catch (final IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Failed to read the property by "
+          + getter, e);
+    }
+  }
+}
@@ -0,0 +1,177 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.springframework.dao.DataAccessException;
+
+import ltd.qubit.commons.dao.mapper.AddableMapper;
+import ltd.qubit.commons.dao.model.UpsertResult;
+import ltd.qubit.commons.model.Creatable;
+import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.model.Modifiable;
+
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.flush;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.getBatchSize;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.getDirectCount;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.prepareAdd;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateUpsertCache;
+
+/**
+ * Provides functions to help implementing the upsert operations of DAOs.
+ *
+ * @author Haixing Hu
+ */
+public class DaoUpsertImplHelper {
+
+  /**
+   * Adds a new entity, or updates the existing entity with the same unique
+   * key.
+   *
+   * <p>The cached data of the DAO is invalidated by
+   * {@link DaoCacheHelper#invalidateUpsertCache(Dao, Collection, Collection)},
+   * whether the operation succeeds or not.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The entity to be added or updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     Whether the entity was added, updated or left unchanged.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  public static <T> UpsertResult addOrUpdateImpl(final AddableDao<T> dao,
+      final T obj) throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final Instant now = dao.getClock().instant();
+    UpsertResult result = null;
+    try {
+      final Long generatedId = prepareUpsert(dao, obj, now);
+      final long count = dao.getMapper().addOrUpdate(obj);
+      result = complete(obj, generatedId, count, now);
+      logger.debug("The {} was {}: {}", dao.getEntityName(), result, obj);
+      return result;
+    } finally {
+      invalidateUpsertCache(dao, Collections.singletonList(obj),
+          (result == null ? null : Collections.singletonList(result)));
+    }
+  }
+
+  /**
+   * Adds or updates a collection of entities in batches.
+   *
+   * <p>The cached data of the DAO is invalidated by
+   * {@link DaoCacheHelper#invalidateUpsertCache(Dao, Collection, Collection)},
+   * whether the operation succeeds or not.</p>
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The collection of entities to be added or updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The list of the outcomes of the entities, in the order of the entities
+   *     in the specified collection.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> List<UpsertResult> addOrUpdateAllImpl(
+      final AddableDao<T> dao, final Collection<T> list)
+      throws DataAccessException {
+    final Logger logger = dao.getLogger();
+    final int batchSize = getBatchSize(dao);
+    logger.debug("Adding or updating {} {} in chunks of {}.", list.size(),
+        dao.getEntityName(), batchSize);
+    final List<UpsertResult> result = new ArrayList<>(list.size());
+    if (list.isEmpty()) {
+      return result;
+    }
+    boolean completed = false;
+    try {
+      final Instant now = dao.getClock().instant();
+      final AddableMapper<T> mapper = (AddableMapper<T>) dao.getBatchMapper();
+      final long[] counts = new long[list.size()];
+      final Long[] generatedIds = new Long[list.size()];
+      int index = 0;
+      int chunkStart = 0;
+      for (final T obj : list) {
+        generatedIds[index] = prepareUpsert(dao, obj, now);
+        counts[index++] = getDirectCount(mapper.addOrUpdate(obj));
+        if (index - chunkStart == batchSize) {
+          flush(mapper::flush, counts, chunkStart);
+          chunkStart = index;
+        }
+      }
+      if (index > chunkStart) {
+        flush(mapper::flush, counts, chunkStart);
+      }
+      index = 0;
+      for (final T obj : list) {
+        result.add(complete(obj, generatedIds[index], counts[index], now));
+        ++index;
+      }
+      logger.debug("{} {} were added or updated.", list.size(),
+          dao.getEntityName());
+      completed = true;
+      return result;
+    } finally {
+      invalidateUpsertCache(dao, list, (completed ? result : null));
+    }
+  }
+
+  /**
+   * Fills in the properties of an entity before adding or updating it, and
+   * returns its newly generated ID, or {@code null} if it does not implement
+   * the {@link Identifiable} interface.
+   */
+  @Nullable
+  private static <T> Long prepareUpsert(final Dao<T> dao, final T obj,
+      final Instant now) {
+    prepareAdd(dao, obj, now);
+    return (obj instanceof Identifiable ? ((Identifiable) obj).getId() : null);
+  }
+
+  /**
+   * Determines the outcome of an upsert statement, and fixes the properties
+   * of the entity if it was not added.
+   *
+   * <p>If the ID written back to the entity differs from the newly generated
+   * one, the statement hit an existing entity. The creation time of an
+   * existing entity is unknown without reading it back, and is therefore
+   * cleared.</p>
+   */
+  private static <T> UpsertResult complete(final T obj,
+      @Nullable final Long generatedId, final long count, final Instant now) {
+    final boolean existing = (generatedId != null)
+        && (!generatedId.equals(((Identifiable) obj).getId()));
+    final UpsertResult result = UpsertResult.of(count, existing);
+    if (result != UpsertResult.INSERTED) {
+      if (obj instanceof Creatable) {
+        ((Creatable) obj).setCreateTime(null);
+      }
+      if ((result == UpsertResult.UPDATED) && (obj instanceof Modifiable)) {
+        ((Modifiable) obj).setModifyTime(now);
+      }
+    }
+    return result;
+  }
+}
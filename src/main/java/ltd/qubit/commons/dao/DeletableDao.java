@@ -9,20 +9,36 @@
 package ltd.qubit.commons.dao;
 
 import java.time.Instant;
+import java.util.Collection;
+
+import javax.annotation.Nullable;
 
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.annotation.Modified;
 import ltd.qubit.commons.dao.mapper.DeletableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
+import ltd.qubit.commons.dao.model.ChunkedDeleteOptions;
+import ltd.qubit.commons.dao.model.ChunkedDeleteProgress;
 import ltd.qubit.commons.error.DataNotExistException;
 import ltd.qubit.commons.model.Deletable;
 import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.sql.Criterion;
 
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.deleteAllImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.deleteWhereImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.purgeAllInChunksImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.restoreAllImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateAllCache;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateCache;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateCacheByIds;
 import static ltd.qubit.commons.dao.DaoImplHelper.deleteByKeyImpl;
 import static ltd.qubit.commons.dao.DaoImplHelper.existNonDeletedKeyImpl;
 import static ltd.qubit.commons.dao.DaoImplHelper.purgeAllImpl;
 import static ltd.qubit.commons.dao.DaoImplHelper.purgeByKeyImpl;
 import static ltd.qubit.commons.dao.DaoImplHelper.restoreByKeyImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measure;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measureVoid;
 
 /**
  * This interface represents a DAO that implements mark deletion operations on
@@ -33,11 +49,20 @@ import static ltd.qubit.commons.dao.DaoImplHelper.restoreByKeyImpl;
  * <li>{@link #existNonDeleted(Long)}: Tests whether there exists the entity
  * with the specified ID that has not been marked as deleted.</li>
  * <li>{@link #delete(Long)}: Marks the specified entity as deleted.</li>
+ * <li>{@link #deleteAll(Collection)}: Marks the entities with the specified
+ * IDs as deleted.</li>
+ * <li>{@link #deleteWhere(Criterion)}: Marks the entities that match the
+ * specified criteria as deleted.</li>
  * <li>{@link #restore(Long)}: Restores the specified mark deleted entity.</li>
+ * <li>{@link #restoreAll(Collection)}: Restores the mark deleted entities with
+ * the specified IDs.</li>
  * <li>{@link #purge(Long)}: Completely removes the specified mark deleted
  * entity from the database.</li>
  * <li>{@link #purgeAll()}: Completely removes <b>all</b> mark deleted entities
  * from the database</li>
+ * <li>{@link #purgeAll(ChunkedDeleteOptions, ChunkedDeleteProgress)}:
+ * Completely removes <b>all</b> mark deleted entities from the database in
+ * chunks.</li>
  * </ul>
  *
  * @param <T>
@@ -90,7 +115,63 @@ public interface DeletableDao<T extends Identifiable & Deletable> extends Dao<T>
    */
   @Modified("deleteTime")
   default Instant delete(final Long id) throws DataAccessException {
-    return deleteByKeyImpl(this, (t) -> getMapper().delete(id, t), "id", id);
+    return measure(this, DaoOperationType.DELETE,
+        () -> deleteByKeyImpl(this, (t) -> getMapper().delete(id, t), "id", id),
+        (r) -> 1, () -> invalidateCache(this, id));
+  }
+
+  /**
+   * Marks the entities with the specified IDs as deleted.
+   *
+   * <p>The IDs are split into chunks of at most {@link #getBatchSize()}
+   * distinct IDs, each of which is marked by a single statement of
+   * {@link DeletableMapper#deleteAll(Collection, Instant)}. All the entities
+   * are marked with the same timestamp. Unlike {@link #delete(Long)}, this
+   * function does not throw a {@link DataNotExistException} for the IDs with
+   * no corresponding entities or with entities already marked as deleted;
+   * instead those IDs are simply not counted.</p>
+   *
+   * @param ids
+   *     The collection of the IDs of the entities to be marked as deleted. The
+   *     duplicated IDs and the {@code null} values are ignored.
+   * @return
+   *     The number of entities marked by this operation.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #restoreAll(Collection)
+   */
+  @Modified("deleteTime")
+  default long deleteAll(final Collection<Long> ids)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.DELETE_ALL,
+        () -> deleteAllImpl(this, ids), Long::longValue,
+        () -> invalidateCacheByIds(this, ids));
+  }
+
+  /**
+   * Marks the entities that match the specified criteria as deleted.
+   *
+   * <p>All the matching entities are marked with the same timestamp by a
+   * single statement. The entities already marked as deleted keep their
+   * original timestamps.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities, which must not be {@code null},
+   *     so that a missing filter never marks all entities as deleted.
+   * @return
+   *     The number of entities marked by this operation.
+   * @throws IllegalArgumentException
+   *     If the filter is {@code null}.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #deleteAll(Collection)
+   */
+  @Modified("deleteTime")
+  default long deleteWhere(final Criterion<T> filter)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.DELETE_WHERE,
+        () -> deleteWhereImpl(this, filter), Long::longValue,
+        () -> invalidateAllCache(this));
   }
 
   /**
@@ -115,7 +196,37 @@ public interface DeletableDao<T extends Identifiable & Deletable> extends Dao<T>
    */
   @Modified("deleteTime")
   default void restore(final Long id) throws DataAccessException {
-    restoreByKeyImpl(this, (t) -> getMapper().restore(id), "id", id);
+    measureVoid(this, DaoOperationType.RESTORE,
+        () -> restoreByKeyImpl(this, (t) -> getMapper().restore(id), "id", id),
+        () -> invalidateCache(this, id));
+  }
+
+  /**
+   * Restores the mark deleted entities with the specified IDs.
+   *
+   * <p>The IDs are split into chunks of at most {@link #getBatchSize()}
+   * distinct IDs, each of which is restored by a single statement of
+   * {@link DeletableMapper#restoreAll(Collection)}. Unlike
+   * {@link #restore(Long)}, this function does not throw a
+   * {@link DataNotExistException} for the IDs with no corresponding entities
+   * or with entities not marked as deleted; instead those IDs are simply not
+   * counted.</p>
+   *
+   * @param ids
+   *     The collection of the IDs of the entities to be restored. The
+   *     duplicated IDs and the {@code null} values are ignored.
+   * @return
+   *     The number of entities restored by this operation.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #deleteAll(Collection)
+   */
+  @Modified("deleteTime")
+  default long restoreAll(final Collection<Long> ids)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.RESTORE_ALL,
+        () -> restoreAllImpl(this, ids), Long::longValue,
+        () -> invalidateCacheByIds(this, ids));
   }
 
   /**
@@ -138,7 +249,9 @@ public interface DeletableDao<T extends Identifiable & Deletable> extends Dao<T>
    * @see ClearableDao#clear()
    */
   default void purge(final Long id) throws DataAccessException {
-    purgeByKeyImpl(this, (t) -> getMapper().purge(id), "id", id);
+    measureVoid(this, DaoOperationType.PURGE,
+        () -> purgeByKeyImpl(this, (t) -> getMapper().purge(id), "id", id),
+        () -> invalidateCache(this, id));
   }
 
   /**
@@ -158,6 +271,47 @@ public interface DeletableDao<T extends Identifiable & Deletable> extends Dao<T>
    * @see ClearableDao#clear()
    */
   default long purgeAll() throws DataAccessException {
-    return purgeAllImpl(this);
+    return measure(this, DaoOperationType.PURGE_ALL, () -> purgeAllImpl(this),
+        Long::longValue, () -> invalidateAllCache(this));
+  }
+
+  /**
+   * Completely removes <b>all</b> mark deleted entities from the database in
+   * chunks ordered by their IDs.
+   *
+   * <p>Unlike {@link #purgeAll()}, which removes the entities with a single
+   * statement holding its locks until all the entities are removed, this
+   * function removes at most {@link ChunkedDeleteOptions#getChunkSize()}
+   * entities with each statement, and pauses between the statements as
+   * specified by the options, so that the concurrent transactions are not
+   * blocked for long and the replicas could catch up. The entities are not
+   * removed in a single transaction, and the deletion could be stopped by the
+   * stop condition of the options or by interrupting the current thread. The
+   * returned progress of a stopped deletion could be passed to this function
+   * to resume the deletion after the last removed chunk. A failed deletion
+   * throws an exception instead of returning its progress; it could be resumed
+   * from the last progress passed to
+   * {@link ChunkedDeleteOptions#getProgressListener()}, or restarted with a
+   * {@code null} progress, which only costs rescanning the IDs of the removed
+   * chunks. The caches of the DAO are invalidated after every chunk.</p>
+   *
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null} to
+   *     start a new deletion.
+   * @return
+   *     The progress of the deletion when it finished or stopped.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #purgeAll()
+   */
+  default ChunkedDeleteProgress purgeAll(final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed)
+      throws DataAccessException {
+    final long before = (resumed == null ? 0 : resumed.getDeleted());
+    return measure(this, DaoOperationType.PURGE_ALL,
+        () -> purgeAllInChunksImpl(this, options, resumed),
+        (r) -> r.getDeleted() - before, () -> invalidateAllCache(this));
   }
 }
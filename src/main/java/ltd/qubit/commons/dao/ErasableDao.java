@@ -11,10 +11,13 @@ package ltd.qubit.commons.dao;
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.dao.mapper.ErasableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
 import ltd.qubit.commons.error.DataNotExistException;
 import ltd.qubit.commons.model.Identifiable;
 
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateCache;
 import static ltd.qubit.commons.dao.DaoImplHelper.eraseByKeyImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measureVoid;
 
 /**
  * This interface represents a DAO that implements the deletion operation.
@@ -54,6 +57,8 @@ public interface ErasableDao<T extends Identifiable> extends Dao<T> {
    * @see DeletableDao#purgeAll()
    */
   default void erase(final Long id) throws DataAccessException {
-    eraseByKeyImpl(this, t -> getMapper().erase(id), "id", id);
+    measureVoid(this, DaoOperationType.ERASE,
+        () -> eraseByKeyImpl(this, t -> getMapper().erase(id), "id", id),
+        () -> invalidateCache(this, id));
   }
 }
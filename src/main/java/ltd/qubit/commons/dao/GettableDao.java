@@ -8,19 +8,29 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.dao;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
 import javax.annotation.Nullable;
 
 import jakarta.validation.constraints.NotNull;
 
 import org.springframework.dao.DataAccessException;
 
+import ltd.qubit.commons.annotation.NoAutoTest;
+import ltd.qubit.commons.dao.concurrent.SingleFlight;
 import ltd.qubit.commons.dao.mapper.GettableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
 import ltd.qubit.commons.error.DataNotExistException;
 import ltd.qubit.commons.model.Identifiable;
 
-import static ltd.qubit.commons.dao.DaoImplHelper.existKeyImpl;
-import static ltd.qubit.commons.dao.DaoImplHelper.getByKeyImpl;
-import static ltd.qubit.commons.dao.DaoImplHelper.getByKeyOrNullImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.existingImpl;
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.getAllImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.existCachedImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.getCachedImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.getCachedOrNullImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measure;
 
 /**
  * This interface represents a DAO that implements a query operation on an
@@ -34,8 +44,24 @@ import static ltd.qubit.commons.dao.DaoImplHelper.getByKeyOrNullImpl;
  * {@link DataNotExistException} if there is no such entity.</li>
  * <li>{@link #getOrNull(Long)}： Gets the entity with the specified ID, and
  * returns {@code null} if there is no such entity.</li>
+ * <li>{@link #existAll(Collection)}: Tests whether there exist entities with
+ * all the specified IDs.</li>
+ * <li>{@link #existing(Collection)}: Gets the IDs of the existing entities
+ * among the specified IDs.</li>
+ * <li>{@link #getAll(Collection)}: Gets the existing entities with the
+ * specified IDs.</li>
  * </ul>
  *
+ * <p>If the DAO provides a cache by {@link #getEntityCache()}, the operations
+ * {@link #exist(Long)}, {@link #get(Long)} and {@link #getOrNull(Long)} are
+ * served from the cache whenever possible, including the negative results for
+ * the IDs with no corresponding entities.</p>
+ *
+ * <p>If the DAO provides a {@link SingleFlight} by {@link #getSingleFlight()},
+ * the concurrent queries of {@link #get(Long)} and {@link #getOrNull(Long)}
+ * for the same ID share a single query to the database. If the DAO also has a
+ * cache, only the caller running the shared query caches its result.</p>
+ *
  * @param <T>
  *     The type of entities being operated on, which must implement the
  *     {@link Identifiable} interface.
@@ -46,6 +72,32 @@ public interface GettableDao<T extends Identifiable> extends Dao<T> {
   @Override
   GettableMapper<T> getMapper();
 
+  /**
+   * Gets the object coalescing the concurrent queries of the same entity.
+   *
+   * <p>If an object is provided, the concurrent calls of {@link #get(Long)}
+   * and {@link #getOrNull(Long)} for the same ID share a single call to
+   * {@link GettableMapper#get(Long)}, and all of them receive its result,
+   * including the absence of the entity and the exception thrown by the
+   * Mapper. The calls for different IDs are executed independently.</p>
+   *
+   * <p><b>Note:</b> A coalesced query may be executed in the transaction of
+   * another thread, so the coalescing should not be enabled for the DAOs whose
+   * queries rely on the isolation of their own transactions. The returned
+   * object must be the same instance throughout the lifetime of the DAO. The
+   * default implementation returns {@code null}, which disables the
+   * coalescing.</p>
+   *
+   * @return
+   *     The object coalescing the concurrent queries of the same entity, or
+   *     {@code null} if the coalescing is disabled.
+   */
+  @NoAutoTest
+  @Nullable
+  default SingleFlight<Long, T> getSingleFlight() {
+    return null;
+  }
+
   /**
    * Tests whether there exists an entity with the specified ID.
    *
@@ -58,7 +110,8 @@ public interface GettableDao<T extends Identifiable> extends Dao<T> {
    *     If any data access error occurs.
    */
   default boolean exist(final Long id) throws DataAccessException {
-    return existKeyImpl(this, () -> getMapper().exist(id), "id", id);
+    return measure(this, DaoOperationType.EXIST,
+        () -> existCachedImpl(this, id), (r) -> (r ? 1 : 0));
   }
 
   /**
@@ -76,7 +129,8 @@ public interface GettableDao<T extends Identifiable> extends Dao<T> {
    */
   @NotNull
   default T get(final Long id) throws DataAccessException {
-    return getByKeyImpl(this, () -> getMapper().get(id), "id", id);
+    return measure(this, DaoOperationType.GET, () -> getCachedImpl(this, id),
+        (r) -> 1);
   }
 
   /**
@@ -92,6 +146,74 @@ public interface GettableDao<T extends Identifiable> extends Dao<T> {
    */
   @Nullable
   default T getOrNull(final Long id) throws DataAccessException {
-    return getByKeyOrNullImpl(this, () -> getMapper().get(id), "id", id);
+    return measure(this, DaoOperationType.GET,
+        () -> getCachedOrNullImpl(this, id), (r) -> (r == null ? 0 : 1));
+  }
+
+  /**
+   * Tests whether there exist entities with all the specified IDs.
+   *
+   * @param ids
+   *     The collection of the specified IDs. The duplicated IDs and the
+   *     {@code null} values are ignored.
+   * @return
+   *     If there exist entities with all the specified IDs, return
+   *     {@code true}; otherwise return {@code false}.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #existing(Collection)
+   */
+  default boolean existAll(final Collection<Long> ids)
+      throws DataAccessException {
+    final Set<Long> existing = existingImpl(this, ids);
+    return ids.stream().allMatch(id -> (id == null) || existing.contains(id));
+  }
+
+  /**
+   * Gets the IDs of the existing entities among the specified IDs.
+   *
+   * <p>The IDs are queried with the statements of
+   * {@link GettableMapper#existing(Collection)}, each of which contains at
+   * most {@link #getBatchSize()} distinct IDs.</p>
+   *
+   * @param ids
+   *     The collection of the specified IDs. The duplicated IDs and the
+   *     {@code null} values are ignored.
+   * @return
+   *     The set of IDs of the existing entities among the specified IDs, in
+   *     the order of their first occurrences in the specified collection.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @NotNull
+  default Set<Long> existing(final Collection<Long> ids)
+      throws DataAccessException {
+    return existingImpl(this, ids);
+  }
+
+  /**
+   * Gets the existing entities with the specified IDs.
+   *
+   * <p>The entities are queried with the statements of
+   * {@link GettableMapper#getAll(Collection)}, each of which contains at most
+   * {@link #getBatchSize()} distinct IDs. Unlike {@link #get(Long)}, this
+   * function does not throw a {@link DataNotExistException} for the IDs with
+   * no corresponding entities; instead those IDs are simply absent from the
+   * returned map.</p>
+   *
+   * @param ids
+   *     The collection of the IDs of the specified entities. The duplicated
+   *     IDs and the {@code null} values are ignored.
+   * @return
+   *     The map from the IDs to the corresponding existing entities, in the
+   *     order of the first occurrences of the IDs in the specified collection.
+   * @throws DataAccessException
+   *     If other data access errors occur.
+   */
+  @NotNull
+  default Map<Long, T> getAll(final Collection<Long> ids)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.GET_ALL, () -> getAllImpl(this, ids),
+        Map::size);
   }
 }
@@ -9,6 +9,8 @@
 package ltd.qubit.commons.dao;
 
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import javax.annotation.Nullable;
 
@@ -16,12 +18,28 @@ import jakarta.validation.constraints.NotNull;
 
 import org.springframework.dao.DataAccessException;
 
+import ltd.qubit.commons.annotation.NoAutoTest;
+import ltd.qubit.commons.dao.cache.QueryCache;
 import ltd.qubit.commons.dao.mapper.ListableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
+import ltd.qubit.commons.dao.metrics.SlowOperationDetector;
+import ltd.qubit.commons.dao.model.KeysetCursor;
+import ltd.qubit.commons.dao.model.KeysetPage;
 import ltd.qubit.commons.sql.Criterion;
 import ltd.qubit.commons.sql.SortRequest;
 
-import static ltd.qubit.commons.dao.DaoImplHelper.countImpl;
-import static ltd.qubit.commons.dao.DaoImplHelper.listImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.countCachedImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.firstCachedImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.getCachedCount;
+import static ltd.qubit.commons.dao.DaoCacheHelper.getCachedList;
+import static ltd.qubit.commons.dao.DaoCacheHelper.listCachedImpl;
+import static ltd.qubit.commons.dao.DaoListImplHelper.existsAnyImpl;
+import static ltd.qubit.commons.dao.DaoListImplHelper.forEachImpl;
+import static ltd.qubit.commons.dao.DaoListImplHelper.listAfterImpl;
+import static ltd.qubit.commons.dao.DaoListImplHelper.streamImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measureQuery;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.recordMetrics;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.startQueryMetrics;
 
 /**
  * This interface represents a DAO that can perform list query operations.
@@ -30,10 +48,20 @@ import static ltd.qubit.commons.dao.DaoImplHelper.listImpl;
  * <ul>
  * <li>{@link #count(Criterion)}: Get the number of entities that match the
  * specified criteria.</li>
+ * <li>{@link #approximateCount(Criterion)}: Get the estimated number of
+ * entities that match the specified criteria.</li>
  * <li>{@link #list(Criterion, SortRequest, Integer, Long)}：Lists the specified
  * subsequence of entities that match the specified criteria.</li>
  * <li>{@link #listFirst(Criterion, SortRequest)}: List the first matching
  * entity.</li>
+ * <li>{@link #existsAny(Criterion)}: Tests whether there is any entity that
+ * matches the specified criteria.</li>
+ * <li>{@link #listAfter(Criterion, SortRequest, String, int)}: Lists a page of
+ * matching entities following the specified cursor.</li>
+ * <li>{@link #stream(Criterion, SortRequest)}: Streams the matching entities
+ * from the database.</li>
+ * <li>{@link #forEach(Criterion, SortRequest, Consumer)}: Performs an action
+ * on each matching entity fetched from the database.</li>
  * </ul>
  *
  * @param <T>
@@ -45,6 +73,131 @@ public interface ListableDao<T> extends Dao<T> {
   @Override
   ListableMapper<T> getMapper();
 
+  /**
+   * Tests whether the mapper of the current DAO implements the dedicated
+   * statements {@link ListableMapper#first(Criterion, SortRequest)} and
+   * {@link ListableMapper#existsAny(Criterion)}.
+   *
+   * <p>If it does, {@link #listFirst(Criterion, SortRequest)} and
+   * {@link #existsAny(Criterion)} call these statements, which stop at the
+   * first matching row. Otherwise, they fall back to listing at most one
+   * entity and to counting the matching entities, respectively, so that the
+   * existing mappers need not define the new statements. The default
+   * implementation returns {@code false}; a DAO should override it to return
+   * {@code true} after both statements are added to its mapper, since calling
+   * a missing statement throws a {@code BindingException}.</p>
+   *
+   * @return
+   *     {@code true} if the mapper of the current DAO implements the dedicated
+   *     {@code first} and {@code existsAny} statements; {@code false}
+   *     otherwise.
+   */
+  @NoAutoTest
+  default boolean isFirstStatementSupported() {
+    return false;
+  }
+
+  /**
+   * Tests whether the mapper of the current DAO implements the dedicated
+   * statement {@link ListableMapper#approximateCount()}.
+   *
+   * <p>If it does, {@link #approximateCount(Criterion)} estimates the number
+   * of all entities with this statement. Otherwise, it falls back to
+   * {@link #count(Criterion)}. The default implementation returns
+   * {@code false}; a DAO should override it to return {@code true} after the
+   * statement is added to its mapper, since calling a missing statement throws
+   * a {@code BindingException}.</p>
+   *
+   * @return
+   *     {@code true} if the mapper of the current DAO implements the dedicated
+   *     {@code approximateCount} statement; {@code false} otherwise.
+   */
+  @NoAutoTest
+  default boolean isApproximateCountSupported() {
+    return false;
+  }
+
+  /**
+   * Gets the detector of the slow query operations of the current DAO.
+   *
+   * <p>If a detector is provided, the {@link #count(Criterion)},
+   * {@link #list(Criterion, SortRequest, Integer, Long)},
+   * {@link #listFirst(Criterion, SortRequest)},
+   * {@link #existsAny(Criterion)} and
+   * {@link #listAfter(Criterion, SortRequest, String, int)} operations taking
+   * longer than its threshold are reported to it, together with their
+   * filters, sort requests, limits and offsets. The default implementation
+   * returns {@code null}, which disables the detection.</p>
+   *
+   * @return
+   *     The detector of the slow query operations of the current DAO, or
+   *     {@code null} if the detection is disabled.
+   */
+  @NoAutoTest
+  @Nullable
+  default SlowOperationDetector getSlowOperationDetector() {
+    return null;
+  }
+
+  /**
+   * Gets the cache of the results of {@link #count(Criterion)}, keyed by the
+   * filters.
+   *
+   * <p>If a cache is provided, the counts are served from the cache until they
+   * expire, and the cache is invalidated as a whole by every write operation
+   * of the DAO, since the write may change the count of any filter. Note that
+   * the modifications made to the database without passing through the DAO
+   * are only visible after the cached counts expire. The filters must
+   * implement {@code equals()} and {@code hashCode()} by value; see
+   * {@link ltd.qubit.commons.dao.cache.QueryKey}. The counts served by the
+   * cache are recorded as {@link DaoOperationType#CACHED_COUNT} instead of
+   * {@link DaoOperationType#COUNT}.</p>
+   *
+   * <p><b>Note:</b> The returned cache must be the same instance throughout
+   * the lifetime of the DAO. The default implementation returns {@code null},
+   * which disables the caching.</p>
+   *
+   * @return
+   *     The cache of the counts, or {@code null} if the caching is disabled.
+   */
+  @NoAutoTest
+  @Nullable
+  default QueryCache<Long> getCountCache() {
+    return null;
+  }
+
+  /**
+   * Gets the cache of the results of
+   * {@link #list(Criterion, SortRequest, Integer, Long)} and
+   * {@link #listFirst(Criterion, SortRequest)}, keyed by the filters, sort
+   * requests, limits and offsets.
+   *
+   * <p>If a cache is provided, the lists are served from the cache until they
+   * expire, and the cache is invalidated as a whole by every write operation
+   * of the DAO. The cached lists are unmodifiable and shared by all callers,
+   * so the callers must not modify the listed entities either. The cache
+   * should weigh a list by its size, e.g.,
+   * {@code new QueryCache<>(10000, Duration.ofMinutes(1), List::size)}, so
+   * that its memory is bounded by the total number of cached entities. The
+   * filters and sort requests must implement {@code equals()} and
+   * {@code hashCode()} by value; see
+   * {@link ltd.qubit.commons.dao.cache.QueryKey}. The lists served by the
+   * cache are recorded as {@link DaoOperationType#CACHED_LIST} instead of
+   * {@link DaoOperationType#LIST}.</p>
+   *
+   * <p><b>Note:</b> The returned cache must be the same instance throughout
+   * the lifetime of the DAO. The default implementation returns {@code null},
+   * which disables the caching.</p>
+   *
+   * @return
+   *     The cache of the lists, or {@code null} if the caching is disabled.
+   */
+  @NoAutoTest
+  @Nullable
+  default QueryCache<List<T>> getListCache() {
+    return null;
+  }
+
   /**
    * Get the number of entities that match the specified criteria.
    *
@@ -58,7 +211,48 @@ public interface ListableDao<T> extends Dao<T> {
    */
   default long count(@Nullable final Criterion<T> filter)
       throws DataAccessException {
-    return countImpl(this, filter);
+    final long start = startQueryMetrics(this);
+    // the cache hits are recorded apart, so as not to skew the query latency
+    final Long cached = getCachedCount(this, filter);
+    if (cached != null) {
+      recordMetrics(this, DaoOperationType.CACHED_COUNT, start, cached);
+      return cached;
+    }
+    return measureQuery(this, DaoOperationType.COUNT, start,
+        () -> countCachedImpl(this, filter), Long::longValue, filter, null,
+        null, null);
+  }
+
+  /**
+   * Get the estimated number of entities that match the specified criteria.
+   *
+   * <p>If the filter is {@code null} and
+   * {@link #isApproximateCountSupported()} returns {@code true}, the number of
+   * all entities is estimated from the statistics of the table maintained by
+   * the database, by {@link ListableMapper#approximateCount()}, which is much
+   * cheaper than counting the rows of a large table but may be inaccurate, and
+   * is recorded as a {@link DaoOperationType#APPROXIMATE_COUNT} operation.
+   * Otherwise, or if the statistics are not available, the exact number is
+   * returned by {@link #count(Criterion)}.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @return
+   *     The estimated number of all entities matching the filtering criteria.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  default long approximateCount(@Nullable final Criterion<T> filter)
+      throws DataAccessException {
+    if ((filter != null) || !isApproximateCountSupported()) {
+      return count(filter);
+    }
+    final long start = startQueryMetrics(this);
+    final Long result = measureQuery(this, DaoOperationType.APPROXIMATE_COUNT,
+        start, () -> getMapper().approximateCount(),
+        (r) -> (r == null ? 0 : r), null, null, null, null);
+    return (result == null ? count(null) : result);
   }
 
   /**
@@ -89,7 +283,16 @@ public interface ListableDao<T> extends Dao<T> {
   default List<T> list(@Nullable final Criterion<T> filter,
       @Nullable final SortRequest<T> sortRequest, @Nullable final Integer limit,
       @Nullable final Long offset) throws DataAccessException {
-    return listImpl(this, filter, sortRequest, limit, offset);
+    final long start = startQueryMetrics(this);
+    final List<T> cached =
+        getCachedList(this, filter, sortRequest, limit, offset);
+    if (cached != null) {
+      recordMetrics(this, DaoOperationType.CACHED_LIST, start, cached.size());
+      return cached;
+    }
+    return measureQuery(this, DaoOperationType.LIST, start,
+        () -> listCachedImpl(this, filter, sortRequest, limit, offset),
+        List::size, filter, sortRequest, limit, offset);
   }
 
   /**
@@ -111,11 +314,154 @@ public interface ListableDao<T> extends Dao<T> {
   @Nullable
   default T listFirst(@Nullable final Criterion<T> filter,
       @Nullable final SortRequest<T> sortRequest) throws DataAccessException {
-    final List<T> list = listImpl(this, filter, sortRequest, 1, 0L);
-    if (list.isEmpty()) {
-      return null;
-    } else {
-      return list.get(0);
+    final long start = startQueryMetrics(this);
+    final List<T> cached = getCachedList(this, filter, sortRequest, 1, 0L);
+    if (cached != null) {
+      recordMetrics(this, DaoOperationType.CACHED_LIST, start, cached.size());
+      return (cached.isEmpty() ? null : cached.get(0));
     }
+    return measureQuery(this, DaoOperationType.LIST, start,
+        () -> firstCachedImpl(this, filter, sortRequest),
+        (r) -> (r == null ? 0 : 1), filter, sortRequest, 1, 0L);
+  }
+
+  /**
+   * Tests whether there is any entity that matches the specified criteria.
+   *
+   * <p>This function is cheaper than testing {@code count(filter) > 0}, since
+   * the database stops at the first matching row instead of counting all the
+   * matching rows.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @return
+   *     {@code true} if there is at least one entity matching the criteria;
+   *     {@code false} otherwise.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  default boolean existsAny(@Nullable final Criterion<T> filter)
+      throws DataAccessException {
+    final long start = startQueryMetrics(this);
+    return measureQuery(this, DaoOperationType.EXIST, start,
+        () -> existsAnyImpl(this, filter), (r) -> (r ? 1 : 0), filter, null, 1,
+        null);
+  }
+
+  /**
+   * Lists a page of entities that match the specified criteria and follow the
+   * specified cursor.
+   *
+   * <p>Unlike {@link #list(Criterion, SortRequest, Integer, Long)}, this
+   * function seeks the position of the page with the sort key and the ID of
+   * the last entity of the previous page, instead of skipping the previous
+   * entities with an {@code OFFSET} clause, so the cost of fetching a page does
+   * not grow with its depth. The entities are sorted by the field of the sort
+   * request and then by the ID.</p>
+   *
+   * <p>To scan all the matching entities, call this function with a
+   * {@code null} cursor first, and then call it repeatedly with the cursor of
+   * the returned page until the returned page has no next page. The same
+   * filter and sort request must be used in all calls.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the entities are sorted by their IDs. The sorting field must not be
+   *     nullable, since a {@code null} value cannot be compared in the seek
+   *     predicate; a page ending with a {@code null} value fails with an
+   *     {@link IllegalArgumentException} instead of silently ending the
+   *     scan.
+   * @param cursor
+   *     The opaque cursor returned by {@link KeysetPage#getNextCursor()} of the
+   *     previous page. A {@code null} value indicates the first page.
+   * @param limit
+   *     Specifies the maximum number of entities in the page, which must be
+   *     positive and less than {@link Integer#MAX_VALUE}.
+   * @return
+   *     The page of eligible entities following the specified cursor, sorted
+   *     by the specified sorting order.
+   * @throws IllegalArgumentException
+   *     If the limit is out of range, or the cursor is invalid or was created
+   *     for another sorting field or sorting order, or the last entity of the
+   *     page has a {@code null} value of the sorting field.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see KeysetCursor
+   */
+  @NotNull
+  default KeysetPage<T> listAfter(@Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest, @Nullable final String cursor,
+      final int limit) throws DataAccessException {
+    final long start = startQueryMetrics(this);
+    return measureQuery(this, DaoOperationType.LIST, start,
+        () -> listAfterImpl(this, filter, sortRequest, cursor, limit),
+        (r) -> r.getContent().size(), filter, sortRequest, limit, null);
+  }
+
+  /**
+   * Streams the entities that match the specified criteria from the database.
+   *
+   * <p>The entities are fetched lazily through the cursor opened by
+   * {@link ListableMapper#stream(Criterion, SortRequest)}, so the memory used
+   * does not grow with the number of matching entities. The returned stream
+   * holds the underlying cursor and must be closed after use, preferably with
+   * a try-with-resources statement.</p>
+   *
+   * <p><b>Note:</b> The returned stream can only be consumed while the
+   * underlying MyBatis session is still open, so this function should be
+   * called within a transaction, and the stream should be consumed and closed
+   * before the transaction ends. Use
+   * {@link #forEach(Criterion, SortRequest, Consumer)} if there is no
+   * transaction.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @return
+   *     The sequential stream of eligible entities, sorted by the specified
+   *     sorting order, which closes the underlying cursor when it is closed.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @NotNull
+  default Stream<T> stream(@Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest) throws DataAccessException {
+    return streamImpl(this, filter, sortRequest);
+  }
+
+  /**
+   * Performs an action on each entity that matches the specified criteria.
+   *
+   * <p>The entities are fetched lazily by
+   * {@link ListableMapper#forEach(Criterion, SortRequest,
+   * org.apache.ibatis.session.ResultHandler)} and passed to the action one by
+   * one, so the memory used does not grow with the number of matching
+   * entities. The action should not keep references to the entities.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @param action
+   *     The action performed on each eligible entity, in the specified sorting
+   *     order.
+   * @return
+   *     The number of entities passed to the action.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  default long forEach(@Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      final Consumer<? super T> action) throws DataAccessException {
+    return forEachImpl(this, filter, sortRequest, action);
   }
 }
@@ -9,11 +9,16 @@
 package ltd.qubit.commons.dao;
 
 import java.time.Instant;
+import java.util.Collection;
+
+import javax.annotation.Nullable;
 
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.annotation.Unmodified;
+import ltd.qubit.commons.dao.error.UpdateConflictException;
 import ltd.qubit.commons.dao.mapper.UpdatableMapper;
+import ltd.qubit.commons.dao.metrics.DaoOperationType;
 import ltd.qubit.commons.error.DataNotExistException;
 import ltd.qubit.commons.error.DuplicateKeyException;
 import ltd.qubit.commons.error.FieldTooLongException;
@@ -23,7 +28,12 @@ import ltd.qubit.commons.error.InvalidFieldFormatException;
 import ltd.qubit.commons.error.NullFieldException;
 import ltd.qubit.commons.model.Identifiable;
 
+import static ltd.qubit.commons.dao.DaoBatchImplHelper.updateAllImpl;
+import static ltd.qubit.commons.dao.DaoCacheHelper.invalidateCache;
 import static ltd.qubit.commons.dao.DaoImplHelper.updateImpl;
+import static ltd.qubit.commons.dao.DaoMetricsHelper.measure;
+import static ltd.qubit.commons.dao.DaoUpdateImplHelper.updateChangedImpl;
+import static ltd.qubit.commons.dao.DaoUpdateImplHelper.updateIfUnmodifiedImpl;
 
 /**
  * This interface represents a DAO that implements the updating operation.
@@ -31,6 +41,12 @@ import static ltd.qubit.commons.dao.DaoImplHelper.updateImpl;
  * <p>This interface implements the following DAO operations:</p>
  * <ul>
  * <li>{@link #update(T)}: Updates an existing entity.</li>
+ * <li>{@link #updateAll(Collection)}: Updates a collection of existing
+ * entities in batches.</li>
+ * <li>{@link #updateChanged(T, T)}: Updates the changed fields of an existing
+ * entity.</li>
+ * <li>{@link #updateIfUnmodified(T)}: Updates an existing entity if it has not
+ * been modified since it was read.</li>
  * </ul>
  *
  * @param <T>
@@ -78,6 +94,194 @@ public interface UpdatableDao<T extends Identifiable> extends Dao<T> {
   @Unmodified({"id", "code", "entity", "app", "owner", "username",
       "password", "visible", "enabled", "state", "createTime", "deleteTime"})
   default Instant update(final T obj) throws DataAccessException {
-    return updateImpl(this, obj);
+    return measure(this, DaoOperationType.UPDATE, () -> updateImpl(this, obj),
+        (r) -> 1,
+        () -> invalidateCache(this, (obj == null ? null : obj.getId())));
+  }
+
+  /**
+   * Updates a collection of existing entities in batches.
+   *
+   * <p>The entities are updated by the same statement as
+   * {@link #update(Identifiable)}, so the same fields are left unmodified.
+   * The statements are executed by the Mapper returned by
+   * {@link #getBatchMapper()}, in chunks of at most {@link #getBatchSize()}
+   * entities, and each chunk is flushed to the database in a single
+   * round-trip. The modification time of every entity is set to the same
+   * timestamp.</p>
+   *
+   * <p>Unlike {@link #update(Identifiable)}, this function does not throw a
+   * {@link DataNotExistException} for the entities which do not exist;
+   * instead the numbers of rows updated by those entities are 0 in the
+   * returned array.</p>
+   *
+   * <p><b>Note: </b>The chunks already flushed to the database are not rolled
+   * back if a later chunk fails, unless this operation is executed in a
+   * transaction.</p>
+   *
+   * @param list
+   *     The collection of the new data of the existing entities to be updated,
+   *     identified by their IDs.
+   * @return
+   *     An array of the numbers of rows updated by each entity, in the order
+   *     of the entities in the specified collection. A 0 indicates that the
+   *     entity does not exist or has been marked as deleted. If the JDBC driver
+   *     does not report the number of rows affected by a statement, the number
+   *     of that entity is {@link #UNKNOWN_ROW_COUNT}, which neither confirms
+   *     nor denies its update.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of an entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of an entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of an entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of an entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of an entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Unmodified({"id", "code", "entity", "app", "owner", "username",
+      "password", "visible", "enabled", "state", "createTime", "deleteTime"})
+  default long[] updateAll(final Collection<T> list)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.UPDATE_ALL,
+        () -> updateAllImpl(this, list), DaoMetricsHelper::sum,
+        () -> invalidateCache(this, list));
+  }
+
+  /**
+   * Updates the fields of an existing entity which were changed since a
+   * snapshot of the entity.
+   *
+   * <p>The new data of the entity is compared with the snapshot, and only the
+   * changed fields are sent to the database by
+   * {@link UpdatableMapper#updatePartial(Identifiable, java.util.Set)}, which
+   * reduces the size of the binary logs, the replication traffic and the
+   * maintenance of the unchanged indexes. The snapshot is typically a copy of
+   * the entity taken right after it was got from the DAO and before it was
+   * modified. The fields which are never updated by
+   * {@link #update(Identifiable)} are ignored, and if no other field was
+   * changed, the entity is not updated at all.</p>
+   *
+   * @param original
+   *     The snapshot of the entity to be updated, which must be of the same
+   *     class and have the same ID as the new data.
+   * @param obj
+   *     The new data of the existing entity to be updated, identified by its
+   *     ID.
+   * @return
+   *     The timestamp when the entity was modified, or {@code null} if no field
+   *     was changed and the entity was not updated.
+   * @throws IllegalArgumentException
+   *     If the snapshot is of another class or has another ID.
+   * @throws DataNotExistException
+   *     If the specified entity does not exist.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of the entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of the entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of the entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of the entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of the entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Unmodified({"id", "code", "entity", "app", "owner", "username",
+      "password", "visible", "enabled", "state", "createTime", "deleteTime"})
+  @Nullable
+  default Instant updateChanged(final T original, final T obj)
+      throws DataAccessException {
+    return measure(this, DaoOperationType.UPDATE,
+        () -> updateChangedImpl(this, original, obj),
+        (r) -> (r == null ? 0 : 1),
+        () -> invalidateCache(this, (obj == null ? null : obj.getId())));
+  }
+
+  /**
+   * Updates an existing entity if it has not been modified by another writer
+   * since it was read.
+   *
+   * <p>The modification time of the entity is used as its version: the
+   * entity is updated by
+   * {@link UpdatableMapper#updateIfUnmodified(Identifiable, Instant)} only if
+   * its modification time in the database is still the one of the specified
+   * entity, and a new modification time is set in the same statement. This
+   * avoids locking the row between reading and updating it, e.g., by
+   * {@code SELECT ... FOR UPDATE}. The column of the modification time should
+   * have a fractional precision of at least milliseconds.</p>
+   *
+   * <p>A conflicting update fails with an {@link UpdateConflictException},
+   * and the caller could re-read the entity and try again, e.g., by
+   * {@link DaoUpdateImplHelper#updateWithRetry}.</p>
+   *
+   * @param obj
+   *     The new data of the existing entity to be updated, identified by its
+   *     ID, which must implement the {@code Modifiable} interface and whose
+   *     modification time must be the one when it was read.
+   * @return
+   *     The new modification time of the entity, which is also set to the
+   *     specified entity.
+   * @throws IllegalArgumentException
+   *     If the entity has no modification time.
+   * @throws UpdateConflictException
+   *     If the entity has been modified since it was read.
+   * @throws DataNotExistException
+   *     If the specified entity does not exist, which could only be
+   *     distinguished from a conflict if this DAO is also a
+   *     {@link GettableDao}.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of the entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of the entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of the entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of the entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of the entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  @Unmodified({"id", "code", "entity", "app", "owner", "username",
+      "password", "visible", "enabled", "state", "createTime", "deleteTime"})
+  default Instant updateIfUnmodified(final T obj) throws DataAccessException {
+    return measure(this, DaoOperationType.UPDATE,
+        () -> updateIfUnmodifiedImpl(this, obj), (r) -> 1,
+        () -> invalidateCache(this, (obj == null ? null : obj.getId())));
   }
 }
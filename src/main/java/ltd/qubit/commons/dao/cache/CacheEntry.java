@@ -0,0 +1,91 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.cache;
+
+import javax.annotation.Nullable;
+
+/**
+ * An entry found in an {@link EntityCache}.
+ *
+ * <p>An entry either holds a cached entity, or records that there is no
+ * entity with the ID of the entry in the database, i.e., a negative entry.</p>
+ *
+ * @param <T>
+ *     The type of cached entities.
+ * @author Haixing Hu
+ */
+public final class CacheEntry<T> {
+
+  private static final CacheEntry<?> MISSING = new CacheEntry<>(null);
+
+  @Nullable
+  private final T entity;
+
+  private CacheEntry(@Nullable final T entity) {
+    this.entity = entity;
+  }
+
+  /**
+   * Creates an entry holding a cached entity.
+   *
+   * @param entity
+   *     The cached entity.
+   * @param <T>
+   *     The type of cached entities.
+   * @return
+   *     The entry holding the specified entity.
+   */
+  public static <T> CacheEntry<T> of(final T entity) {
+    if (entity == null) {
+      throw new NullPointerException("entity");
+    }
+    return new CacheEntry<>(entity);
+  }
+
+  /**
+   * Gets the negative entry recording that there is no entity with the ID.
+   *
+   * @param <T>
+   *     The type of cached entities.
+   * @return
+   *     The negative entry.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> CacheEntry<T> missing() {
+    return (CacheEntry<T>) MISSING;
+  }
+
+  /**
+   * Gets the cached entity.
+   *
+   * @return
+   *     The cached entity, or {@code null} if this is a negative entry.
+   */
+  @Nullable
+  public T getEntity() {
+    return entity;
+  }
+
+  /**
+   * Tests whether this is a negative entry.
+   *
+   * @return
+   *     {@code true} if this entry records that there is no entity with the
+   *     ID; {@code false} otherwise.
+   */
+  public boolean isMissing() {
+    return entity == null;
+  }
+
+  @Override
+  public String toString() {
+    return (entity == null ? "CacheEntry{missing}"
+                           : "CacheEntry{entity=" + entity + "}");
+  }
+}
@@ -0,0 +1,83 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.cache;
+
+import javax.annotation.Nullable;
+
+/**
+ * The interface of the caches of entities indexed by their IDs, which is used
+ * by the DAOs to serve the read operations without accessing the database.
+ *
+ * <p>A loader of the cache must get the version of the ID by
+ * {@link #getVersion(Long)} <b>before</b> querying the database, and pass it to
+ * {@link #put(Long, Object, long)} after the query. If the ID is invalidated in
+ * between, the version changes and the loaded entity is discarded, so that a
+ * concurrent write is never overwritten by a stale read.</p>
+ *
+ * <p>The implementations must be thread-safe. This interface is the extension
+ * point for plugging other cache libraries into the DAOs.</p>
+ *
+ * @param <T>
+ *     The type of cached entities.
+ * @author Haixing Hu
+ * @see LruEntityCache
+ */
+public interface EntityCache<T> {
+
+  /**
+   * Gets the entry of the specified ID.
+   *
+   * @param id
+   *     The ID of the specified entity.
+   * @return
+   *     The entry of the specified ID, or {@code null} if the ID is not cached
+   *     or its entry has expired.
+   */
+  @Nullable
+  CacheEntry<T> get(Long id);
+
+  /**
+   * Gets the current version of the specified ID.
+   *
+   * @param id
+   *     The ID of the specified entity.
+   * @return
+   *     The current version of the specified ID, which changes whenever the ID
+   *     is invalidated.
+   */
+  long getVersion(Long id);
+
+  /**
+   * Caches the entity loaded from the database for the specified ID.
+   *
+   * @param id
+   *     The ID of the loaded entity.
+   * @param entity
+   *     The loaded entity, or {@code null} if there is no entity with the
+   *     specified ID in the database.
+   * @param version
+   *     The version of the ID got by {@link #getVersion(Long)} before loading
+   *     the entity. If the current version of the ID is different, the loaded
+   *     entity is discarded.
+   */
+  void put(Long id, @Nullable T entity, long version);
+
+  /**
+   * Removes the entry of the specified ID from this cache.
+   *
+   * @param id
+   *     The ID of the specified entity.
+   */
+  void invalidate(Long id);
+
+  /**
+   * Removes all entries from this cache.
+   */
+  void invalidateAll();
+}
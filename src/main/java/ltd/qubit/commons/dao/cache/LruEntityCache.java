@@ -0,0 +1,238 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.cache;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+import javax.annotation.Nullable;
+
+/**
+ * A size-bounded {@link EntityCache} with the LRU eviction policy and the
+ * time-to-live expiration.
+ *
+ * <p>The entries are spread over several segments by their IDs, each of which
+ * is an independent LRU cache guarded by its own lock, so the accesses to the
+ * IDs in different segments never contend. The maximum size of the cache is
+ * divided evenly among the segments.</p>
+ *
+ * <p>Since the entities are usually mutable, a copier may be specified to copy
+ * the entities returned by this cache, so that the modifications made by a
+ * caller do not affect the cached entities. Without a copier, the callers
+ * must not modify the entities got from the DAOs using this cache.</p>
+ *
+ * @param <T>
+ *     The type of cached entities.
+ * @author Haixing Hu
+ */
+public class LruEntityCache<T> implements EntityCache<T> {
+
+  /**
+   * The default number of segments.
+   */
+  public static final int DEFAULT_SEGMENTS = 16;
+
+  private final Segment<T>[] segments;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  @Nullable
+  private final UnaryOperator<T> copier;
+
+  /**
+   * Creates a new {@code LruEntityCache}.
+   *
+   * @param maxSize
+   *     The maximum number of entries in the cache.
+   * @param ttl
+   *     The time-to-live of the entries holding entities.
+   * @param negativeTtl
+   *     The time-to-live of the negative entries. A zero duration disables the
+   *     negative caching.
+   */
+  public LruEntityCache(final int maxSize, final Duration ttl,
+      final Duration negativeTtl) {
+    this(maxSize, ttl, negativeTtl, null);
+  }
+
+  /**
+   * Creates a new {@code LruEntityCache}.
+   *
+   * @param maxSize
+   *     The maximum number of entries in the cache.
+   * @param ttl
+   *     The time-to-live of the entries holding entities.
+   * @param negativeTtl
+   *     The time-to-live of the negative entries. A zero duration disables the
+   *     negative caching.
+   * @param copier
+   *     The function used to copy the entities returned by the cache, or
+   *     {@code null} if the cached entities are returned directly.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public LruEntityCache(final int maxSize, final Duration ttl,
+      final Duration negativeTtl, @Nullable final UnaryOperator<T> copier) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be positive: "
+          + maxSize);
+    }
+    if (ttl.isNegative() || ttl.isZero() || negativeTtl.isNegative()) {
+      throw new IllegalArgumentException("Invalid time-to-live: " + ttl
+          + ", " + negativeTtl);
+    }
+    final int count = Math.min(DEFAULT_SEGMENTS,
+        Integer.highestOneBit(maxSize));
+    final int capacity = (maxSize + count - 1) / count;
+    this.segments = new Segment[count];
+    for (int i = 0; i < count; ++i) {
+      this.segments[i] = new Segment<>(capacity);
+    }
+    this.ttlNanos = ttl.toNanos();
+    this.negativeTtlNanos = negativeTtl.toNanos();
+    this.copier = copier;
+  }
+
+  @Override
+  @Nullable
+  public CacheEntry<T> get(final Long id) {
+    final CacheEntry<T> entry = segmentOf(id).get(id, System.nanoTime());
+    if ((entry == null) || entry.isMissing() || (copier == null)) {
+      return entry;
+    } else {
+      return CacheEntry.of(copier.apply(entry.getEntity()));
+    }
+  }
+
+  @Override
+  public long getVersion(final Long id) {
+    return segmentOf(id).getVersion();
+  }
+
+  @Override
+  public void put(final Long id, @Nullable final T entity, final long version) {
+    if ((entity == null) && (negativeTtlNanos == 0)) {
+      return;
+    }
+    final CacheEntry<T> entry;
+    final long ttl;
+    if (entity == null) {
+      entry = CacheEntry.missing();
+      ttl = negativeTtlNanos;
+    } else {
+      entry = CacheEntry.of(copier == null ? entity : copier.apply(entity));
+      ttl = ttlNanos;
+    }
+    segmentOf(id).put(id, entry, System.nanoTime() + ttl, version);
+  }
+
+  @Override
+  public void invalidate(final Long id) {
+    segmentOf(id).invalidate(id);
+  }
+
+  @Override
+  public void invalidateAll() {
+    for (final Segment<T> segment : segments) {
+      segment.invalidateAll();
+    }
+  }
+
+  private Segment<T> segmentOf(final Long id) {
+    final int h = id.hashCode();
+    return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+  }
+
+  private static final class Node<T> {
+    final CacheEntry<T> entry;
+    final long expireAt;
+
+    Node(final CacheEntry<T> entry, final long expireAt) {
+      this.entry = entry;
+      this.expireAt = expireAt;
+    }
+  }
+
+  private static final class Segment<T> {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<Long, Node<T>> map;
+    private long version;
+
+    Segment(final int capacity) {
+      this.map = new LinkedHashMap<>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Long, Node<T>> e) {
+          return size() > capacity;
+        }
+      };
+    }
+
+    @Nullable
+    CacheEntry<T> get(final Long id, final long now) {
+      lock.lock();
+      try {
+        final Node<T> node = map.get(id);
+        if (node == null) {
+          return null;
+        } else if (node.expireAt - now <= 0) {
+          map.remove(id);
+          return null;
+        } else {
+          return node.entry;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    long getVersion() {
+      lock.lock();
+      try {
+        return version;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void put(final Long id, final CacheEntry<T> entry, final long expireAt,
+        final long expectedVersion) {
+      lock.lock();
+      try {
+        if (version == expectedVersion) {
+          map.put(id, new Node<>(entry, expireAt));
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void invalidate(final Long id) {
+      lock.lock();
+      try {
+        ++version;
+        map.remove(id);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    void invalidateAll() {
+      lock.lock();
+      try {
+        ++version;
+        map.clear();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,230 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+
+/**
+ * A bounded cache of the results of queries, with the LRU eviction policy and
+ * the time-to-live expiration.
+ *
+ * <p>Since a write operation may change the results of any query of its
+ * entity, the cache is always invalidated as a whole. The cache does not track
+ * which queries depend on which rows, which would cost more than it saves for
+ * the write-heavy entities; it is therefore suited to the entities read much
+ * more often than written, whose cached results survive long enough between
+ * the writes. A loader of the cache
+ * must get the generation of the cache by {@link #getGeneration()}
+ * <b>before</b> querying the database, and pass it to
+ * {@link #put(QueryKey, Object, long)} after the query. If the cache is
+ * invalidated in between, the generation changes and the loaded result is
+ * discarded, so that a concurrent write is never overwritten by a stale
+ * read.</p>
+ *
+ * <p>The cache is bounded by the total weight of its results, as computed by
+ * a weigher, e.g., the number of entities of a list; the least recently used
+ * results are evicted when the total weight exceeds the maximum weight.</p>
+ *
+ * @param <V>
+ *     The type of cached results.
+ * @author Haixing Hu
+ */
+public class QueryCache<V> {
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final LinkedHashMap<QueryKey, Node<V>> map =
+      new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxWeight;
+  private final long ttlNanos;
+  private final ToLongFunction<? super V> weigher;
+  private long weight;
+  private long generation;
+
+  /**
+   * Creates a new {@code QueryCache} in which every result weighs 1.
+   *
+   * @param maxSize
+   *     The maximum number of results in the cache.
+   * @param ttl
+   *     The time-to-live of the results.
+   */
+  public QueryCache(final long maxSize, final Duration ttl) {
+    this(maxSize, ttl, (v) -> 1L);
+  }
+
+  /**
+   * Creates a new {@code QueryCache}.
+   *
+   * @param maxWeight
+   *     The maximum total weight of the results in the cache.
+   * @param ttl
+   *     The time-to-live of the results.
+   * @param weigher
+   *     The function computing the weight of a result, which must be
+   *     non-negative.
+   */
+  public QueryCache(final long maxWeight, final Duration ttl,
+      final ToLongFunction<? super V> weigher) {
+    if (maxWeight <= 0) {
+      throw new IllegalArgumentException("The maximum weight must be "
+          + "positive: " + maxWeight);
+    }
+    if (ttl.isNegative() || ttl.isZero()) {
+      throw new IllegalArgumentException("Invalid time-to-live: " + ttl);
+    }
+    this.maxWeight = maxWeight;
+    this.ttlNanos = ttl.toNanos();
+    this.weigher = weigher;
+  }
+
+  /**
+   * Gets the cached result of a query.
+   *
+   * @param key
+   *     The key of the query.
+   * @return
+   *     The cached result of the query, or {@code null} if the query is not
+   *     cached or its result has expired.
+   */
+  @Nullable
+  public V get(final QueryKey key) {
+    final long now = System.nanoTime();
+    lock.lock();
+    try {
+      final Node<V> node = map.get(key);
+      if (node == null) {
+        return null;
+      } else if (node.expireAt - now <= 0) {
+        map.remove(key);
+        weight -= node.weight;
+        return null;
+      } else {
+        return node.value;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the current generation of the cache, which changes whenever the
+   * cache is invalidated.
+   *
+   * @return
+   *     The current generation of the cache.
+   */
+  public long getGeneration() {
+    lock.lock();
+    try {
+      return generation;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Caches the result of a query, unless the cache was invalidated since the
+   * specified generation.
+   *
+   * @param key
+   *     The key of the query.
+   * @param value
+   *     The result of the query.
+   * @param generation
+   *     The generation of the cache got before querying the database.
+   */
+  public void put(final QueryKey key, final V value, final long generation) {
+    final long w = weigher.applyAsLong(value);
+    if (w > maxWeight) {
+      return;
+    }
+    final Node<V> node = new Node<>(value, w, System.nanoTime() + ttlNanos);
+    lock.lock();
+    try {
+      if (this.generation != generation) {
+        return;
+      }
+      final Node<V> old = map.put(key, node);
+      if (old != null) {
+        weight -= old.weight;
+      }
+      weight += w;
+      final Iterator<Node<V>> iter = map.values().iterator();
+      while ((weight > maxWeight) && iter.hasNext()) {
+        weight -= iter.next().weight;
+        iter.remove();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes all the cached results, and changes the generation of the cache.
+   */
+  public void invalidateAll() {
+    lock.lock();
+    try {
+      ++generation;
+      map.clear();
+      weight = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of cached results, including the expired ones not yet
+   * removed.
+   *
+   * @return
+   *     The number of cached results.
+   */
+  public int size() {
+    lock.lock();
+    try {
+      return map.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the total weight of the cached results.
+   *
+   * @return
+   *     The total weight of the cached results.
+   */
+  public long getWeight() {
+    lock.lock();
+    try {
+      return weight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static final class Node<V> {
+    final V value;
+    final long weight;
+    final long expireAt;
+
+    Node(final V value, final long weight, final long expireAt) {
+      this.value = value;
+      this.weight = weight;
+      this.expireAt = expireAt;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.cache;
+
+import java.util.Arrays;
+
+/**
+ * The key of a query in a {@link QueryCache}, made of the arguments of the
+ * query.
+ *
+ * <p>Two keys are equal if their arguments are pairwise equal. The arguments,
+ * e.g., the filters and sort requests, must implement {@code equals()} and
+ * {@code hashCode()} by value, and must not be modified after the key is
+ * created.</p>
+ *
+ * <p><b>Note:</b> The key is not a canonical form of the query, e.g., its
+ * rendered SQL statement, which would cost a rendering on every lookup.
+ * Consequently, the equivalent filters written differently, e.g., with their
+ * conditions in another order, are cached separately; and the arguments
+ * implementing {@code equals()} by identity never hit the cache. An argument
+ * whose {@code equals()} is looser than its semantics would return the result
+ * of another query, and must not be used.</p>
+ *
+ * @author Haixing Hu
+ */
+public final class QueryKey {
+
+  private final Object[] arguments;
+  private final int hash;
+
+  private QueryKey(final Object[] arguments) {
+    this.arguments = arguments;
+    this.hash = Arrays.hashCode(arguments);
+  }
+
+  /**
+   * Creates the key of a query.
+   *
+   * @param arguments
+   *     The arguments of the query, which may be {@code null}.
+   * @return
+   *     The key of the query.
+   */
+  public static QueryKey of(final Object... arguments) {
+    return new QueryKey(arguments.clone());
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final QueryKey other = (QueryKey) o;
+    return (hash == other.hash) && Arrays.equals(arguments, other.arguments);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public String toString() {
+    return "QueryKey" + Arrays.toString(arguments);
+  }
+}
@@ -0,0 +1,886 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import ltd.qubit.commons.dao.AddableDao;
+import ltd.qubit.commons.dao.ClearableDao;
+import ltd.qubit.commons.dao.DeletableDao;
+import ltd.qubit.commons.dao.ErasableDao;
+import ltd.qubit.commons.dao.GettableDao;
+import ltd.qubit.commons.dao.ListableDao;
+import ltd.qubit.commons.dao.UpdatableDao;
+import ltd.qubit.commons.dao.model.ChunkedDeleteOptions;
+import ltd.qubit.commons.dao.model.ChunkedDeleteProgress;
+import ltd.qubit.commons.dao.model.KeysetPage;
+import ltd.qubit.commons.dao.model.UpsertResult;
+import ltd.qubit.commons.model.Deletable;
+import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.sql.Criterion;
+import ltd.qubit.commons.sql.SortRequest;
+
+/**
+ * Executes the operations of DAOs asynchronously on a dedicated executor.
+ *
+ * <p>Each function of this class submits the corresponding operation of a DAO
+ * to the executor, and returns a {@link CompletableFuture} completed with its
+ * result, or completed exceptionally with the exception thrown by the DAO. This
+ * allows a thread to fan out several independent queries in parallel, e.g.:</p>
+ * <pre><code>
+ * final CompletableFuture&lt;User&gt; user = executor.get(userDao, userId);
+ * final CompletableFuture&lt;Long&gt; count = executor.count(orderDao, filter);
+ * CompletableFuture.allOf(user, count).join();
+ * </code></pre>
+ *
+ * <p>Since every operation occupies a database connection while running, the
+ * concurrency of the executor should not exceed the size of the connection
+ * pool. The executors created by {@link #bounded(int)} use exactly the
+ * specified number of threads, and queue at most a fixed number of pending
+ * operations per thread; when the queue is full, the operation is rejected,
+ * and its future is completed exceptionally with a
+ * {@link RejectedExecutionException}. The operation is never executed by the
+ * calling thread, which would run it in the transaction of the caller and
+ * exceed the size of the pool.</p>
+ *
+ * <p>The operations of the DAOs not wrapped by this class, e.g., the
+ * operations of custom DAOs, could be submitted with {@link #submit(Supplier)},
+ * which applies the same bound of concurrency.</p>
+ *
+ * <p>The executors created by {@link #virtual(int)} run every operation on a
+ * new virtual thread, and bound the number of concurrent operations with a
+ * {@link DaoConcurrencyLimiter}. The DAOs, caches and loaders of this library
+ * never hold a monitor while accessing the database, so the virtual threads
+ * are not pinned to their carrier threads while waiting for the database; a
+ * load run could be checked with a {@link VirtualThreadPinningMonitor}.</p>
+ *
+ * <p><b>Note:</b> The operations are executed in the threads of the executor,
+ * so they do not participate in the transaction of the calling thread.</p>
+ *
+ * @author Haixing Hu
+ */
+public class AsyncDaoExecutor implements AutoCloseable {
+
+  /**
+   * The maximum number of pending operations queued per thread by the
+   * executors created by {@link #bounded(int)}.
+   */
+  public static final int QUEUE_SIZE_PER_THREAD = 64;
+
+  private final Executor executor;
+  @Nullable
+  private final ExecutorService ownedExecutor;
+  @Nullable
+  private final DaoConcurrencyLimiter limiter;
+
+  /**
+   * Creates a new {@code AsyncDaoExecutor} running on an external executor.
+   *
+   * <p>The specified executor is not shut down by {@link #close()}.</p>
+   *
+   * @param executor
+   *     The executor used to run the operations.
+   */
+  public AsyncDaoExecutor(final Executor executor) {
+    this(executor, null, null);
+  }
+
+  private AsyncDaoExecutor(final Executor executor,
+      @Nullable final ExecutorService ownedExecutor,
+      @Nullable final DaoConcurrencyLimiter limiter) {
+    this.executor = executor;
+    this.ownedExecutor = ownedExecutor;
+    this.limiter = limiter;
+  }
+
+  /**
+   * Creates an {@code AsyncDaoExecutor} running on a bounded pool of platform
+   * threads.
+   *
+   * @param poolSize
+   *     The number of threads, which should be the size of the database
+   *     connection pool.
+   * @return
+   *     The new {@code AsyncDaoExecutor}, which shuts down its pool when it is
+   *     closed.
+   */
+  public static AsyncDaoExecutor bounded(final int poolSize) {
+    if (poolSize <= 0) {
+      throw new IllegalArgumentException("The pool size must be positive: "
+          + poolSize);
+    }
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize,
+        0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(poolSize * QUEUE_SIZE_PER_THREAD),
+        new DaoThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+    return new AsyncDaoExecutor(pool, pool, null);
+  }
+
+  /**
+   * Creates an {@code AsyncDaoExecutor} running every operation on a new
+   * virtual thread.
+   *
+   * <p>The virtual threads are only available on JDK 21 or later.</p>
+   *
+   * @return
+   *     The new {@code AsyncDaoExecutor}, which shuts down its executor when it
+   *     is closed.
+   * @throws UnsupportedOperationException
+   *     If the virtual threads are not supported by the current JVM.
+   */
+  public static AsyncDaoExecutor virtual() {
+    final ExecutorService service = newVirtualThreadPerTaskExecutor();
+    return new AsyncDaoExecutor(service, service, null);
+  }
+
+  /**
+   * Creates an {@code AsyncDaoExecutor} running every operation on a new
+   * virtual thread, with a limited number of concurrent operations.
+   *
+   * <p>The virtual threads are cheap enough to be created for every operation,
+   * but the database connections are not, so the operations wait for a permit
+   * of a {@link DaoConcurrencyLimiter} before accessing the database. The
+   * waiting happens on the virtual threads, which release their carrier
+   * threads while parked. If the waiting times out or is interrupted, e.g., by
+   * {@link ExecutorService#shutdownNow()}, the future of the operation is
+   * completed exceptionally.</p>
+   *
+   * @param maxConcurrency
+   *     The maximum number of concurrent operations, which should be the size
+   *     of the database connection pool.
+   * @return
+   *     The new {@code AsyncDaoExecutor}, which shuts down its executor when it
+   *     is closed.
+   * @throws UnsupportedOperationException
+   *     If the virtual threads are not supported by the current JVM.
+   */
+  public static AsyncDaoExecutor virtual(final int maxConcurrency) {
+    final DaoConcurrencyLimiter limiter =
+        new DaoConcurrencyLimiter(maxConcurrency);
+    final ExecutorService service = newVirtualThreadPerTaskExecutor();
+    return new AsyncDaoExecutor(service, service, limiter);
+  }
+
+  /**
+   * Tests whether the current JVM supports the virtual threads.
+   *
+   * @return
+   *     {@code true} if the current JVM supports the virtual threads;
+   *     {@code false} otherwise.
+   */
+  public static boolean isVirtualThreadSupported() {
+    try {
+      Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return true;
+    } catch (final NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (final NoSuchMethodException e) {
+      throw new UnsupportedOperationException("The virtual threads require JDK "
+          + "21 or later.", e);
+    } catch (final IllegalAccessException | InvocationTargetException e) {
+      throw new UnsupportedOperationException("Failed to create the virtual "
+          + "thread executor.", e);
+    }
+  }
+
+  /**
+   * Gets the executor used to run the operations.
+   *
+   * <p><b>Note:</b> The tasks executed directly by the returned executor are
+   * not limited by the {@link DaoConcurrencyLimiter} of the executors created
+   * by {@link #virtual(int)}; use {@link #submit(Supplier)} instead.</p>
+   *
+   * @return
+   *     The executor used to run the operations.
+   */
+  public Executor getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Submits an arbitrary task accessing the database.
+   *
+   * @param task
+   *     The task to be executed.
+   * @param <R>
+   *     The type of the result of the task.
+   * @return
+   *     The future completed with the result of the task, or completed
+   *     exceptionally with a {@link RejectedExecutionException} if the
+   *     executor rejects the task.
+   */
+  public <R> CompletableFuture<R> submit(final Supplier<R> task) {
+    // the permit is acquired inside the task of the future, so that a failure
+    // to acquire it completes the future
+    final Supplier<R> limited = (limiter == null
+                                 ? task
+                                 : () -> limiter.call(task));
+    try {
+      return CompletableFuture.supplyAsync(limited, executor);
+    } catch (final RejectedExecutionException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private CompletableFuture<Void> run(final Runnable task) {
+    return submit(() -> {
+      task.run();
+      return null;
+    });
+  }
+
+  /**
+   * Asynchronously calls {@link AddableDao#add(Object)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The entity to be added.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<Instant> add(final AddableDao<T> dao,
+      final T obj) {
+    return submit(() -> dao.add(obj));
+  }
+
+  /**
+   * Asynchronously calls {@link AddableDao#addAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The entities to be added.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<long[]> addAll(final AddableDao<T> dao,
+      final Collection<T> list) {
+    return submit(() -> dao.addAll(list));
+  }
+
+  /**
+   * Asynchronously calls {@link AddableDao#addMulti(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The entities to be added.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<long[]> addMulti(final AddableDao<T> dao,
+      final Collection<T> list) {
+    return submit(() -> dao.addMulti(list));
+  }
+
+  /**
+   * Asynchronously calls {@link AddableDao#addOrUpdate(Object)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The entity to be added or updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<UpsertResult> addOrUpdate(
+      final AddableDao<T> dao, final T obj) {
+    return submit(() -> dao.addOrUpdate(obj));
+  }
+
+  /**
+   * Asynchronously calls {@link AddableDao#addOrUpdateAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The entities to be added or updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<List<UpsertResult>> addOrUpdateAll(
+      final AddableDao<T> dao, final Collection<T> list) {
+    return submit(() -> dao.addOrUpdateAll(list));
+  }
+
+  /**
+   * Asynchronously calls {@link GettableDao#exist(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The specified ID.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Boolean> exist(
+      final GettableDao<T> dao, final Long id) {
+    return submit(() -> dao.exist(id));
+  }
+
+  /**
+   * Asynchronously calls {@link GettableDao#get(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the specified entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<T> get(
+      final GettableDao<T> dao, final Long id) {
+    return submit(() -> dao.get(id));
+  }
+
+  /**
+   * Asynchronously calls {@link GettableDao#getOrNull(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the specified entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<T> getOrNull(
+      final GettableDao<T> dao, final Long id) {
+    return submit(() -> dao.getOrNull(id));
+  }
+
+  /**
+   * Asynchronously calls {@link GettableDao#existAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The specified IDs.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Boolean> existAll(
+      final GettableDao<T> dao, final Collection<Long> ids) {
+    return submit(() -> dao.existAll(ids));
+  }
+
+  /**
+   * Asynchronously calls {@link GettableDao#existing(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The specified IDs.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Set<Long>> existing(
+      final GettableDao<T> dao, final Collection<Long> ids) {
+    return submit(() -> dao.existing(ids));
+  }
+
+  /**
+   * Asynchronously calls {@link GettableDao#getAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The IDs of the specified entities.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Map<Long, T>> getAll(
+      final GettableDao<T> dao, final Collection<Long> ids) {
+    return submit(() -> dao.getAll(ids));
+  }
+
+  /**
+   * Asynchronously calls {@link ListableDao#count(Criterion)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<Long> count(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter) {
+    return submit(() -> dao.count(filter));
+  }
+
+  /**
+   * Asynchronously calls {@link ListableDao#approximateCount(Criterion)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<Long> approximateCount(
+      final ListableDao<T> dao, @Nullable final Criterion<T> filter) {
+    return submit(() -> dao.approximateCount(filter));
+  }
+
+  /**
+   * Asynchronously calls {@link ListableDao#existsAny(Criterion)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<Boolean> existsAny(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter) {
+    return submit(() -> dao.existsAny(filter));
+  }
+
+  /**
+   * Asynchronously calls
+   * {@link ListableDao#list(Criterion, SortRequest, Integer, Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities.
+   * @param sortRequest
+   *     The sorting request.
+   * @param limit
+   *     The maximum number of entities to be returned.
+   * @param offset
+   *     The index of the first entity to be returned.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<List<T>> list(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset) {
+    return submit(() -> dao.list(filter, sortRequest, limit, offset));
+  }
+
+  /**
+   * Asynchronously calls {@link ListableDao#listFirst(Criterion, SortRequest)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities.
+   * @param sortRequest
+   *     The sorting request.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<T> listFirst(final ListableDao<T> dao,
+      @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest) {
+    return submit(() -> dao.listFirst(filter, sortRequest));
+  }
+
+  /**
+   * Asynchronously calls
+   * {@link ListableDao#listAfter(Criterion, SortRequest, String, int)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter entities.
+   * @param sortRequest
+   *     The sorting request.
+   * @param cursor
+   *     The opaque cursor of the previous page.
+   * @param limit
+   *     The maximum number of entities in the page.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<KeysetPage<T>> listAfter(
+      final ListableDao<T> dao, @Nullable final Criterion<T> filter,
+      @Nullable final SortRequest<T> sortRequest,
+      @Nullable final String cursor, final int limit) {
+    return submit(() -> dao.listAfter(filter, sortRequest, cursor, limit));
+  }
+
+  /**
+   * Asynchronously calls {@link UpdatableDao#update(Identifiable)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The entity to be updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Instant> update(
+      final UpdatableDao<T> dao, final T obj) {
+    return submit(() -> dao.update(obj));
+  }
+
+  /**
+   * Asynchronously calls {@link UpdatableDao#updateAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param list
+   *     The entities to be updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<long[]> updateAll(
+      final UpdatableDao<T> dao, final Collection<T> list) {
+    return submit(() -> dao.updateAll(list));
+  }
+
+  /**
+   * Asynchronously calls
+   * {@link UpdatableDao#updateChanged(Identifiable, Identifiable)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param original
+   *     The original entity loaded from the database.
+   * @param obj
+   *     The entity to be updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Instant> updateChanged(
+      final UpdatableDao<T> dao, final T original, final T obj) {
+    return submit(() -> dao.updateChanged(original, obj));
+  }
+
+  /**
+   * Asynchronously calls {@link UpdatableDao#updateIfUnmodified(Identifiable)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param obj
+   *     The entity to be updated.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable> CompletableFuture<Instant>
+      updateIfUnmodified(final UpdatableDao<T> dao, final T obj) {
+    return submit(() -> dao.updateIfUnmodified(obj));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#existNonDeleted(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the specified entity.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Boolean>
+      existNonDeleted(final DeletableDao<T> dao, final Long id) {
+    return submit(() -> dao.existNonDeleted(id));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#delete(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the entity to be marked as deleted.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Instant>
+      delete(final DeletableDao<T> dao, final Long id) {
+    return submit(() -> dao.delete(id));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#deleteAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The IDs of the entities to be marked as deleted.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Long>
+      deleteAll(final DeletableDao<T> dao, final Collection<Long> ids) {
+    return submit(() -> dao.deleteAll(ids));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#deleteWhere(Criterion)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param filter
+   *     The criteria used to filter the entities to be marked as deleted.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Long>
+      deleteWhere(final DeletableDao<T> dao, final Criterion<T> filter) {
+    return submit(() -> dao.deleteWhere(filter));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#restore(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the entity to be restored.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed when the operation finishes.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Void>
+      restore(final DeletableDao<T> dao, final Long id) {
+    return run(() -> dao.restore(id));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#restoreAll(Collection)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param ids
+   *     The IDs of the entities to be restored.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Long>
+      restoreAll(final DeletableDao<T> dao, final Collection<Long> ids) {
+    return submit(() -> dao.restoreAll(ids));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#purge(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the entity to be purged.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed when the operation finishes.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Void>
+      purge(final DeletableDao<T> dao, final Long id) {
+    return run(() -> dao.purge(id));
+  }
+
+  /**
+   * Asynchronously calls {@link DeletableDao#purgeAll()}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable> CompletableFuture<Long>
+      purgeAll(final DeletableDao<T> dao) {
+    return submit(dao::purgeAll);
+  }
+
+  /**
+   * Asynchronously calls
+   * {@link DeletableDao#purgeAll(ChunkedDeleteOptions, ChunkedDeleteProgress)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null}
+   *     to start a new deletion.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T extends Identifiable & Deletable>
+      CompletableFuture<ChunkedDeleteProgress> purgeAll(
+      final DeletableDao<T> dao, final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed) {
+    return submit(() -> dao.purgeAll(options, resumed));
+  }
+
+  /**
+   * Asynchronously calls {@link ErasableDao#erase(Long)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param id
+   *     The ID of the entity to be erased.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed when the operation finishes.
+   */
+  public <T extends Identifiable> CompletableFuture<Void> erase(
+      final ErasableDao<T> dao, final Long id) {
+    return run(() -> dao.erase(id));
+  }
+
+  /**
+   * Asynchronously calls {@link ClearableDao#clear()}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<Long> clear(final ClearableDao<T> dao) {
+    return submit(dao::clear);
+  }
+
+  /**
+   * Asynchronously calls
+   * {@link ClearableDao#clear(ChunkedDeleteOptions, ChunkedDeleteProgress)}.
+   *
+   * @param dao
+   *     The DAO.
+   * @param options
+   *     The options of the chunked deletion.
+   * @param resumed
+   *     The progress of a previous deletion to be resumed, or {@code null}
+   *     to start a new deletion.
+   * @param <T>
+   *     The type of entities.
+   * @return
+   *     The future completed with the result of the operation.
+   */
+  public <T> CompletableFuture<ChunkedDeleteProgress> clear(
+      final ClearableDao<T> dao, final ChunkedDeleteOptions options,
+      @Nullable final ChunkedDeleteProgress resumed) {
+    return submit(() -> dao.clear(options, resumed));
+  }
+
+  /**
+   * Shuts down the executor created by this object, if any, and waits for the
+   * running operations to finish.
+   */
+  @Override
+  public void close() {
+    if (ownedExecutor != null) {
+      ownedExecutor.shutdown();
+      try {
+        ownedExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (final InterruptedException e) {
+        ownedExecutor.shutdownNow();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static final class DaoThreadFactory implements ThreadFactory {
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final String prefix = "dao-async-" + POOL_COUNT.incrementAndGet()
+        + "-";
+
+    @Override
+    public Thread newThread(final Runnable r) {
+      final Thread thread = new Thread(r,
+          prefix + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
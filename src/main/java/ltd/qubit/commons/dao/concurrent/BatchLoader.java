@@ -0,0 +1,235 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.concurrent;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ltd.qubit.commons.dao.GettableDao;
+import ltd.qubit.commons.model.Identifiable;
+
+/**
+ * Combines the lookups of entities by their IDs from many threads into batched
+ * queries.
+ *
+ * <p>The IDs passed to {@link #load(Long)} are collected into a batch, which is
+ * dispatched when it contains the maximum number of IDs, when the maximum delay
+ * has elapsed since its first ID was added, or when {@link #dispatch()} is
+ * called, whichever comes first. A dispatched batch is loaded by a single call
+ * to {@link GettableDao#getAll(java.util.Collection)}, which issues
+ * {@code WHERE id IN (...)} queries, and the future of every caller is
+ * completed with its entity. The duplicated IDs in a batch share the same
+ * future.</p>
+ *
+ * <p>This is designed for the resolvers of GraphQL-like APIs, which resolve the
+ * fields of many objects independently and would otherwise issue one query per
+ * field.</p>
+ *
+ * @param <T>
+ *     The type of entities.
+ * @author Haixing Hu
+ */
+public class BatchLoader<T extends Identifiable> {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchLoader.class);
+
+  private final GettableDao<T> dao;
+  private final int maxBatchSize;
+  private final long maxDelayNanos;
+  private final ScheduledExecutorService scheduler;
+  private final Executor executor;
+  private final ReentrantLock lock = new ReentrantLock();
+  @Nullable
+  private Map<Long, CompletableFuture<T>> batch;
+
+  /**
+   * Creates a new {@code BatchLoader}, which loads the batches on the
+   * specified scheduler.
+   *
+   * @param dao
+   *     The DAO used to load the entities.
+   * @param maxBatchSize
+   *     The maximum number of distinct IDs in a batch.
+   * @param maxDelay
+   *     The maximum delay between adding the first ID to a batch and
+   *     dispatching the batch.
+   * @param scheduler
+   *     The scheduler used to dispatch the batches after the maximum delay and
+   *     to load the batches.
+   */
+  public BatchLoader(final GettableDao<T> dao, final int maxBatchSize,
+      final Duration maxDelay, final ScheduledExecutorService scheduler) {
+    this(dao, maxBatchSize, maxDelay, scheduler, scheduler);
+  }
+
+  /**
+   * Creates a new {@code BatchLoader}.
+   *
+   * @param dao
+   *     The DAO used to load the entities.
+   * @param maxBatchSize
+   *     The maximum number of distinct IDs in a batch.
+   * @param maxDelay
+   *     The maximum delay between adding the first ID to a batch and
+   *     dispatching the batch.
+   * @param scheduler
+   *     The scheduler used to dispatch the batches after the maximum delay.
+   * @param executor
+   *     The executor used to load the batches.
+   */
+  public BatchLoader(final GettableDao<T> dao, final int maxBatchSize,
+      final Duration maxDelay, final ScheduledExecutorService scheduler,
+      final Executor executor) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("The maximum batch size must be "
+          + "positive: " + maxBatchSize);
+    }
+    if (maxDelay.isNegative()) {
+      throw new IllegalArgumentException("The maximum delay must not be "
+          + "negative: " + maxDelay);
+    }
+    this.dao = dao;
+    this.maxBatchSize = maxBatchSize;
+    this.maxDelayNanos = maxDelay.toNanos();
+    this.scheduler = scheduler;
+    this.executor = executor;
+  }
+
+  /**
+   * Loads the entity with the specified ID in a batch.
+   *
+   * @param id
+   *     The ID of the entity to be loaded.
+   * @return
+   *     The future completed with the entity with the specified ID, or with
+   *     {@code null} if there is no such entity. If the batch fails, the future
+   *     is completed exceptionally with the exception thrown by the DAO. If
+   *     the scheduler rejects the delayed dispatch of a new batch, the batch is
+   *     dispatched immediately; if the executor rejects the loading of a
+   *     batch, the futures of the batch are completed exceptionally with the
+   *     {@link RejectedExecutionException}.
+   */
+  public CompletableFuture<T> load(final Long id) {
+    final Map<Long, CompletableFuture<T>> full;
+    final CompletableFuture<T> result;
+    lock.lock();
+    try {
+      final CompletableFuture<T> existing = (batch == null
+                                             ? null
+                                             : batch.get(id));
+      if (existing != null) {
+        return existing;
+      }
+      boolean scheduled = true;
+      if (batch == null) {
+        final Map<Long, CompletableFuture<T>> created = new LinkedHashMap<>();
+        batch = created;
+        if (maxBatchSize > 1) {
+          scheduled = schedule(created);
+        }
+      }
+      result = new CompletableFuture<>();
+      batch.put(id, result);
+      // a batch without a scheduled dispatch would never be loaded, so it is
+      // dispatched at once
+      if (scheduled && (batch.size() < maxBatchSize)) {
+        return result;
+      }
+      full = batch;
+      batch = null;
+    } finally {
+      lock.unlock();
+    }
+    submit(full);
+    return result;
+  }
+
+  /**
+   * Dispatches the current batch immediately, without waiting for the maximum
+   * delay.
+   */
+  public void dispatch() {
+    final Map<Long, CompletableFuture<T>> current;
+    lock.lock();
+    try {
+      current = batch;
+      batch = null;
+    } finally {
+      lock.unlock();
+    }
+    if (current != null) {
+      submit(current);
+    }
+  }
+
+  private boolean schedule(final Map<Long, CompletableFuture<T>> created) {
+    try {
+      scheduler.schedule(() -> dispatch(created), maxDelayNanos,
+          TimeUnit.NANOSECONDS);
+      return true;
+    } catch (final RejectedExecutionException e) {
+      LOGGER.warn("The scheduler rejected the delayed dispatch of a batch of "
+          + "{}, which is dispatched immediately: {}", dao.getEntityName(),
+          e.getMessage());
+      return false;
+    }
+  }
+
+  private void submit(final Map<Long, CompletableFuture<T>> futures) {
+    try {
+      executor.execute(() -> execute(futures));
+    } catch (final RejectedExecutionException e) {
+      for (final CompletableFuture<T> future : futures.values()) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  private void dispatch(final Map<Long, CompletableFuture<T>> expected) {
+    lock.lock();
+    try {
+      if (batch != expected) {
+        return;     // the batch has already been dispatched
+      }
+      batch = null;
+    } finally {
+      lock.unlock();
+    }
+    submit(expected);
+  }
+
+  private void execute(final Map<Long, CompletableFuture<T>> futures) {
+    LOGGER.debug("Loading a batch of {} {}.", futures.size(),
+        dao.getEntityName());
+    try {
+      final Map<Long, T> entities = dao.getAll(futures.keySet());
+      for (final Map.Entry<Long, CompletableFuture<T>> e : futures.entrySet()) {
+        e.getValue().complete(entities.get(e.getKey()));
+      }
+    } catch (final RuntimeException | Error e) {
+      LOGGER.error("Failed to load a batch of {} {}: {}", futures.size(),
+          dao.getEntityName(), e.getMessage(), e);
+      for (final CompletableFuture<T> future : futures.values()) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,146 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+/**
+ * Limits the number of DAO operations executed concurrently.
+ *
+ * <p>When the DAOs are called from virtual threads, the number of concurrent
+ * callers is no longer bounded by the size of a thread pool, and the excessive
+ * callers would pile up in the connection pool. This limiter bounds the number
+ * of concurrent operations, typically to the size of the connection pool, with
+ * a fair {@link Semaphore}. A {@link Semaphore} parks the waiting threads
+ * instead of holding a monitor, so a waiting virtual thread does not pin its
+ * carrier thread.</p>
+ *
+ * @author Haixing Hu
+ */
+public class DaoConcurrencyLimiter {
+
+  private final int maxConcurrency;
+  @Nullable
+  private final Duration timeout;
+  private final Semaphore permits;
+
+  /**
+   * Creates a new {@code DaoConcurrencyLimiter} which waits for a permit
+   * without timeout.
+   *
+   * @param maxConcurrency
+   *     The maximum number of concurrent operations, which should be the size
+   *     of the database connection pool.
+   */
+  public DaoConcurrencyLimiter(final int maxConcurrency) {
+    this(maxConcurrency, null);
+  }
+
+  /**
+   * Creates a new {@code DaoConcurrencyLimiter}.
+   *
+   * @param maxConcurrency
+   *     The maximum number of concurrent operations, which should be the size
+   *     of the database connection pool.
+   * @param timeout
+   *     The maximum time to wait for a permit, or {@code null} to wait without
+   *     timeout.
+   */
+  public DaoConcurrencyLimiter(final int maxConcurrency,
+      @Nullable final Duration timeout) {
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("The maximum concurrency must be "
+          + "positive: " + maxConcurrency);
+    }
+    this.maxConcurrency = maxConcurrency;
+    this.timeout = timeout;
+    this.permits = new Semaphore(maxConcurrency, true);
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  @Nullable
+  public Duration getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Gets the number of operations which could be started without waiting.
+   *
+   * @return
+   *     The number of available permits.
+   */
+  public int getAvailablePermits() {
+    return permits.availablePermits();
+  }
+
+  /**
+   * Executes an operation once a permit is available.
+   *
+   * @param operation
+   *     The operation to be executed.
+   * @param <R>
+   *     The type of the result of the operation.
+   * @return
+   *     The result of the operation.
+   * @throws TransientDataAccessResourceException
+   *     If no permit is available within the timeout, or the current thread is
+   *     interrupted while waiting for a permit.
+   */
+  public <R> R call(final Supplier<R> operation) {
+    acquire();
+    try {
+      return operation.get();
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Executes an operation once a permit is available.
+   *
+   * @param operation
+   *     The operation to be executed.
+   * @throws TransientDataAccessResourceException
+   *     If no permit is available within the timeout, or the current thread is
+   *     interrupted while waiting for a permit.
+   */
+  public void run(final Runnable operation) {
+    acquire();
+    try {
+      operation.run();
+    } finally {
+      permits.release();
+    }
+  }
+
+  private void acquire() {
+    try {
+      if (timeout == null) {
+        permits.acquire();
+      } else if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+        throw new TransientDataAccessResourceException("No DAO operation "
+            + "permit is available within " + timeout);
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TransientDataAccessResourceException("Interrupted while "
+          + "waiting for a DAO operation permit.", e);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the concurrent calls with the same key into a single call.
+ *
+ * <p>When a thread calls {@link #execute(Object, Supplier)} with a key while
+ * another call with the same key is in flight, it does not run its own loader;
+ * instead it waits for the call in flight and receives the same result, or the
+ * same exception. Once a call completes, the next call with the same key runs
+ * the loader again, i.e., the results are never cached.</p>
+ *
+ * <p>The calls in flight are tracked by a {@link ConcurrentHashMap}, whose
+ * updates only lock a single bin of the table for a short time, and no lock is
+ * held while running the loader or waiting for the result, so the calls with
+ * unrelated keys never contend with each other.</p>
+ *
+ * @param <K>
+ *     The type of keys.
+ * @param <V>
+ *     The type of results.
+ * @author Haixing Hu
+ */
+public class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> calls;
+
+  /**
+   * Creates a new {@code SingleFlight}.
+   */
+  public SingleFlight() {
+    this.calls = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Creates a new {@code SingleFlight}.
+   *
+   * @param expectedConcurrency
+   *     The expected number of concurrent calls in flight, used to size the
+   *     table of calls.
+   */
+  public SingleFlight(final int expectedConcurrency) {
+    this.calls = new ConcurrentHashMap<>(expectedConcurrency);
+  }
+
+  /**
+   * Executes a call, or joins the call in flight with the same key.
+   *
+   * @param key
+   *     The key of the call, which must not be {@code null}.
+   * @param loader
+   *     The function computing the result of the call, which is only invoked
+   *     if there is no call in flight with the same key.
+   * @return
+   *     The result of the call, which may be {@code null}.
+   * @throws RuntimeException
+   *     If the loader of the call in flight throws an exception, the same
+   *     exception is re-thrown to all the callers sharing the call.
+   */
+  public V execute(final K key, final Supplier<V> loader) {
+    final CompletableFuture<V> call = new CompletableFuture<>();
+    final CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+    if (existing != null) {
+      return join(existing);
+    }
+    try {
+      final V result = loader.get();
+      call.complete(result);
+      return result;
+    } catch (final RuntimeException | Error e) {
+      call.completeExceptionally(e);
+      throw e;
+    } finally {
+      calls.remove(key, call);
+    }
+  }
+
+  /**
+   * Gets the number of calls in flight.
+   *
+   * @return
+   *     The number of calls in flight.
+   */
+  public int getInFlightCount() {
+    return calls.size();
+  }
+
+  private static <V> V join(final CompletableFuture<V> call) {
+    try {
+      return call.join();
+    } catch (final CompletionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw e;
+      }
+    }
+  }
+}
@@ -0,0 +1,284 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.concurrent;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * A pool of pre-generated IDs, which hands out the IDs without contention.
+ *
+ * <p>The IDs are generated by an underlying generator, e.g., the method
+ * reference to the generator of the {@code common-id} module, in blocks of
+ * {@link #getBlockSize()} IDs. The pool is divided into stripes, each of which
+ * holds its current block, and a thread always takes its IDs from the same
+ * stripe, so that the threads rarely compete for the same block. An ID is taken
+ * from a block by a single atomic increment, without any lock.</p>
+ *
+ * <p>When the current block of a stripe is running out, a spare block is
+ * generated in the background by the refill executor, and the current block is
+ * replaced by the spare one once it is exhausted. Only if the spare block is
+ * not ready in time, or no refill executor is provided, the thread exhausting
+ * the current block generates the next block by itself, while the other
+ * threads of the same stripe wait for it instead of generating their own
+ * blocks.</p>
+ *
+ * <p>A DAO could use the pool to implement {@link
+ * ltd.qubit.commons.dao.Dao#generateId()}:</p>
+ * <pre><code>
+ * private final StripedIdPool idPool = new StripedIdPool(idGenerator::generate,
+ *     refillExecutor);
+ *
+ * &#64;Override
+ * public long generateId() {
+ *   return idPool.getAsLong();
+ * }
+ * </code></pre>
+ *
+ * <p><b>Note:</b> The IDs are unique as long as the underlying generator
+ * generates unique IDs, but they are no longer handed out in the order of
+ * generation, and the pre-generated IDs not handed out are lost when the pool
+ * is discarded. The underlying generator must be thread-safe, since the blocks
+ * of different stripes may be generated concurrently.</p>
+ *
+ * @author Haixing Hu
+ */
+public class StripedIdPool implements LongSupplier {
+
+  /**
+   * The default number of IDs in a block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+  // the number of busy-waiting iterations before yielding to other threads
+  private static final int SPIN_LIMIT = 64;
+
+  private final LongSupplier generator;
+  private final int blockSize;
+  private final int refillIndex;
+  @Nullable
+  private final Executor refillExecutor;
+  private final Stripe[] stripes;
+  private final int mask;
+  private final LongAdder blocks = new LongAdder();
+  private final LongAdder syncRefills = new LongAdder();
+
+  /**
+   * Creates a new {@code StripedIdPool} with a stripe for each available
+   * processor and the default block size.
+   *
+   * @param generator
+   *     The underlying thread-safe generator of the IDs.
+   * @param refillExecutor
+   *     The executor generating the spare blocks in the background, or
+   *     {@code null} if the blocks are generated by the threads exhausting the
+   *     current blocks.
+   */
+  public StripedIdPool(final LongSupplier generator,
+      @Nullable final Executor refillExecutor) {
+    this(generator, Runtime.getRuntime().availableProcessors(),
+        DEFAULT_BLOCK_SIZE, refillExecutor);
+  }
+
+  /**
+   * Creates a new {@code StripedIdPool}.
+   *
+   * @param generator
+   *     The underlying thread-safe generator of the IDs.
+   * @param stripeCount
+   *     The number of stripes, which is rounded up to a power of 2.
+   * @param blockSize
+   *     The number of IDs in a block.
+   * @param refillExecutor
+   *     The executor generating the spare blocks in the background, or
+   *     {@code null} if the blocks are generated by the threads exhausting the
+   *     current blocks.
+   */
+  public StripedIdPool(final LongSupplier generator, final int stripeCount,
+      final int blockSize, @Nullable final Executor refillExecutor) {
+    if (stripeCount <= 0) {
+      throw new IllegalArgumentException("The number of stripes must be "
+          + "positive: " + stripeCount);
+    }
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("The block size must be positive: "
+          + blockSize);
+    }
+    this.generator = generator;
+    this.blockSize = blockSize;
+    // start refilling when a quarter of the current block remains
+    this.refillIndex = blockSize - Math.max(1, blockSize / 4);
+    this.refillExecutor = refillExecutor;
+    final int size = (stripeCount == 1
+                      ? 1
+                      : Integer.highestOneBit(stripeCount - 1) << 1);
+    this.stripes = new Stripe[size];
+    for (int i = 0; i < size; ++i) {
+      stripes[i] = new Stripe();
+    }
+    this.mask = size - 1;
+  }
+
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  public int getBlockSize() {
+    return blockSize;
+  }
+
+  /**
+   * Gets the number of blocks generated so far.
+   *
+   * @return
+   *     The number of blocks generated so far.
+   */
+  public long getBlockCount() {
+    return blocks.sum();
+  }
+
+  /**
+   * Gets the number of blocks generated by the threads exhausting the current
+   * blocks, since no spare block was ready.
+   *
+   * <p>A large proportion of the synchronous refills to all the generated
+   * blocks indicates that the block size is too small, or the refill executor
+   * is too slow.</p>
+   *
+   * @return
+   *     The number of blocks generated synchronously so far.
+   */
+  public long getSyncRefillCount() {
+    return syncRefills.sum();
+  }
+
+  /**
+   * Takes the next ID from the pool.
+   *
+   * @return
+   *     The next unique ID.
+   */
+  @Override
+  public long getAsLong() {
+    final Stripe stripe = stripes[indexOf(Thread.currentThread())];
+    while (true) {
+      final Block block = stripe.current.get();
+      final int index = block.next.getAndIncrement();
+      if (index < block.ids.length) {
+        if (index == refillIndex) {
+          prefetch(stripe);
+        }
+        return block.ids[index];
+      }
+      if (stripe.replacing.compareAndSet(false, true)) {
+        try {
+          replace(stripe, block);
+        } finally {
+          stripe.replacing.set(false);
+        }
+      } else {
+        awaitReplacement(stripe, block);
+      }
+    }
+  }
+
+  /**
+   * Replaces the exhausted current block of a stripe by the spare block, or
+   * by a newly generated block if the spare block is not ready. Only called
+   * by the thread holding the replacing flag of the stripe.
+   */
+  private void replace(final Stripe stripe, final Block block) {
+    if (stripe.current.get() != block) {
+      return;     // already replaced before the flag was acquired
+    }
+    Block fresh = stripe.spare.getAndSet(null);
+    if (fresh == null) {
+      syncRefills.increment();
+      fresh = generate();
+    }
+    stripe.current.set(fresh);
+  }
+
+  /**
+   * Waits for another thread to replace the exhausted current block of a
+   * stripe, without touching the exhausted block.
+   */
+  private static void awaitReplacement(final Stripe stripe,
+      final Block block) {
+    int spins = 0;
+    while ((stripe.current.get() == block) && stripe.replacing.get()) {
+      if (spins < SPIN_LIMIT) {
+        ++spins;
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+    }
+  }
+
+  private int indexOf(final Thread thread) {
+    final int h = System.identityHashCode(thread);
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  private void prefetch(final Stripe stripe) {
+    if ((refillExecutor == null)
+        || (stripe.spare.get() != null)
+        || (!stripe.refilling.compareAndSet(false, true))) {
+      return;
+    }
+    try {
+      refillExecutor.execute(() -> {
+        try {
+          stripe.spare.compareAndSet(null, generate());
+        } finally {
+          stripe.refilling.set(false);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      // the block will be generated synchronously when it is needed
+      stripe.refilling.set(false);
+    }
+  }
+
+  private Block generate() {
+    final long[] ids = new long[blockSize];
+    for (int i = 0; i < blockSize; ++i) {
+      ids[i] = generator.getAsLong();
+    }
+    blocks.increment();
+    return new Block(ids);
+  }
+
+  private static final class Block {
+    final long[] ids;
+    final AtomicInteger next = new AtomicInteger();
+
+    Block(final long[] ids) {
+      this.ids = ids;
+    }
+  }
+
+  private static final class Stripe {
+    // starts with an empty block, so that the blocks are generated lazily
+    final AtomicReference<Block> current =
+        new AtomicReference<>(new Block(new long[0]));
+    final AtomicReference<Block> spare = new AtomicReference<>();
+    final AtomicBoolean refilling = new AtomicBoolean();
+    // held by the only thread replacing the exhausted current block
+    final AtomicBoolean replacing = new AtomicBoolean();
+  }
+}
@@ -0,0 +1,168 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Monitors the pinning of the virtual threads to their carrier threads with
+ * the JDK Flight Recorder.
+ *
+ * <p>A virtual thread blocking while holding a monitor, e.g., inside a
+ * {@code synchronized} block around a JDBC call, cannot release its carrier
+ * thread, and the JVM emits a {@code jdk.VirtualThreadPinned} event. This
+ * monitor streams those events while it is open, so that a load run of the
+ * DAOs on virtual threads, e.g., with {@link AsyncDaoExecutor#virtual(int)},
+ * could verify that no DAO operation pins its carrier thread:</p>
+ * <pre><code>
+ * try (VirtualThreadPinningMonitor monitor =
+ *          VirtualThreadPinningMonitor.start()) {
+ *   // run GettableDao.get() and ListableDao.list() on virtual threads
+ *   monitor.stop();
+ *   assert monitor.getPinnedCount() == 0 : monitor.getPinnedStackTraces();
+ * }
+ * </code></pre>
+ *
+ * <p>The events are only emitted on JDK 21 or later; on earlier JDKs the
+ * monitor never reports any pinning.</p>
+ *
+ * @author Haixing Hu
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+  /**
+   * The name of the JFR event emitted when a virtual thread is pinned.
+   */
+  public static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+  /**
+   * The maximum number of stack traces of the pinning events kept by a
+   * monitor.
+   */
+  public static final int MAX_STACK_TRACES = 16;
+
+  private final RecordingStream stream;
+  private final LongAdder pinned = new LongAdder();
+  private final List<String> stackTraces = new CopyOnWriteArrayList<>();
+
+  private VirtualThreadPinningMonitor(final Duration threshold) {
+    this.stream = new RecordingStream();
+    stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+    stream.onEvent(PINNED_EVENT, this::onPinned);
+  }
+
+  /**
+   * Starts monitoring every pinning of the virtual threads, no matter how
+   * short it is.
+   *
+   * @return
+   *     The started monitor, which must be closed after use.
+   */
+  public static VirtualThreadPinningMonitor start() {
+    return start(Duration.ZERO);
+  }
+
+  /**
+   * Starts monitoring the pinning of the virtual threads.
+   *
+   * @param threshold
+   *     The minimum duration of the pinning to be reported.
+   * @return
+   *     The started monitor, which must be closed after use.
+   */
+  public static VirtualThreadPinningMonitor start(final Duration threshold) {
+    final VirtualThreadPinningMonitor monitor =
+        new VirtualThreadPinningMonitor(threshold);
+    monitor.stream.startAsync();
+    return monitor;
+  }
+
+  /**
+   * Stops monitoring, and waits until all the recorded events are delivered to
+   * this monitor.
+   *
+   * <p>The JFR delivers the events to the stream periodically, so this
+   * function should be called before checking the results of a load run.</p>
+   */
+  public void stop() {
+    try {
+      // RecordingStream.stop() is only available on JDK 20 or later, and the
+      // earlier JDKs emit no pinning events to wait for
+      RecordingStream.class.getMethod("stop").invoke(stream);
+    } catch (final NoSuchMethodException e) {
+      stream.close();
+    } catch (final IllegalAccessException | InvocationTargetException e) {
+      throw new IllegalStateException("Failed to stop the recording of the "
+          + "pinning events.", e);
+    }
+  }
+
+  /**
+   * Gets the number of pinning events reported so far.
+   *
+   * @return
+   *     The number of pinning events reported so far.
+   */
+  public long getPinnedCount() {
+    return pinned.sum();
+  }
+
+  /**
+   * Gets the stack traces of the first pinning events reported so far.
+   *
+   * @return
+   *     The stack traces of at most {@link #MAX_STACK_TRACES} pinning events.
+   */
+  public List<String> getPinnedStackTraces() {
+    return List.copyOf(stackTraces);
+  }
+
+  private void onPinned(final RecordedEvent event) {
+    pinned.increment();
+    if (stackTraces.size() < MAX_STACK_TRACES) {
+      stackTraces.add(format(event.getStackTrace()));
+    }
+  }
+
+  private static String format(@Nullable final RecordedStackTrace stackTrace) {
+    if (stackTrace == null) {
+      return "<no stack trace>";
+    }
+    final StringBuilder builder = new StringBuilder();
+    for (final RecordedFrame frame : stackTrace.getFrames()) {
+      builder.append("\tat ")
+             .append(frame.getMethod().getType().getName())
+             .append('.')
+             .append(frame.getMethod().getName())
+             .append(':')
+             .append(frame.getLineNumber())
+             .append('\n');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Stops monitoring.
+   */
+  @Override
+  public void close() {
+    stream.close();
+  }
+}
@@ -0,0 +1,67 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.error;
+
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * Thrown when an optimistic update of an entity fails because the entity was
+ * modified by another writer since it was read.
+ *
+ * <p>The caller could re-read the entity, re-apply its modification, and try
+ * the update again.</p>
+ *
+ * @author Haixing Hu
+ */
+public class UpdateConflictException extends OptimisticLockingFailureException {
+
+  private static final long serialVersionUID = -2736548361290475612L;
+
+  private final String entityName;
+  private final Long id;
+  @Nullable
+  private final Instant expectedModifyTime;
+
+  /**
+   * Creates a new {@code UpdateConflictException}.
+   *
+   * @param entityName
+   *     The name of the entity.
+   * @param id
+   *     The ID of the entity.
+   * @param expectedModifyTime
+   *     The modification time of the entity when it was read, or {@code null}
+   *     if it had never been modified.
+   */
+  public UpdateConflictException(final String entityName, final Long id,
+      @Nullable final Instant expectedModifyTime) {
+    super("The " + entityName + " with ID " + id + " was modified by another "
+        + "writer since its modification time " + expectedModifyTime);
+    this.entityName = entityName;
+    this.id = id;
+    this.expectedModifyTime = expectedModifyTime;
+  }
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  @Nullable
+  public Instant getExpectedModifyTime() {
+    return expectedModifyTime;
+  }
+}
@@ -8,6 +8,11 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.dao.mapper;
 
+import java.util.List;
+
+import org.apache.ibatis.annotations.Flush;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.executor.BatchResult;
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.error.DuplicateKeyException;
@@ -24,6 +29,12 @@ import ltd.qubit.commons.error.NullFieldException;
  * This interface implements the following Mapper operations:
  * <ul>
  * <li>{@link #add(T)}: Adds a new entity.</li>
+ * <li>{@link #addMulti(List)}: Adds a list of new entities with a single
+ * multi-row statement.</li>
+ * <li>{@link #addOrUpdate(T)}: Adds a new entity, or updates the existing
+ * entity with the same unique key.</li>
+ * <li>{@link #flush()}: Flushes the statements batched in the current
+ * session.</li>
  * </ul>
  *
  * @param <T>
@@ -63,4 +74,125 @@ public interface AddableMapper<T> extends Mapper<T> {
    *     If other uncategorizable database operation errors occur.
    */
   long add(T entity) throws DataAccessException;
+
+  /**
+   * Adds a list of new entities with a single multi-row statement.
+   *
+   * <p>The implementation should insert all entities with a single statement
+   * of the form {@code INSERT INTO ... VALUES (...), (...), ...}, for example,
+   * by iterating the {@code list} parameter with a {@code <foreach>} element
+   * whose separator is a comma. The IDs of the entities must be set before
+   * calling this function.</p>
+   *
+   * @param list
+   *     The non-empty list of entities to be added.
+   * @return
+   *     The number of entities added by this operation.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of an entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of an entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of an entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of an entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of an entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  long addMulti(@Param("list") List<T> list) throws DataAccessException;
+
+  /**
+   * Adds a new entity, or updates the existing entity with the same unique key
+   * by a single statement.
+   *
+   * <p>On MySQL 8.0.19 or later, the implementation should be an
+   * {@code INSERT ... AS new ON DUPLICATE KEY UPDATE} statement, which writes
+   * the ID of the existing entity back to the entity by
+   * {@code LAST_INSERT_ID(id)} and the generated keys, and sets the
+   * modification time of the existing entity to the creation time of the new
+   * entity only if any other updated column is changed, e.g.:</p>
+   * <pre><code>
+   * &lt;insert id="addOrUpdate" useGeneratedKeys="true" keyProperty="id"&gt;
+   *   INSERT INTO user (id, code, name, create_time)
+   *   VALUES (#{id}, #{code}, #{name}, #{createTime}) AS new
+   *   ON DUPLICATE KEY UPDATE
+   *     modify_time = IF(name &amp;lt;=&amp;gt; new.name, modify_time,
+   *       new.create_time),
+   *     id = LAST_INSERT_ID(id),
+   *     name = new.name
+   * &lt;/insert&gt;
+   * </code></pre>
+   * <p>The assignments are evaluated from left to right, so the modification
+   * time must be assigned before the columns it compares. Otherwise, an
+   * unchanged entity would still get a new modification time and could never
+   * be reported as unchanged. The {@code VALUES()} function used by the older
+   * versions of MySQL is deprecated since MySQL 8.0.20.</p>
+   * <p>On H2, the implementation could be a {@code MERGE INTO ... USING ...}
+   * statement with the same effect on the data. However, H2 neither writes the
+   * ID of the existing entity back nor reports an update differently from an
+   * insertion, so the DAO reports an update as an insertion; see
+   * {@link ltd.qubit.commons.dao.model.UpsertResult}. The fields which are
+   * never updated by {@code UpdatableMapper.update()}, e.g., the ID and the
+   * creation time, must not be updated.</p>
+   *
+   * @param entity
+   *     The entity to be added or updated.
+   * @return
+   *     The number of affected rows, which is 1 if the entity was added, 2 if
+   *     the existing entity was updated, and 0 if the existing entity was left
+   *     unchanged. The MySQL JDBC driver reports 1 instead of 0 unless its
+   *     {@code useAffectedRows} property is {@code true}.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of the entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of the entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of the entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of the entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the existing entity is updated, and the new value of a unique field
+   *     is the same as that of another existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  long addOrUpdate(T entity) throws DataAccessException;
+
+  /**
+   * Flushes the statements batched in the current session.
+   *
+   * <p>If this Mapper is bound to a MyBatis session using the
+   * {@code ExecutorType.BATCH} executor, the statements executed since the
+   * last flushing are sent to the database in a single round-trip; otherwise
+   * the statements have already been executed and this function does
+   * nothing.</p>
+   *
+   * @return
+   *     The results of the batched statements, or an empty list if this Mapper
+   *     is not bound to a session using the batch executor.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Flush
+  List<BatchResult> flush() throws DataAccessException;
 }
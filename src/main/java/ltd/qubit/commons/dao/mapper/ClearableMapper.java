@@ -10,6 +10,9 @@ package ltd.qubit.commons.dao.mapper;
 
 import java.time.Instant;
 
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.annotations.Param;
 import org.springframework.dao.DataAccessException;
 
 /**
@@ -20,6 +23,10 @@ import org.springframework.dao.DataAccessException;
  * <ul>
  * <li>{@link #clear()}: Completely removes <b>all</b> entities from the
  * database.</li>
+ * <li>{@link #getClearChunkEnd(Long, int)}: Gets the upper bound of the IDs of
+ * the next chunk of entities to be removed.</li>
+ * <li>{@link #clearChunk(Long, Long)}: Completely removes a chunk of entities
+ * from the database.</li>
  * </ul>
  *
  * @param <T>
@@ -46,4 +53,53 @@ public interface ClearableMapper<T> extends Mapper<T> {
    * @see DeletableMapper#purgeAll()
    */
   long clear() throws DataAccessException;
+
+  /**
+   * Gets the upper bound of the IDs of the next chunk of entities to be
+   * removed.
+   *
+   * <p>The implementation should return the ID of the {@code limit}-th entity
+   * following the specified ID in the order of the IDs, e.g.:</p>
+   * <pre><code>
+   * SELECT id FROM user WHERE id &gt; #{afterId}
+   * ORDER BY id LIMIT 1 OFFSET ${limit - 1}
+   * </code></pre>
+   *
+   * @param afterId
+   *     The upper bound of the IDs of the previous chunk, or {@code null} for
+   *     the first chunk.
+   * @param limit
+   *     The maximum number of entities in the chunk.
+   * @return
+   *     The upper bound of the IDs of the next chunk, or {@code null} if less
+   *     than {@code limit} entities remain.
+   * @throws DataAccessException
+   *     if any data access error occurs.
+   * @see #clearChunk(Long, Long)
+   */
+  @Nullable
+  Long getClearChunkEnd(@Param("afterId") @Nullable Long afterId,
+      @Param("limit") int limit) throws DataAccessException;
+
+  /**
+   * Completely removes a chunk of entities from the database.
+   *
+   * <p>The implementation should remove the entities whose IDs are in the
+   * specified range, so that the statement only locks a bounded range of the
+   * primary key.</p>
+   *
+   * @param afterId
+   *     The exclusive lower bound of the IDs of the chunk, or {@code null} if
+   *     the chunk is not bounded below.
+   * @param toId
+   *     The inclusive upper bound of the IDs of the chunk, or {@code null} if
+   *     the chunk is not bounded above.
+   * @return
+   *     The number of entities removed by this operation.
+   * @throws DataAccessException
+   *     if any other data access error occurs.
+   * @see #getClearChunkEnd(Long, int)
+   */
+  long clearChunk(@Param("afterId") @Nullable Long afterId,
+      @Param("toId") @Nullable Long toId) throws DataAccessException;
 }
@@ -9,12 +9,16 @@
 package ltd.qubit.commons.dao.mapper;
 
 import java.time.Instant;
+import java.util.Collection;
+
+import javax.annotation.Nullable;
 
 import org.apache.ibatis.annotations.Param;
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.model.Deletable;
 import ltd.qubit.commons.model.Identifiable;
+import ltd.qubit.commons.sql.Criterion;
 
 /**
  * This interface represents a MyBatis Mapper that implements mark deletion
@@ -25,11 +29,21 @@ import ltd.qubit.commons.model.Identifiable;
  * <li>{@link #existNonDeleted(Long)}: Tests whether there exists the entity
  * with the specified ID that has not been marked as deleted.</li>
  * <li>{@link #delete(Long, Instant)}: Marks the specified entity as deleted.</li>
+ * <li>{@link #deleteAll(Collection, Instant)}: Marks the entities with the
+ * specified IDs as deleted.</li>
+ * <li>{@link #deleteWhere(Criterion, Instant)}: Marks the entities that match
+ * the specified criteria as deleted.</li>
  * <li>{@link #restore(Long)}: Restores the specified mark deleted entity.</li>
+ * <li>{@link #restoreAll(Collection)}: Restores the mark deleted entities with
+ * the specified IDs.</li>
  * <li>{@link #purge(Long)}: Completely removes the specified mark deleted
  * entity from the database.</li>
  * <li>{@link #purgeAll()}: Completely removes <b>all</b> mark deleted entities
  * from the database</li>
+ * <li>{@link #getPurgeChunkEnd(Long, int)}: Gets the upper bound of the IDs of
+ * the next chunk of mark deleted entities to be purged.</li>
+ * <li>{@link #purgeChunk(Long, Long)}: Completely removes a chunk of mark
+ * deleted entities from the database.</li>
  * </ul>
  *
  * @param <T>
@@ -78,6 +92,46 @@ public interface DeletableMapper<T extends Identifiable & Deletable>
   long delete(@Param("id") Long id, @Param("deleteTime") Instant deleteTime)
       throws DataAccessException;
 
+  /**
+   * Marks the entities with the specified IDs as deleted.
+   *
+   * <p>The implementation should mark the entities with a single statement,
+   * e.g., {@code UPDATE ... SET delete_time = #{deleteTime} WHERE id IN (...)
+   * AND delete_time IS NULL}, so that the entities already marked as deleted
+   * keep their original timestamps.</p>
+   *
+   * @param ids
+   *     The non-empty list of the IDs of the entities to be marked as deleted.
+   * @param deleteTime
+   *     The timestamp when the entities were marked.
+   * @return
+   *     The number of entities marked by this operation.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  long deleteAll(@Param("ids") Collection<Long> ids,
+      @Param("deleteTime") Instant deleteTime) throws DataAccessException;
+
+  /**
+   * Marks the entities that match the specified criteria as deleted.
+   *
+   * <p>Only the entities not marked as deleted yet should be marked, so that
+   * the entities already marked as deleted keep their original
+   * timestamps.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param deleteTime
+   *     The timestamp when the entities were marked.
+   * @return
+   *     The number of entities marked by this operation.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  long deleteWhere(@Param("filter") @Nullable Criterion<T> filter,
+      @Param("deleteTime") Instant deleteTime) throws DataAccessException;
+
   /**
    * Restores the specified mark deleted entity.
    *
@@ -101,6 +155,25 @@ public interface DeletableMapper<T extends Identifiable & Deletable>
    */
   long restore(@Param("id") Long id) throws DataAccessException;
 
+  /**
+   * Restores the mark deleted entities with the specified IDs.
+   *
+   * <p>The implementation should restore the entities with a single statement,
+   * e.g., {@code UPDATE ... SET delete_time = NULL WHERE id IN (...) AND
+   * delete_time IS NOT NULL}.</p>
+   *
+   * @param ids
+   *     The non-empty list of the IDs of the entities to be restored.
+   * @return
+   *     The number of entities restored by this operation. The IDs of the
+   *     entities which do not exist or have not been marked as deleted are
+   *     not counted.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   */
+  long restoreAll(@Param("ids") Collection<Long> ids)
+      throws DataAccessException;
+
   /**
    * Completely removes the specified mark deleted entity from the database.
    *
@@ -140,4 +213,54 @@ public interface DeletableMapper<T extends Identifiable & Deletable>
    * @see ClearableMapper#clear()
    */
   long purgeAll() throws DataAccessException;
+
+  /**
+   * Gets the upper bound of the IDs of the next chunk of mark deleted entities
+   * to be purged.
+   *
+   * <p>The implementation should return the ID of the {@code limit}-th mark
+   * deleted entity following the specified ID in the order of the IDs,
+   * e.g.:</p>
+   * <pre><code>
+   * SELECT id FROM user WHERE id &gt; #{afterId} AND delete_time IS NOT NULL
+   * ORDER BY id LIMIT 1 OFFSET ${limit - 1}
+   * </code></pre>
+   *
+   * @param afterId
+   *     The upper bound of the IDs of the previous chunk, or {@code null} for
+   *     the first chunk.
+   * @param limit
+   *     The maximum number of entities in the chunk.
+   * @return
+   *     The upper bound of the IDs of the next chunk, or {@code null} if less
+   *     than {@code limit} mark deleted entities remain.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   * @see #purgeChunk(Long, Long)
+   */
+  @Nullable
+  Long getPurgeChunkEnd(@Param("afterId") @Nullable Long afterId,
+      @Param("limit") int limit) throws DataAccessException;
+
+  /**
+   * Completely removes a chunk of mark deleted entities from the database.
+   *
+   * <p>The implementation should remove the mark deleted entities whose IDs
+   * are in the specified range, so that the statement only locks a bounded
+   * range of the primary key.</p>
+   *
+   * @param afterId
+   *     The exclusive lower bound of the IDs of the chunk, or {@code null} if
+   *     the chunk is not bounded below.
+   * @param toId
+   *     The inclusive upper bound of the IDs of the chunk, or {@code null} if
+   *     the chunk is not bounded above.
+   * @return
+   *     The number of entities removed by this operation.
+   * @throws DataAccessException
+   *     If any other data access error occurs.
+   * @see #getPurgeChunkEnd(Long, int)
+   */
+  long purgeChunk(@Param("afterId") @Nullable Long afterId,
+      @Param("toId") @Nullable Long toId) throws DataAccessException;
 }
@@ -8,6 +8,9 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.dao.mapper;
 
+import java.util.Collection;
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 import org.apache.ibatis.annotations.Param;
@@ -25,6 +28,10 @@ import ltd.qubit.commons.model.Identifiable;
  * specified ID.</li>
  * <li>{@link #get(Long)}： Gets the entity with the specified ID, and
  * returns {@code null} if there is no such entity.</li>
+ * <li>{@link #existing(Collection)}: Gets the IDs of the existing entities
+ * among the specified IDs.</li>
+ * <li>{@link #getAll(Collection)}: Gets the existing entities with the
+ * specified IDs.</li>
  * </ul>
  *
  * @param <T>
@@ -60,4 +67,38 @@ public interface GettableMapper<T extends Identifiable> extends Mapper<T> {
    */
   @Nullable
   T get(@Param("id") Long id) throws DataAccessException;
+
+  /**
+   * Gets the IDs of the existing entities among the specified IDs.
+   *
+   * <p>The implementation should select the IDs with a single statement of the
+   * form {@code SELECT id FROM ... WHERE id IN (...)}, for example, by
+   * iterating the {@code ids} parameter with a {@code <foreach>} element.</p>
+   *
+   * @param ids
+   *     The non-empty collection of distinct IDs.
+   * @return
+   *     The IDs of the existing entities among the specified IDs, in any order.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  List<Long> existing(@Param("ids") Collection<Long> ids)
+      throws DataAccessException;
+
+  /**
+   * Gets the existing entities with the specified IDs.
+   *
+   * <p>The implementation should select the entities with a single statement
+   * of the form {@code SELECT ... FROM ... WHERE id IN (...)}, for example, by
+   * iterating the {@code ids} parameter with a {@code <foreach>} element.</p>
+   *
+   * @param ids
+   *     The non-empty collection of distinct IDs.
+   * @return
+   *     The existing entities with the specified IDs, in any order. The IDs
+   *     with no corresponding entities are ignored.
+   * @throws DataAccessException
+   *     If other data access errors occur.
+   */
+  List<T> getAll(@Param("ids") Collection<Long> ids) throws DataAccessException;
 }
@@ -13,8 +13,11 @@ import java.util.List;
 import javax.annotation.Nullable;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
 import org.springframework.dao.DataAccessException;
 
+import ltd.qubit.commons.dao.model.KeysetCursor;
 import ltd.qubit.commons.sql.Criterion;
 import ltd.qubit.commons.sql.SortRequest;
 
@@ -26,8 +29,21 @@ import ltd.qubit.commons.sql.SortRequest;
  * <ul>
  * <li>{@link #count(Criterion)}: Get the number of entities that match the
  * specified criteria.</li>
+ * <li>{@link #approximateCount()}: Get the estimated number of all entities
+ * from the table statistics.</li>
  * <li>{@link #list(Criterion, SortRequest, Integer, Long)}：Lists the specified
  * subsequence of entities that match the specified criteria.</li>
+ * <li>{@link #first(Criterion, SortRequest)}: Gets the first entity that
+ * matches the specified criteria.</li>
+ * <li>{@link #existsAny(Criterion)}: Tests whether there is any entity that
+ * matches the specified criteria.</li>
+ * <li>{@link #listAfter(Criterion, SortRequest, KeysetCursor, Integer)}: Lists
+ * the entities that match the specified criteria and follow the specified
+ * cursor.</li>
+ * <li>{@link #stream(Criterion, SortRequest)}: Opens a cursor over the entities
+ * that match the specified criteria.</li>
+ * <li>{@link #forEach(Criterion, SortRequest, ResultHandler)}: Passes each
+ * entity that matches the specified criteria to a result handler.</li>
  * </ul>
  *
  * @param <T>
@@ -50,6 +66,29 @@ public interface ListableMapper<T> extends Mapper<T> {
   long count(@Param("filter") @Nullable Criterion<T> filter)
       throws DataAccessException;
 
+  /**
+   * Get the estimated number of all entities from the statistics of the table
+   * maintained by the database, without scanning the table.
+   *
+   * <p>On MySQL, the statement could be:</p>
+   * <pre><code>
+   * SELECT TABLE_ROWS FROM INFORMATION_SCHEMA.TABLES
+   * WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'user'
+   * </code></pre>
+   * <p>The estimation of InnoDB tables may differ from the exact number by
+   * tens of percent.</p>
+   * <p>This statement is optional, and is only called by the DAOs whose
+   * {@code isApproximateCountSupported()} returns {@code true}.</p>
+   *
+   * @return
+   *     The estimated number of all entities, or {@code null} if the statistics
+   *     are not available.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Nullable
+  Long approximateCount() throws DataAccessException;
+
   /**
    * Lists the specified subsequence of entities that match the specified
    * criteria.
@@ -79,4 +118,151 @@ public interface ListableMapper<T> extends Mapper<T> {
       @Param("limit") @Nullable Integer limit,
       @Param("offset") @Nullable Long offset)
       throws DataAccessException;
+
+  /**
+   * Gets the first entity that matches the specified criteria.
+   *
+   * <p>The implementation should select the entity directly with a
+   * {@code LIMIT 1} clause, e.g.:</p>
+   * <pre><code>
+   * SELECT * FROM user WHERE ... ORDER BY ... LIMIT 1
+   * </code></pre>
+   * <p>This statement is optional, and is only called by the DAOs whose
+   * {@code isFirstStatementSupported()} returns {@code true}.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @return
+   *     The first entity that meets the criteria according to the specified
+   *     sorting order, or {@code null} if no entity meets the criteria.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Nullable
+  T first(@Param("filter") @Nullable Criterion<T> filter,
+      @Param("sortRequest") @Nullable SortRequest<T> sortRequest)
+      throws DataAccessException;
+
+  /**
+   * Tests whether there is any entity that matches the specified criteria.
+   *
+   * <p>The implementation should stop at the first matching row instead of
+   * counting all the matching rows, e.g.:</p>
+   * <pre><code>
+   * SELECT EXISTS (SELECT 1 FROM user WHERE ... LIMIT 1)
+   * </code></pre>
+   * <p>This statement is optional, and is only called by the DAOs whose
+   * {@code isFirstStatementSupported()} returns {@code true}.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @return
+   *     {@code true} if there is at least one entity matching the criteria;
+   *     {@code false} otherwise.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  boolean existsAny(@Param("filter") @Nullable Criterion<T> filter)
+      throws DataAccessException;
+
+  /**
+   * Lists the entities that match the specified criteria and follow the
+   * specified cursor.
+   *
+   * <p>The implementation should sort the entities by the field of the sort
+   * request and then by the ID, both in the order of the sort request, and
+   * seek the position of the cursor with a row value predicate instead of an
+   * {@code OFFSET} clause, i.e., {@code (sort_field, id) > (#{cursor.key},
+   * #{cursor.id})} for the ascending order and {@code (sort_field, id) <
+   * (#{cursor.key}, #{cursor.id})} for the descending order. If the sort
+   * request is {@code null}, the entities should be sorted by their IDs in the
+   * ascending order, and the predicate should be {@code id > #{cursor.id}}.
+   * The index on {@code (sort_field, id)} makes the cost of every page the same
+   * no matter how deep it is.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the entities are sorted by their IDs.
+   * @param cursor
+   *     The cursor pointing to the last entity of the previous page. A
+   *     {@code null} value indicates the first page.
+   * @param limit
+   *     Specifies the maximum number of entities to be returned.
+   * @return
+   *     The eligible entities following the specified cursor, sorted by the
+   *     specified sorting order. If no entity meets the criteria, an empty
+   *     list is returned.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  List<T> listAfter(@Param("filter") @Nullable Criterion<T> filter,
+      @Param("sortRequest") @Nullable SortRequest<T> sortRequest,
+      @Param("cursor") @Nullable KeysetCursor cursor,
+      @Param("limit") Integer limit)
+      throws DataAccessException;
+
+  /**
+   * Opens a cursor over the entities that match the specified criteria.
+   *
+   * <p>The implementation should fetch the rows lazily from the database, so
+   * that the memory used does not grow with the number of rows. For the MySQL
+   * JDBC driver, the statement should be declared with
+   * {@code resultSetType="FORWARD_ONLY"} and
+   * {@code fetchSize="-2147483648"}, i.e., {@link Integer#MIN_VALUE}, which
+   * turns on the streaming result set.</p>
+   *
+   * <p><b>Note:</b> The returned cursor can only be iterated while the
+   * session which opened it is still open, e.g., within a transaction, and it
+   * must be closed after use.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @return
+   *     The cursor over the eligible entities, sorted by the specified sorting
+   *     order.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  Cursor<T> stream(@Param("filter") @Nullable Criterion<T> filter,
+      @Param("sortRequest") @Nullable SortRequest<T> sortRequest)
+      throws DataAccessException;
+
+  /**
+   * Passes each entity that matches the specified criteria to a result
+   * handler.
+   *
+   * <p>The implementation should declare the statement in the same way as
+   * {@link #stream(Criterion, SortRequest)}, so that the rows are fetched
+   * lazily from the database and the memory used does not grow with the number
+   * of rows. Unlike {@link #stream(Criterion, SortRequest)}, this function does
+   * not require an open session after it returns.</p>
+   *
+   * @param filter
+   *     The criteria used to filter entities. A {@code null} value indicates
+   *     no restriction.
+   * @param sortRequest
+   *     Specify the sorting field and sorting method. If it is {@code null},
+   *     the default sorting will be used.
+   * @param handler
+   *     The result handler receiving the eligible entities one by one, sorted
+   *     by the specified sorting order.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  void forEach(@Param("filter") @Nullable Criterion<T> filter,
+      @Param("sortRequest") @Nullable SortRequest<T> sortRequest,
+      ResultHandler<T> handler)
+      throws DataAccessException;
 }
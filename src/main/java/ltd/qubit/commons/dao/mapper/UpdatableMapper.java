@@ -8,6 +8,15 @@
 ////////////////////////////////////////////////////////////////////////////////
 package ltd.qubit.commons.dao.mapper;
 
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.ibatis.annotations.Flush;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.executor.BatchResult;
 import org.springframework.dao.DataAccessException;
 
 import ltd.qubit.commons.error.DuplicateKeyException;
@@ -25,6 +34,12 @@ import ltd.qubit.commons.model.Identifiable;
  * <p>This interface implements the following Mapper operations:</p>
  * <ul>
  * <li>{@link #update(T)}: Updates an existing entity.</li>
+ * <li>{@link #updatePartial(T, Set)}: Updates the specified fields of an
+ * existing entity.</li>
+ * <li>{@link #updateIfUnmodified(T, Instant)}: Updates an existing entity if
+ * it has not been modified since the specified time.</li>
+ * <li>{@link #flush()}: Flushes the statements batched in the current
+ * session.</li>
  * </ul>
  *
  * @param <T>
@@ -66,4 +81,103 @@ public interface UpdatableMapper<T extends Identifiable> extends Mapper<T> {
    *     If other uncategorizable database operation errors occur.
    */
   long update(T obj) throws DataAccessException;
+
+  /**
+   * Updates the specified fields of an existing entity.
+   *
+   * <p>The implementation should only set the columns of the specified fields
+   * and the modification time, e.g.:</p>
+   * <pre><code>
+   * UPDATE user SET
+   *   &lt;if test="fields.contains('name')"&gt;name = #{obj.name},&lt;/if&gt;
+   *   &lt;if test="fields.contains('age')"&gt;age = #{obj.age},&lt;/if&gt;
+   *   modify_time = #{obj.modifyTime}
+   * WHERE id = #{obj.id} AND delete_time IS NULL
+   * </code></pre>
+   * <p>The fields which are never updated by {@link #update(Identifiable)}
+   * must be ignored.</p>
+   *
+   * @param obj
+   *     The new data of the existing entity to be updated, identified by its
+   *     ID.
+   * @param fields
+   *     The non-empty set of the names of the fields to be updated.
+   * @return
+   *     The number of entities updated by this operation, or 0 if the specified
+   *     entity does not exist or has been marked as deleted.
+   * @throws NullFieldException
+   *     If the database field corresponding to an attribute of the entity
+   *     should not be empty but its attribute value is empty.
+   * @throws InvalidFieldFormatException
+   *     If an attribute value of the entity does not conform to the format
+   *     required by its corresponding database field.
+   * @throws FieldTooLongException
+   *     If the length of an attribute value of the entity exceeds the length
+   *     allowed by its corresponding database field.
+   * @throws FieldValueOutOfRangeException
+   *     If the range of an attribute value of the entity exceeds the range
+   *     allowed by its corresponding database field.
+   * @throws DuplicateKeyException
+   *     If the database field corresponding to an attribute value of the entity
+   *     is required to be unique, but the attribute value is the same as an
+   *     existing object in the database.
+   * @throws ForeignKeyConstraintFailException
+   *     If the database field corresponding to an attribute is associated with
+   *     an associated field of another associated table, but the attribute
+   *     value does not exist in the associated field of the associated table.
+   * @throws DataAccessException
+   *     If other uncategorizable database operation errors occur.
+   */
+  long updatePartial(@Param("obj") T obj, @Param("fields") Set<String> fields)
+      throws DataAccessException;
+
+  /**
+   * Updates an existing entity if it has not been modified since the specified
+   * modification time.
+   *
+   * <p>The implementation should update the same fields as
+   * {@link #update(Identifiable)}, and compare the modification time in the
+   * {@code WHERE} clause with a null-safe equality, e.g.:</p>
+   * <pre><code>
+   * UPDATE user SET ..., modify_time = #{obj.modifyTime}
+   * WHERE id = #{obj.id} AND delete_time IS NULL
+   *   AND modify_time &lt;=&gt; #{expectedModifyTime}
+   * </code></pre>
+   * <p>On H2, the comparison should be written as
+   * {@code modify_time IS NOT DISTINCT FROM #{expectedModifyTime}}.</p>
+   *
+   * @param obj
+   *     The new data of the existing entity to be updated, identified by its
+   *     ID.
+   * @param expectedModifyTime
+   *     The modification time of the entity when it was read, or {@code null}
+   *     if it had never been modified.
+   * @return
+   *     The number of entities updated by this operation, or 0 if the specified
+   *     entity does not exist, has been marked as deleted, or has been
+   *     modified since the specified time.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  long updateIfUnmodified(@Param("obj") T obj,
+      @Param("expectedModifyTime") @Nullable Instant expectedModifyTime)
+      throws DataAccessException;
+
+  /**
+   * Flushes the statements batched in the current session.
+   *
+   * <p>If this Mapper is bound to a MyBatis session using the
+   * {@code ExecutorType.BATCH} executor, the statements executed since the
+   * last flushing are sent to the database in a single round-trip; otherwise
+   * the statements have already been executed and this function does
+   * nothing.</p>
+   *
+   * @return
+   *     The results of the batched statements, or an empty list if this Mapper
+   *     is not bound to a session using the batch executor.
+   * @throws DataAccessException
+   *     If any data access error occurs.
+   */
+  @Flush
+  List<BatchResult> flush() throws DataAccessException;
 }
@@ -0,0 +1,60 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+/**
+ * The interface of the recorders of the metrics of the DAO operations.
+ *
+ * <p>The recorder is called once at the end of every instrumented operation of
+ * a DAO whose {@link ltd.qubit.commons.dao.Dao#getMetricsRecorder()} returns
+ * it. The arguments are all primitives, enumerators, interned names or
+ * classes, so that recording the metrics of an operation needs not allocate
+ * any object. The recorders are called concurrently and should not block.</p>
+ *
+ * <p>An implementation may forward the metrics to a monitoring library, e.g.,
+ * to the Micrometer timers and counters tagged with the entity name and the
+ * operation type, which should be looked up once and then kept in a table
+ * indexed by {@link DaoOperationType#ordinal()}. The
+ * {@link HistogramMetricsRecorder} keeps the metrics in memory.</p>
+ *
+ * @author Haixing Hu
+ */
+public interface DaoMetricsRecorder {
+
+  /**
+   * Records a successful operation.
+   *
+   * @param entityName
+   *     The name of the entity accessed by the operation.
+   * @param operation
+   *     The type of the operation.
+   * @param elapsedNanos
+   *     The elapsed time of the operation, in nanoseconds.
+   * @param rows
+   *     The number of entities affected or returned by the operation.
+   */
+  void recordSuccess(String entityName, DaoOperationType operation,
+      long elapsedNanos, long rows);
+
+  /**
+   * Records a failed operation.
+   *
+   * @param entityName
+   *     The name of the entity accessed by the operation.
+   * @param operation
+   *     The type of the operation.
+   * @param elapsedNanos
+   *     The elapsed time of the operation, in nanoseconds.
+   * @param errorType
+   *     The class of the exception thrown by the operation, which is the
+   *     translated exception if the exception translation is enabled.
+   */
+  void recordFailure(String entityName, DaoOperationType operation,
+      long elapsedNanos, Class<? extends Throwable> errorType);
+}
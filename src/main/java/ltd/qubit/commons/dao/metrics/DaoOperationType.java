@@ -0,0 +1,139 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+/**
+ * The types of the DAO operations whose metrics are recorded.
+ *
+ * @author Haixing Hu
+ */
+public enum DaoOperationType {
+
+  /**
+   * Adds an entity.
+   */
+  ADD,
+
+  /**
+   * Adds a collection of entities in batches.
+   */
+  ADD_ALL,
+
+  /**
+   * Adds a collection of entities with multi-row statements.
+   */
+  ADD_MULTI,
+
+  /**
+   * Adds an entity or updates the existing entity with the same unique key.
+   */
+  ADD_OR_UPDATE,
+
+  /**
+   * Adds or updates a collection of entities in batches.
+   */
+  ADD_OR_UPDATE_ALL,
+
+  /**
+   * Tests the existence of an entity.
+   */
+  EXIST,
+
+  /**
+   * Gets an entity by its ID.
+   */
+  GET,
+
+  /**
+   * Gets a collection of entities by their IDs.
+   */
+  GET_ALL,
+
+  /**
+   * Counts the entities matching a filter.
+   */
+  COUNT,
+
+  /**
+   * Lists the entities matching a filter.
+   */
+  LIST,
+
+  /**
+   * Counts the entities matching a filter, served by the count cache without
+   * accessing the database.
+   */
+  CACHED_COUNT,
+
+  /**
+   * Estimates the number of all entities from the statistics of the table.
+   */
+  APPROXIMATE_COUNT,
+
+  /**
+   * Lists the entities matching a filter, served by the list cache without
+   * accessing the database.
+   */
+  CACHED_LIST,
+
+  /**
+   * Updates an entity.
+   */
+  UPDATE,
+
+  /**
+   * Updates a collection of entities in batches.
+   */
+  UPDATE_ALL,
+
+  /**
+   * Marks an entity as deleted.
+   */
+  DELETE,
+
+  /**
+   * Marks a collection of entities as deleted by their IDs.
+   */
+  DELETE_ALL,
+
+  /**
+   * Marks the entities matching a filter as deleted.
+   */
+  DELETE_WHERE,
+
+  /**
+   * Restores a deleted entity.
+   */
+  RESTORE,
+
+  /**
+   * Restores a collection of deleted entities by their IDs.
+   */
+  RESTORE_ALL,
+
+  /**
+   * Purges a deleted entity.
+   */
+  PURGE,
+
+  /**
+   * Purges all the deleted entities.
+   */
+  PURGE_ALL,
+
+  /**
+   * Erases an entity.
+   */
+  ERASE,
+
+  /**
+   * Clears all the entities.
+   */
+  CLEAR
+}
@@ -0,0 +1,110 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link DaoMetricsRecorder} keeping the metrics in memory.
+ *
+ * <p>The metrics of every entity and operation type are kept in a
+ * {@link OperationMetrics}, with a {@link LatencyHistogram} of the latencies,
+ * the numbers of calls, failures and rows, and the numbers of failures by the
+ * types of the exceptions. Once the metrics of an entity are created by its
+ * first operation, recording an operation is lock-free and allocation-free.
+ * The same recorder may be shared by the DAOs of all entities.</p>
+ *
+ * @author Haixing Hu
+ */
+public class HistogramMetricsRecorder implements DaoMetricsRecorder {
+
+  private static final DaoOperationType[] OPERATIONS =
+      DaoOperationType.values();
+
+  private final ConcurrentHashMap<String, OperationMetrics[]> metrics =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public void recordSuccess(final String entityName,
+      final DaoOperationType operation, final long elapsedNanos,
+      final long rows) {
+    getOrCreate(entityName)[operation.ordinal()]
+        .recordSuccess(elapsedNanos, rows);
+  }
+
+  @Override
+  public void recordFailure(final String entityName,
+      final DaoOperationType operation, final long elapsedNanos,
+      final Class<? extends Throwable> errorType) {
+    getOrCreate(entityName)[operation.ordinal()]
+        .recordFailure(elapsedNanos, errorType);
+  }
+
+  /**
+   * Gets the metrics of an operation type of the DAOs of an entity.
+   *
+   * @param entityName
+   *     The name of the entity.
+   * @param operation
+   *     The type of the operation.
+   * @return
+   *     The metrics of the operation type of the DAOs of the entity, or
+   *     {@code null} if no operation of the entity has been recorded.
+   */
+  @Nullable
+  public OperationMetrics getMetrics(final String entityName,
+      final DaoOperationType operation) {
+    final OperationMetrics[] array = metrics.get(entityName);
+    return (array == null ? null : array[operation.ordinal()]);
+  }
+
+  /**
+   * Gets the metrics of all the recorded operations.
+   *
+   * @return
+   *     The metrics of all the operations called at least once.
+   */
+  public List<OperationMetrics> getAllMetrics() {
+    final List<OperationMetrics> result = new ArrayList<>();
+    for (final OperationMetrics[] array : metrics.values()) {
+      for (final OperationMetrics m : array) {
+        if (m.getCalls() > 0) {
+          result.add(m);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Removes all the recorded metrics.
+   */
+  public void clear() {
+    metrics.clear();
+  }
+
+  private OperationMetrics[] getOrCreate(final String entityName) {
+    final OperationMetrics[] array = metrics.get(entityName);
+    if (array != null) {
+      return array;
+    }
+    return metrics.computeIfAbsent(entityName, (name) -> {
+      final OperationMetrics[] created =
+          new OperationMetrics[OPERATIONS.length];
+      for (final DaoOperationType op : OPERATIONS) {
+        created[op.ordinal()] = new OperationMetrics(name, op);
+      }
+      return created;
+    });
+  }
+}
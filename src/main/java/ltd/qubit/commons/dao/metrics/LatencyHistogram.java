@@ -0,0 +1,149 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies with logarithmic buckets.
+ *
+ * <p>Like the HDR histograms, every power of two is divided into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so the values are recorded with a
+ * relative error of at most 12.5% over the whole range of {@code long}, in a
+ * fixed array of counters. Recording a value only increments a few atomic
+ * counters and never allocates; the snapshots read the counters without
+ * stopping the writers, so they may be slightly inconsistent under
+ * concurrent updates.</p>
+ *
+ * @author Haixing Hu
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of bits of the sub-bucket index.
+   */
+  public static final int SUB_BUCKET_BITS = 3;
+
+  /**
+   * The number of sub-buckets of every power of two.
+   */
+  public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1)
+      * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a value.
+   *
+   * @param value
+   *     The value to be recorded. The negative values are recorded as zero.
+   */
+  public void record(final long value) {
+    final long v = Math.max(value, 0L);
+    counts.incrementAndGet(indexOf(v));
+    count.increment();
+    sum.add(v);
+    long current = max.get();
+    while (v > current && !max.compareAndSet(current, v)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * Gets the number of recorded values.
+   *
+   * @return
+   *     The number of recorded values.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Gets the maximum recorded value.
+   *
+   * @return
+   *     The maximum recorded value, or 0 if no value was recorded.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return
+   *     The mean of the recorded values, or 0 if no value was recorded.
+   */
+  public double getMean() {
+    final long n = count.sum();
+    return (n == 0 ? 0.0 : (double) sum.sum() / n);
+  }
+
+  /**
+   * Gets the value at a percentile of the recorded values.
+   *
+   * @param percentile
+   *     The percentile, between 0 and 100.
+   * @return
+   *     The upper bound of the bucket containing the value at the specified
+   *     percentile, which is never greater than the maximum recorded value, or
+   *     0 if no value was recorded.
+   */
+  public long getValueAtPercentile(final double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("The percentile must be between 0 "
+          + "and 100: " + percentile);
+    }
+    long total = 0;
+    for (int i = 0; i < BUCKETS; ++i) {
+      total += counts.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    final long target =
+        Math.max(1L, (long) Math.ceil(total * percentile / 100));
+    long cumulative = 0;
+    for (int i = 0; i < BUCKETS; ++i) {
+      cumulative += counts.get(i);
+      if (cumulative >= target) {
+        return Math.min(upperBoundOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  static int indexOf(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int exponent = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+    final int shift = exponent - SUB_BUCKET_BITS;
+    final int sub = (int) (value >>> shift) - SUB_BUCKETS;
+    return (shift + 1) * SUB_BUCKETS + sub;
+  }
+
+  static long upperBoundOf(final int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int shift = index / SUB_BUCKETS - 1;
+    final long sub = index % SUB_BUCKETS;
+    final long lower = (SUB_BUCKETS + sub) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,128 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of an operation type of the DAOs of an entity, recorded by the
+ * {@link HistogramMetricsRecorder}.
+ *
+ * @author Haixing Hu
+ */
+public class OperationMetrics {
+
+  private final String entityName;
+  private final DaoOperationType operation;
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder rows = new LongAdder();
+  private final ConcurrentHashMap<Class<? extends Throwable>, LongAdder>
+      errors = new ConcurrentHashMap<>();
+
+  OperationMetrics(final String entityName, final DaoOperationType operation) {
+    this.entityName = entityName;
+    this.operation = operation;
+  }
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public DaoOperationType getOperation() {
+    return operation;
+  }
+
+  /**
+   * Gets the histogram of the latencies of both successful and failed calls,
+   * in nanoseconds.
+   *
+   * @return
+   *     The histogram of the latencies.
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * Gets the number of calls, including the failed ones.
+   *
+   * @return
+   *     The number of calls.
+   */
+  public long getCalls() {
+    return latency.getCount();
+  }
+
+  /**
+   * Gets the number of failed calls.
+   *
+   * @return
+   *     The number of failed calls.
+   */
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  /**
+   * Gets the total number of entities affected or returned by the successful
+   * calls.
+   *
+   * @return
+   *     The total number of entities affected or returned.
+   */
+  public long getRows() {
+    return rows.sum();
+  }
+
+  /**
+   * Gets the numbers of failed calls by the types of the thrown exceptions.
+   *
+   * @return
+   *     A snapshot of the numbers of failed calls by the types of the thrown
+   *     exceptions.
+   */
+  public Map<Class<? extends Throwable>, Long> getErrors() {
+    final Map<Class<? extends Throwable>, Long> result = new HashMap<>();
+    errors.forEach((type, count) -> result.put(type, count.sum()));
+    return result;
+  }
+
+  void recordSuccess(final long elapsedNanos, final long rowCount) {
+    latency.record(elapsedNanos);
+    rows.add(rowCount);
+  }
+
+  void recordFailure(final long elapsedNanos,
+      final Class<? extends Throwable> errorType) {
+    latency.record(elapsedNanos);
+    failures.increment();
+    LongAdder counter = errors.get(errorType);
+    if (counter == null) {
+      counter = errors.computeIfAbsent(errorType, (k) -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  @Override
+  public String toString() {
+    return "OperationMetrics{entityName=" + entityName
+        + ", operation=" + operation
+        + ", calls=" + getCalls()
+        + ", failures=" + getFailures()
+        + ", rows=" + getRows()
+        + ", mean=" + latency.getMean()
+        + ", p99=" + latency.getValueAtPercentile(99)
+        + ", max=" + latency.getMax()
+        + "}";
+  }
+}
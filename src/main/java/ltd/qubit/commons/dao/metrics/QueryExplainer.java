@@ -0,0 +1,38 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+import javax.annotation.Nullable;
+
+/**
+ * The interface of the functions explaining the execution plans of the slow
+ * query operations detected by the {@link SlowOperationDetector}.
+ *
+ * <p>An implementation typically renders the SQL statement of the operation,
+ * e.g., from the {@code BoundSql} of the corresponding MyBatis mapped
+ * statement with the filter, sort request, limit and offset as parameters,
+ * and runs {@code EXPLAIN} on it with a separate connection.</p>
+ *
+ * @author Haixing Hu
+ */
+@FunctionalInterface
+public interface QueryExplainer {
+
+  /**
+   * Explains the execution plan of a slow operation.
+   *
+   * @param operation
+   *     The slow operation to be explained.
+   * @return
+   *     The execution plan of the operation, or {@code null} if it cannot be
+   *     explained.
+   */
+  @Nullable
+  String explain(SlowOperation operation);
+}
@@ -0,0 +1,135 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.annotation.Nullable;
+
+import ltd.qubit.commons.sql.Criterion;
+import ltd.qubit.commons.sql.SortRequest;
+
+/**
+ * A query operation of a DAO which took longer than the threshold of the
+ * {@link SlowOperationDetector}.
+ *
+ * @author Haixing Hu
+ */
+public final class SlowOperation {
+
+  private final Instant time;
+  private final String entityName;
+  private final DaoOperationType operation;
+  private final long elapsedNanos;
+  @Nullable
+  private final Criterion<?> filter;
+  @Nullable
+  private final SortRequest<?> sortRequest;
+  @Nullable
+  private final Integer limit;
+  @Nullable
+  private final Long offset;
+  @Nullable
+  private final String plan;
+
+  SlowOperation(final Instant time, final String entityName,
+      final DaoOperationType operation, final long elapsedNanos,
+      @Nullable final Criterion<?> filter,
+      @Nullable final SortRequest<?> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset,
+      @Nullable final String plan) {
+    this.time = time;
+    this.entityName = entityName;
+    this.operation = operation;
+    this.elapsedNanos = elapsedNanos;
+    this.filter = filter;
+    this.sortRequest = sortRequest;
+    this.limit = limit;
+    this.offset = offset;
+    this.plan = plan;
+  }
+
+  /**
+   * Gets the time when the operation finished.
+   *
+   * @return
+   *     The time when the operation finished.
+   */
+  public Instant getTime() {
+    return time;
+  }
+
+  public String getEntityName() {
+    return entityName;
+  }
+
+  public DaoOperationType getOperation() {
+    return operation;
+  }
+
+  public Duration getElapsed() {
+    return Duration.ofNanos(elapsedNanos);
+  }
+
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  @Nullable
+  public Criterion<?> getFilter() {
+    return filter;
+  }
+
+  @Nullable
+  public SortRequest<?> getSortRequest() {
+    return sortRequest;
+  }
+
+  @Nullable
+  public Integer getLimit() {
+    return limit;
+  }
+
+  @Nullable
+  public Long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Gets the execution plan of the operation.
+   *
+   * @return
+   *     The execution plan of the operation, or {@code null} if the operation
+   *     was not sampled for explaining.
+   */
+  @Nullable
+  public String getPlan() {
+    return plan;
+  }
+
+  SlowOperation withPlan(@Nullable final String plan) {
+    return new SlowOperation(time, entityName, operation, elapsedNanos, filter,
+        sortRequest, limit, offset, plan);
+  }
+
+  @Override
+  public String toString() {
+    return "SlowOperation{time=" + time
+        + ", entityName=" + entityName
+        + ", operation=" + operation
+        + ", elapsed=" + getElapsed()
+        + ", filter=" + filter
+        + ", sortRequest=" + sortRequest
+        + ", limit=" + limit
+        + ", offset=" + offset
+        + ", plan=" + plan
+        + "}";
+  }
+}
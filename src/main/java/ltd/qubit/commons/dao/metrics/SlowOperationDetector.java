@@ -0,0 +1,306 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.metrics;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ltd.qubit.commons.sql.Criterion;
+import ltd.qubit.commons.sql.SortRequest;
+
+/**
+ * Detects the query operations of DAOs which take longer than a threshold.
+ *
+ * <p>The threshold may be configured per entity, falling back to a default
+ * threshold. A detected slow operation is logged as a warning, together with
+ * its filter, sort request, limit and offset, and kept in a fixed-size ring
+ * buffer, where the oldest operations are overwritten by the newest ones. The
+ * ring buffer is lock-free, and the operations faster than the threshold cost
+ * only a map lookup and a comparison.</p>
+ *
+ * <p>If a {@link QueryExplainer} is configured, one out of every
+ * {@code sampleRate} slow operations is explained after the operation
+ * completes, and the execution plan is kept with the operation. This helps to
+ * find the filters causing full table scans, and the missing indexes. Since
+ * running {@code EXPLAIN} costs another round-trip to the database, and
+ * possibly another connection, the explainer should be configured with an
+ * executor by {@link #setExplainer(QueryExplainer, int, Executor)}, so that
+ * the operations are explained in the background and the plans are attached
+ * to them in the ring buffer when available. Otherwise the operations are
+ * explained synchronously, on the thread calling the DAO, which delays the
+ * return of the already slow operation.</p>
+ *
+ * @author Haixing Hu
+ */
+public class SlowOperationDetector {
+
+  /**
+   * The default capacity of the ring buffer of slow operations.
+   */
+  public static final int DEFAULT_CAPACITY = 256;
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(SlowOperationDetector.class);
+
+  private final long defaultThresholdNanos;
+  private final ConcurrentHashMap<String, Long> thresholds =
+      new ConcurrentHashMap<>();
+  private final AtomicReferenceArray<SlowOperation> buffer;
+  private final AtomicLong next = new AtomicLong();
+  private final AtomicLong explainCounter = new AtomicLong();
+  private final Clock clock;
+  @Nullable
+  private volatile QueryExplainer explainer;
+  @Nullable
+  private volatile Executor explainExecutor;
+  private volatile int sampleRate = 1;
+
+  /**
+   * Creates a new {@code SlowOperationDetector} with the default capacity.
+   *
+   * @param defaultThreshold
+   *     The default threshold of the elapsed time of the slow operations.
+   */
+  public SlowOperationDetector(final Duration defaultThreshold) {
+    this(defaultThreshold, DEFAULT_CAPACITY, Clock.systemUTC());
+  }
+
+  /**
+   * Creates a new {@code SlowOperationDetector}.
+   *
+   * @param defaultThreshold
+   *     The default threshold of the elapsed time of the slow operations.
+   * @param capacity
+   *     The maximum number of the most recent slow operations kept in the
+   *     ring buffer.
+   * @param clock
+   *     The clock used to timestamp the slow operations.
+   */
+  public SlowOperationDetector(final Duration defaultThreshold,
+      final int capacity, final Clock clock) {
+    if (defaultThreshold.isNegative()) {
+      throw new IllegalArgumentException("The threshold must not be negative: "
+          + defaultThreshold);
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("The capacity must be positive: "
+          + capacity);
+    }
+    this.defaultThresholdNanos = defaultThreshold.toNanos();
+    this.buffer = new AtomicReferenceArray<>(capacity);
+    this.clock = clock;
+  }
+
+  /**
+   * Sets the threshold of the elapsed time of the slow operations of an
+   * entity.
+   *
+   * @param entityName
+   *     The name of the entity.
+   * @param threshold
+   *     The threshold of the elapsed time of the slow operations of the
+   *     entity, or {@code null} to use the default threshold.
+   */
+  public void setThreshold(final String entityName,
+      @Nullable final Duration threshold) {
+    if (threshold == null) {
+      thresholds.remove(entityName);
+    } else if (threshold.isNegative()) {
+      throw new IllegalArgumentException("The threshold must not be negative: "
+          + threshold);
+    } else {
+      thresholds.put(entityName, threshold.toNanos());
+    }
+  }
+
+  /**
+   * Gets the threshold of the elapsed time of the slow operations of an
+   * entity.
+   *
+   * @param entityName
+   *     The name of the entity.
+   * @return
+   *     The threshold of the elapsed time of the slow operations of the entity.
+   */
+  public Duration getThreshold(final String entityName) {
+    return Duration.ofNanos(getThresholdNanos(entityName));
+  }
+
+  /**
+   * Sets the explainer of the slow operations, which explains the operations
+   * synchronously on the threads calling the DAOs.
+   *
+   * <p><b>Note:</b> The explaining costs another round-trip to the database
+   * and is added to the latency of the slow operations. Prefer
+   * {@link #setExplainer(QueryExplainer, int, Executor)} in production.</p>
+   *
+   * @param explainer
+   *     The explainer of the slow operations, or {@code null} to disable the
+   *     explaining.
+   * @param sampleRate
+   *     One out of every {@code sampleRate} slow operations is explained.
+   */
+  public void setExplainer(@Nullable final QueryExplainer explainer,
+      final int sampleRate) {
+    setExplainer(explainer, sampleRate, null);
+  }
+
+  /**
+   * Sets the explainer of the slow operations, which explains the operations
+   * on the specified executor.
+   *
+   * <p>A slow operation is kept in the ring buffer without its execution plan
+   * at once, and the plan is attached to it when the explaining completes,
+   * unless it has been overwritten by then. The operations rejected by the
+   * executor are not explained.</p>
+   *
+   * @param explainer
+   *     The explainer of the slow operations, or {@code null} to disable the
+   *     explaining.
+   * @param sampleRate
+   *     One out of every {@code sampleRate} slow operations is explained.
+   * @param executor
+   *     The executor used to explain the slow operations, or {@code null} to
+   *     explain them on the threads calling the DAOs.
+   */
+  public void setExplainer(@Nullable final QueryExplainer explainer,
+      final int sampleRate, @Nullable final Executor executor) {
+    if (sampleRate <= 0) {
+      throw new IllegalArgumentException("The sample rate must be positive: "
+          + sampleRate);
+    }
+    this.sampleRate = sampleRate;
+    this.explainExecutor = executor;
+    this.explainer = explainer;
+  }
+
+  /**
+   * Checks a completed query operation, and keeps it if it is slow.
+   *
+   * @param entityName
+   *     The name of the entity accessed by the operation.
+   * @param operation
+   *     The type of the operation.
+   * @param elapsedNanos
+   *     The elapsed time of the operation, in nanoseconds.
+   * @param filter
+   *     The filter of the operation, or {@code null} if none.
+   * @param sortRequest
+   *     The sort request of the operation, or {@code null} if none.
+   * @param limit
+   *     The limit of the operation, or {@code null} if none.
+   * @param offset
+   *     The offset of the operation, or {@code null} if none.
+   * @return
+   *     {@code true} if the operation is slow; {@code false} otherwise.
+   */
+  public boolean check(final String entityName,
+      final DaoOperationType operation, final long elapsedNanos,
+      @Nullable final Criterion<?> filter,
+      @Nullable final SortRequest<?> sortRequest,
+      @Nullable final Integer limit, @Nullable final Long offset) {
+    if (elapsedNanos < getThresholdNanos(entityName)) {
+      return false;
+    }
+    SlowOperation slow = new SlowOperation(clock.instant(), entityName,
+        operation, elapsedNanos, filter, sortRequest, limit, offset, null);
+    final QueryExplainer currentExplainer = explainer;
+    final Executor executor = explainExecutor;
+    final boolean explaining = (currentExplainer != null)
+        && (explainCounter.getAndIncrement() % sampleRate == 0);
+    if (explaining && (executor == null)) {
+      slow = slow.withPlan(explain(currentExplainer, slow));
+    }
+    final int slot = (int) (next.getAndIncrement() % buffer.length());
+    buffer.set(slot, slow);
+    if (explaining && (executor != null)) {
+      explainLater(currentExplainer, executor, slot, slow);
+    }
+    LOGGER.warn("Slow {} of {} took {} ms: filter = {}, sortRequest = {}, "
+        + "limit = {}, offset = {}", operation, entityName,
+        elapsedNanos / 1_000_000, filter, sortRequest, limit, offset);
+    return true;
+  }
+
+  /**
+   * Gets the most recent slow operations.
+   *
+   * @return
+   *     The slow operations kept in the ring buffer, the newest first.
+   */
+  public List<SlowOperation> getRecent() {
+    final int capacity = buffer.length();
+    final long last = next.get();
+    final long first = Math.max(0, last - capacity);
+    final List<SlowOperation> result = new ArrayList<>();
+    for (long i = last - 1; i >= first; --i) {
+      final SlowOperation op = buffer.get((int) (i % capacity));
+      if (op != null) {
+        result.add(op);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the total number of detected slow operations, including the ones
+   * overwritten in the ring buffer.
+   *
+   * @return
+   *     The total number of detected slow operations.
+   */
+  public long getDetectedCount() {
+    return next.get();
+  }
+
+  private long getThresholdNanos(final String entityName) {
+    final Long threshold = thresholds.get(entityName);
+    return (threshold == null ? defaultThresholdNanos : threshold);
+  }
+
+  private void explainLater(final QueryExplainer explainer,
+      final Executor executor, final int slot, final SlowOperation slow) {
+    try {
+      executor.execute(() -> {
+        final String plan = explain(explainer, slow);
+        if (plan != null) {
+          // skipped if the slot has been overwritten by a newer operation
+          buffer.compareAndSet(slot, slow, slow.withPlan(plan));
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      LOGGER.debug("The explaining of the slow {} of {} is rejected: {}",
+          slow.getOperation(), slow.getEntityName(), e.getMessage());
+    }
+  }
+
+  @Nullable
+  private static String explain(final QueryExplainer explainer,
+      final SlowOperation slow) {
+    try {
+      return explainer.explain(slow);
+    } catch (final RuntimeException e) {
+      LOGGER.error("Failed to explain the slow {} of {}: {}",
+          slow.getOperation(), slow.getEntityName(), e.getMessage(), e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,189 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.model;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * The options of a deletion performed in chunks ordered by the primary key.
+ *
+ * <p>Each chunk is deleted by a short statement, so that the locks are held
+ * only for a short time and the replicas could catch up between the chunks.
+ * After each chunk the deletion pauses for at least {@link #getPause()}, and
+ * longer if needed to keep the rate under {@link #getMaxRowsPerSecond()}. If a
+ * probe of the replica lag is provided, the deletion also waits until the lag
+ * falls below {@link #getMaxReplicaLag()} before deleting the next chunk.</p>
+ *
+ * @author Haixing Hu
+ * @see ChunkedDeleteProgress
+ */
+public class ChunkedDeleteOptions {
+
+  /**
+   * The default maximum number of entities deleted by a chunk.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  /**
+   * The default pause between two chunks.
+   */
+  public static final Duration DEFAULT_PAUSE = Duration.ofMillis(100);
+
+  /**
+   * The default maximum replica lag allowed before deleting a chunk.
+   */
+  public static final Duration DEFAULT_MAX_REPLICA_LAG = Duration.ofSeconds(1);
+
+  /**
+   * The default interval of polling the replica lag while waiting for the
+   * replicas to catch up.
+   */
+  public static final Duration DEFAULT_REPLICA_LAG_POLL_INTERVAL =
+      Duration.ofSeconds(1);
+
+  private int chunkSize = DEFAULT_CHUNK_SIZE;
+  private Duration pause = DEFAULT_PAUSE;
+  private long maxRowsPerSecond = 0;
+  @Nullable
+  private Supplier<Duration> replicaLag;
+  private Duration maxReplicaLag = DEFAULT_MAX_REPLICA_LAG;
+  private Duration replicaLagPollInterval = DEFAULT_REPLICA_LAG_POLL_INTERVAL;
+  @Nullable
+  private Consumer<ChunkedDeleteProgress> progressListener;
+  @Nullable
+  private BooleanSupplier stopCondition;
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Sets the maximum number of entities deleted by a chunk.
+   *
+   * @param chunkSize
+   *     The maximum number of entities deleted by a chunk, which must be
+   *     positive.
+   */
+  public void setChunkSize(final int chunkSize) {
+    if (chunkSize <= 0) {
+      throw new IllegalArgumentException("The chunk size must be positive: "
+          + chunkSize);
+    }
+    this.chunkSize = chunkSize;
+  }
+
+  public Duration getPause() {
+    return pause;
+  }
+
+  public void setPause(final Duration pause) {
+    this.pause = pause;
+  }
+
+  public long getMaxRowsPerSecond() {
+    return maxRowsPerSecond;
+  }
+
+  /**
+   * Sets the maximum deletion rate.
+   *
+   * @param maxRowsPerSecond
+   *     The maximum number of entities deleted per second, or 0 if the rate is
+   *     only limited by the pause between the chunks.
+   */
+  public void setMaxRowsPerSecond(final long maxRowsPerSecond) {
+    if (maxRowsPerSecond < 0) {
+      throw new IllegalArgumentException("The maximum rate must not be "
+          + "negative: " + maxRowsPerSecond);
+    }
+    this.maxRowsPerSecond = maxRowsPerSecond;
+  }
+
+  @Nullable
+  public Supplier<Duration> getReplicaLag() {
+    return replicaLag;
+  }
+
+  /**
+   * Sets the probe of the replica lag.
+   *
+   * @param replicaLag
+   *     The function returning the current lag of the slowest replica, e.g.,
+   *     from the {@code Seconds_Behind_Source} of {@code SHOW REPLICA STATUS},
+   *     or {@code null} if the replica lag is not checked.
+   */
+  public void setReplicaLag(@Nullable final Supplier<Duration> replicaLag) {
+    this.replicaLag = replicaLag;
+  }
+
+  public Duration getMaxReplicaLag() {
+    return maxReplicaLag;
+  }
+
+  public void setMaxReplicaLag(final Duration maxReplicaLag) {
+    this.maxReplicaLag = maxReplicaLag;
+  }
+
+  public Duration getReplicaLagPollInterval() {
+    return replicaLagPollInterval;
+  }
+
+  public void setReplicaLagPollInterval(final Duration replicaLagPollInterval) {
+    this.replicaLagPollInterval = replicaLagPollInterval;
+  }
+
+  @Nullable
+  public Consumer<ChunkedDeleteProgress> getProgressListener() {
+    return progressListener;
+  }
+
+  /**
+   * Sets the listener of the progress.
+   *
+   * @param progressListener
+   *     The listener notified with the progress after each chunk, or
+   *     {@code null} if the progress is not reported.
+   */
+  public void setProgressListener(
+      @Nullable final Consumer<ChunkedDeleteProgress> progressListener) {
+    this.progressListener = progressListener;
+  }
+
+  @Nullable
+  public BooleanSupplier getStopCondition() {
+    return stopCondition;
+  }
+
+  /**
+   * Sets the condition of stopping the deletion.
+   *
+   * @param stopCondition
+   *     The condition checked before each chunk, which stops the deletion
+   *     when it returns {@code true}, or {@code null} if the deletion could
+   *     only be stopped by interrupting the current thread.
+   */
+  public void setStopCondition(@Nullable final BooleanSupplier stopCondition) {
+    this.stopCondition = stopCondition;
+  }
+
+  @Override
+  public String toString() {
+    return "ChunkedDeleteOptions{chunkSize=" + chunkSize
+        + ", pause=" + pause
+        + ", maxRowsPerSecond=" + maxRowsPerSecond
+        + ", maxReplicaLag=" + maxReplicaLag
+        + ", replicaLagPollInterval=" + replicaLagPollInterval
+        + "}";
+  }
+}
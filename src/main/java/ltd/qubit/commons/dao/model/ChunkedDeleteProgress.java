@@ -0,0 +1,126 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * The progress of a deletion performed in chunks ordered by the primary key.
+ *
+ * <p>A progress which is not finished could be passed back to the DAO to
+ * resume the deletion after the last deleted chunk, e.g., after the deletion
+ * was stopped. Since a failed deletion throws an exception instead of
+ * returning its progress, the last progress passed to the progress listener
+ * should be kept to resume a failed deletion.</p>
+ *
+ * @author Haixing Hu
+ * @see ChunkedDeleteOptions
+ */
+public final class ChunkedDeleteProgress {
+
+  @Nullable
+  private final Long lastId;
+  private final long deleted;
+  private final long chunks;
+  private final Duration elapsed;
+  private final boolean finished;
+
+  /**
+   * Creates a new progress.
+   *
+   * @param lastId
+   *     The upper bound of the IDs of the deleted chunks, or {@code null} if
+   *     no chunk was deleted.
+   * @param deleted
+   *     The total number of deleted entities.
+   * @param chunks
+   *     The total number of deleted chunks.
+   * @param elapsed
+   *     The total time spent on the deletion, including the pauses.
+   * @param finished
+   *     Whether the deletion is finished.
+   */
+  public ChunkedDeleteProgress(@Nullable final Long lastId, final long deleted,
+      final long chunks, final Duration elapsed, final boolean finished) {
+    this.lastId = lastId;
+    this.deleted = deleted;
+    this.chunks = chunks;
+    this.elapsed = elapsed;
+    this.finished = finished;
+  }
+
+  /**
+   * Gets the upper bound of the IDs of the deleted chunks.
+   *
+   * @return
+   *     The upper bound of the IDs of the deleted chunks, after which the
+   *     deletion should be resumed, or {@code null} if no chunk was deleted.
+   */
+  @Nullable
+  public Long getLastId() {
+    return lastId;
+  }
+
+  public long getDeleted() {
+    return deleted;
+  }
+
+  public long getChunks() {
+    return chunks;
+  }
+
+  public Duration getElapsed() {
+    return elapsed;
+  }
+
+  /**
+   * Tests whether the deletion is finished.
+   *
+   * @return
+   *     {@code true} if all the chunks were deleted; {@code false} if the
+   *     deletion was stopped before the last chunk.
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final ChunkedDeleteProgress other = (ChunkedDeleteProgress) o;
+    return Objects.equals(lastId, other.lastId)
+        && (deleted == other.deleted)
+        && (chunks == other.chunks)
+        && elapsed.equals(other.elapsed)
+        && (finished == other.finished);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(lastId, deleted, chunks, elapsed, finished);
+  }
+
+  @Override
+  public String toString() {
+    return "ChunkedDeleteProgress{lastId=" + lastId
+        + ", deleted=" + deleted
+        + ", chunks=" + chunks
+        + ", elapsed=" + elapsed
+        + ", finished=" + finished
+        + "}";
+  }
+}
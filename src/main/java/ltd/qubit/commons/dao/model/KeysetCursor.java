@@ -0,0 +1,326 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import org.springframework.beans.BeanWrapperImpl;
+
+import ltd.qubit.commons.sql.SortOrder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The position of a row in a sequence of entities sorted by a sort field and
+ * then by the ID, used by the keyset (a.k.a. seek) pagination.
+ *
+ * <p>A cursor records the sort field, the sort order, and the value of the
+ * sort field and the ID of the last row of a page. The next page is obtained
+ * by the predicate {@code (sort_field, id) > (cursor.key, cursor.id)} for the
+ * ascending order, or {@code (sort_field, id) < (cursor.key, cursor.id)} for
+ * the descending order, whose cost does not depend on the position of the
+ * page.</p>
+ *
+ * <p>A cursor can be encoded to an opaque string, which can be passed to the
+ * clients and decoded later. Since the predicate depends on the sort order, a
+ * cursor must be used with the same sort field and sort order as the page it
+ * was created from; see {@link #matches(String, SortOrder)}.</p>
+ *
+ * @author Haixing Hu
+ */
+public final class KeysetCursor {
+
+  private static final char SEPARATOR = '\n';
+
+  private static final char NULL_TAG = '0';
+  private static final char STRING_TAG = 'S';
+  private static final char LONG_TAG = 'L';
+  private static final char DOUBLE_TAG = 'F';
+  private static final char DECIMAL_TAG = 'N';
+  private static final char BOOLEAN_TAG = 'B';
+  private static final char INSTANT_TAG = 'I';
+  private static final char DATE_TAG = 'D';
+  private static final char DATETIME_TAG = 'T';
+  private static final char TIME_TAG = 'H';
+
+  private static final char ASC_TAG = 'A';
+  private static final char DESC_TAG = 'D';
+
+  @Nullable
+  private final String field;
+
+  private final SortOrder order;
+
+  @Nullable
+  private final Object key;
+
+  private final Long id;
+
+  /**
+   * Creates a new cursor.
+   *
+   * @param field
+   *     The path of the sort field, or {@code null} if the entities are
+   *     sorted by their IDs only.
+   * @param order
+   *     The sort order of the entities.
+   * @param key
+   *     The value of the sort field of the row, which must be {@code null} if
+   *     and only if {@code field} is {@code null}.
+   * @param id
+   *     The ID of the row.
+   * @throws IllegalArgumentException
+   *     If {@code field} is {@code null} but {@code key} is not, or vice versa.
+   */
+  public KeysetCursor(@Nullable final String field, final SortOrder order,
+      @Nullable final Object key, final Long id) {
+    if ((field == null) != (key == null)) {
+      // a NULL key would make the seek predicate match no row, and silently
+      // end the scan
+      throw new IllegalArgumentException("The key of the cursor must be null "
+          + "if and only if the sort field is null: field = " + field
+          + ", key = " + key);
+    }
+    this.field = field;
+    this.order = Objects.requireNonNull(order, "order");
+    this.key = key;
+    this.id = Objects.requireNonNull(id, "id");
+  }
+
+  /**
+   * Creates the cursor pointing to a row.
+   *
+   * @param field
+   *     The path of the sort field, or {@code null} if the entities are
+   *     sorted by their IDs only.
+   * @param order
+   *     The sort order of the entities.
+   * @param row
+   *     The entity of the row, which must have an {@code id} property.
+   * @return
+   *     The cursor pointing to the specified row.
+   * @throws IllegalArgumentException
+   *     If the row has no valid ID, or its value of the sort field is
+   *     {@code null}.
+   */
+  public static KeysetCursor of(@Nullable final String field,
+      final SortOrder order, final Object row) {
+    final BeanWrapperImpl wrapper = new BeanWrapperImpl(row);
+    final Object id = wrapper.getPropertyValue("id");
+    if (!(id instanceof Number)) {
+      throw new IllegalArgumentException("The row has no valid ID: " + row);
+    }
+    final Object key = (field == null ? null : wrapper.getPropertyValue(field));
+    return new KeysetCursor(field, order, key, ((Number) id).longValue());
+  }
+
+  @Nullable
+  public String getField() {
+    return field;
+  }
+
+  public SortOrder getOrder() {
+    return order;
+  }
+
+  @Nullable
+  public Object getKey() {
+    return key;
+  }
+
+  public Long getId() {
+    return id;
+  }
+
+  /**
+   * Tests whether this cursor was created for the specified sort field and
+   * sort order.
+   *
+   * <p>Reusing a cursor with another sort field or the opposite sort order
+   * would silently skip or repeat rows, and must be rejected.</p>
+   *
+   * @param field
+   *     The path of the sort field, or {@code null} if the entities are
+   *     sorted by their IDs only.
+   * @param order
+   *     The sort order of the entities.
+   * @return
+   *     {@code true} if this cursor was created for the specified sort field
+   *     and sort order; {@code false} otherwise.
+   */
+  public boolean matches(@Nullable final String field, final SortOrder order) {
+    return Objects.equals(this.field, field) && (this.order == order);
+  }
+
+  /**
+   * Encodes this cursor to an opaque string.
+   *
+   * @return
+   *     The URL safe string encoded from this cursor.
+   * @throws IllegalArgumentException
+   *     If the type of the key of this cursor is not supported.
+   * @see #decode(String)
+   */
+  public String encode() {
+    final StringBuilder builder = new StringBuilder();
+    builder.append(getTag(key))
+           .append(SEPARATOR)
+           .append(order == SortOrder.DESC ? DESC_TAG : ASC_TAG)
+           .append(SEPARATOR)
+           .append(id)
+           .append(SEPARATOR)
+           .append(field == null ? "" : field)
+           .append(SEPARATOR);
+    if (key instanceof Enum) {
+      builder.append(((Enum<?>) key).name());
+    } else if (key != null) {
+      builder.append(key);
+    }
+    final byte[] bytes = builder.toString().getBytes(UTF_8);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /**
+   * Decodes a cursor from an opaque string.
+   *
+   * <p><b>Note:</b> The value of an enumeration sort field is decoded as the
+   * name of the enumerator.</p>
+   *
+   * @param str
+   *     The string encoded by {@link #encode()}.
+   * @return
+   *     The decoded cursor.
+   * @throws IllegalArgumentException
+   *     If the string is not a valid encoded cursor.
+   */
+  public static KeysetCursor decode(final String str) {
+    try {
+      final String text = new String(Base64.getUrlDecoder().decode(str), UTF_8);
+      final String[] parts = text.split(String.valueOf(SEPARATOR), 5);
+      if ((parts.length != 5) || (parts[0].length() != 1)
+          || (parts[1].length() != 1)) {
+        throw new IllegalArgumentException("Invalid cursor: " + str);
+      }
+      final SortOrder order = parseOrder(parts[1].charAt(0));
+      final Long id = Long.valueOf(parts[2]);
+      final String field = (parts[3].isEmpty() ? null : parts[3]);
+      final Object key = parseKey(parts[0].charAt(0), parts[4]);
+      if ((field == null) != (key == null)) {
+        throw new IllegalArgumentException("Invalid cursor: " + str);
+      }
+      return new KeysetCursor(field, order, key, id);
+    } catch (final NumberFormatException | DateTimeParseException e) {
+      throw new IllegalArgumentException("Invalid cursor: " + str, e);
+    }
+  }
+
+  private static char getTag(@Nullable final Object key) {
+    if (key == null) {
+      return NULL_TAG;
+    } else if ((key instanceof String) || (key instanceof Enum)) {
+      return STRING_TAG;
+    } else if ((key instanceof Long) || (key instanceof Integer)
+        || (key instanceof Short) || (key instanceof Byte)) {
+      return LONG_TAG;
+    } else if ((key instanceof Double) || (key instanceof Float)) {
+      return DOUBLE_TAG;
+    } else if (key instanceof BigDecimal) {
+      return DECIMAL_TAG;
+    } else if (key instanceof Boolean) {
+      return BOOLEAN_TAG;
+    } else if (key instanceof Instant) {
+      return INSTANT_TAG;
+    } else if (key instanceof LocalDate) {
+      return DATE_TAG;
+    } else if (key instanceof LocalDateTime) {
+      return DATETIME_TAG;
+    } else if (key instanceof LocalTime) {
+      return TIME_TAG;
+    } else {
+      throw new IllegalArgumentException("Unsupported type of the sort field: "
+          + key.getClass().getName());
+    }
+  }
+
+  private static SortOrder parseOrder(final char tag) {
+    switch (tag) {
+      case ASC_TAG:
+        return SortOrder.ASC;
+      case DESC_TAG:
+        return SortOrder.DESC;
+      default:
+        throw new IllegalArgumentException("Invalid sort order tag of the "
+            + "cursor: " + tag);
+    }
+  }
+
+  @Nullable
+  private static Object parseKey(final char tag, final String value) {
+    switch (tag) {
+      case NULL_TAG:
+        return null;
+      case STRING_TAG:
+        return value;
+      case LONG_TAG:
+        return Long.valueOf(value);
+      case DOUBLE_TAG:
+        return Double.valueOf(value);
+      case DECIMAL_TAG:
+        return new BigDecimal(value);
+      case BOOLEAN_TAG:
+        return Boolean.valueOf(value);
+      case INSTANT_TAG:
+        return Instant.parse(value);
+      case DATE_TAG:
+        return LocalDate.parse(value);
+      case DATETIME_TAG:
+        return LocalDateTime.parse(value);
+      case TIME_TAG:
+        return LocalTime.parse(value);
+      default:
+        throw new IllegalArgumentException("Invalid type tag of the cursor: "
+            + tag);
+    }
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final KeysetCursor other = (KeysetCursor) o;
+    return Objects.equals(field, other.field)
+        && (order == other.order)
+        && Objects.equals(key, other.key)
+        && Objects.equals(id, other.id);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(field, order, key, id);
+  }
+
+  @Override
+  public String toString() {
+    return "KeysetCursor{field=" + field + ", order=" + order + ", key=" + key
+        + ", id=" + id + "}";
+  }
+}
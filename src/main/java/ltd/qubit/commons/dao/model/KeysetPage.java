@@ -0,0 +1,100 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * A page of entities returned by the keyset pagination.
+ *
+ * @param <T>
+ *     The type of entities.
+ * @author Haixing Hu
+ * @see KeysetCursor
+ */
+public final class KeysetPage<T> {
+
+  private final List<T> content;
+
+  @Nullable
+  private final String nextCursor;
+
+  /**
+   * Creates a new page.
+   *
+   * @param content
+   *     The entities in this page.
+   * @param nextCursor
+   *     The opaque cursor pointing to the last entity of this page, or
+   *     {@code null} if this is the last page.
+   */
+  public KeysetPage(final List<T> content, @Nullable final String nextCursor) {
+    this.content = Collections.unmodifiableList(content);
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Gets the entities in this page.
+   *
+   * @return
+   *     The unmodifiable list of entities in this page.
+   */
+  public List<T> getContent() {
+    return content;
+  }
+
+  /**
+   * Gets the opaque cursor used to fetch the next page.
+   *
+   * @return
+   *     The opaque cursor used to fetch the next page, or {@code null} if this
+   *     is the last page.
+   */
+  @Nullable
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  /**
+   * Tests whether there is a next page.
+   *
+   * @return
+   *     {@code true} if there is a next page; {@code false} otherwise.
+   */
+  public boolean hasNext() {
+    return nextCursor != null;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final KeysetPage<?> other = (KeysetPage<?>) o;
+    return content.equals(other.content)
+        && Objects.equals(nextCursor, other.nextCursor);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(content, nextCursor);
+  }
+
+  @Override
+  public String toString() {
+    return "KeysetPage{content=" + content + ", nextCursor=" + nextCursor + "}";
+  }
+}
@@ -0,0 +1,87 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.model;
+
+/**
+ * The outcomes of adding an entity or updating the existing entity with the
+ * same unique key by a single upsert statement.
+ *
+ * <p>The outcome is derived from the number of rows affected by the statement
+ * and from the ID written back to the entity, and is only exact if both are
+ * reported by the database. In particular:</p>
+ * <ul>
+ * <li>On MySQL, with the {@code useAffectedRows=true} property of the JDBC
+ * driver and an upsert statement leaving the unchanged rows untouched, as
+ * shown by {@code AddableMapper.addOrUpdate()}, all the outcomes are
+ * exact.</li>
+ * <li>On MySQL without {@code useAffectedRows=true}, the driver reports 1
+ * for an unchanged row, which is reported as {@link #UPDATED} if the ID of
+ * the existing entity is written back, or as {@link #INSERTED} otherwise.</li>
+ * <li>On H2, whose {@code MERGE} statement reports 1 for both the inserted
+ * and updated rows and writes no ID back, every outcome is reported as
+ * {@link #INSERTED}.</li>
+ * <li>For the DAOs whose IDs are generated by the database instead of by
+ * {@code Dao.generateId()}, the written back ID could not be compared with
+ * a generated one, and an update is only recognized by the count 2 of
+ * MySQL.</li>
+ * <li>If the JDBC driver does not report the number of rows affected by a
+ * batched statement, the row is reported as {@link #UPDATED} if the ID of
+ * the existing entity is written back, or as {@link #INSERTED} otherwise, but
+ * never as {@link #UNCHANGED}.</li>
+ * </ul>
+ *
+ * @author Haixing Hu
+ */
+public enum UpsertResult {
+
+  /**
+   * A new entity was added, or an existing entity was updated by a database
+   * which could not report the update; see the class documentation.
+   */
+  INSERTED,
+
+  /**
+   * The existing entity with the same unique key was updated.
+   */
+  UPDATED,
+
+  /**
+   * The existing entity with the same unique key already had the same data,
+   * and was left unchanged.
+   */
+  UNCHANGED;
+
+  /**
+   * Gets the outcome of an upsert statement.
+   *
+   * <p>The number of affected rows follows the convention of the
+   * {@code INSERT ... ON DUPLICATE KEY UPDATE} statement of MySQL: 1 if a new
+   * row was inserted, 2 if an existing row was updated, and 0 if an existing
+   * row was left unchanged. Since some databases, e.g., H2 for its
+   * {@code MERGE} statement, report 1 in both of the first two cases, the
+   * update of an existing row could also be indicated separately.</p>
+   *
+   * @param count
+   *     The number of rows affected by the upsert statement, or a negative
+   *     value if the number is not reported, which is treated as 1.
+   * @param existing
+   *     Whether the statement is known to have hit an existing row.
+   * @return
+   *     The outcome of the upsert statement.
+   */
+  public static UpsertResult of(final long count, final boolean existing) {
+    if (count == 0) {
+      return UNCHANGED;
+    } else if (existing || (count > 1)) {
+      return UPDATED;
+    } else {
+      return INSERTED;
+    }
+  }
+}
@@ -0,0 +1,112 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.translator;
+
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+/**
+ * The metadata of a unique key or foreign key constraint, as derived from the
+ * message of a violation of the constraint.
+ *
+ * <p>The names of the fields and tables are in lowercase, ready to be used to
+ * build the translated exceptions.</p>
+ *
+ * @author Haixing Hu
+ */
+public final class ConstraintMetadata {
+
+  private final String name;
+  private final String field;
+  @Nullable
+  private final String referenceEntry;
+  @Nullable
+  private final String referenceField;
+
+  /**
+   * Creates the metadata of a unique key constraint.
+   *
+   * @param name
+   *     The name of the constraint or index, as reported by the database.
+   * @param field
+   *     The name of the field of the key.
+   */
+  public ConstraintMetadata(final String name, final String field) {
+    this(name, field, null, null);
+  }
+
+  /**
+   * Creates the metadata of a foreign key constraint.
+   *
+   * @param name
+   *     The name of the constraint, as reported by the database.
+   * @param field
+   *     The name of the referencing field.
+   * @param referenceEntry
+   *     The name of the referenced table.
+   * @param referenceField
+   *     The name of the referenced field.
+   */
+  public ConstraintMetadata(final String name, final String field,
+      @Nullable final String referenceEntry,
+      @Nullable final String referenceField) {
+    this.name = name;
+    this.field = field;
+    this.referenceEntry = referenceEntry;
+    this.referenceField = referenceField;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  @Nullable
+  public String getReferenceEntry() {
+    return referenceEntry;
+  }
+
+  @Nullable
+  public String getReferenceField() {
+    return referenceField;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if ((o == null) || (getClass() != o.getClass())) {
+      return false;
+    }
+    final ConstraintMetadata other = (ConstraintMetadata) o;
+    return name.equals(other.name)
+        && field.equals(other.field)
+        && Objects.equals(referenceEntry, other.referenceEntry)
+        && Objects.equals(referenceField, other.referenceField);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, field, referenceEntry, referenceField);
+  }
+
+  @Override
+  public String toString() {
+    return "ConstraintMetadata{name=" + name
+        + ", field=" + field
+        + ", referenceEntry=" + referenceEntry
+        + ", referenceField=" + referenceField
+        + "}";
+  }
+}
@@ -0,0 +1,161 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.translator;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A size-bounded cache of the metadata of the constraints, keyed by the names
+ * of the tables and the names of the constraints reported in the messages of
+ * their violations.
+ *
+ * <p>The cache is filled lazily by the translator: the first violation of a
+ * constraint derives its metadata from the message, and the following
+ * violations of the same constraint only extract the name of the constraint
+ * and look up the prebuilt metadata.</p>
+ *
+ * <p>The names of the constraints are only unique within their tables or
+ * schemas, so the constraints with the same name of different tables are
+ * cached separately. The unique keys and foreign keys are kept in separated
+ * maps, since MySQL creates an index with the same name as a foreign key.
+ * Since the number of
+ * constraints of a database is finite, the cache simply stops accepting new
+ * entries once it is full, instead of evicting the existing ones; this keeps
+ * the lookups lock-free. The cache should be cleared by
+ * {@link #invalidateAll()} after the schema of the database is changed.</p>
+ *
+ * @author Haixing Hu
+ */
+public class ConstraintMetadataCache {
+
+  /**
+   * The default maximum number of constraints of each kind in the cache.
+   */
+  public static final int DEFAULT_MAX_SIZE = 1024;
+
+  private final int maxSize;
+  private final ConcurrentHashMap<Key, ConstraintMetadata> uniqueKeys;
+  private final ConcurrentHashMap<Key, ConstraintMetadata> foreignKeys;
+
+  /**
+   * Creates a new {@code ConstraintMetadataCache} with the default maximum
+   * size.
+   */
+  public ConstraintMetadataCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Creates a new {@code ConstraintMetadataCache}.
+   *
+   * @param maxSize
+   *     The maximum number of constraints of each kind in the cache.
+   */
+  public ConstraintMetadataCache(final int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be positive: "
+          + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.uniqueKeys = new ConcurrentHashMap<>();
+    this.foreignKeys = new ConcurrentHashMap<>();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Gets the cached metadata of a unique key.
+   *
+   * @param table
+   *     The name of the table of the unique key, as reported by the database.
+   * @param name
+   *     The name of the unique key or index, as reported by the database.
+   * @return
+   *     The cached metadata, or {@code null} if it is not cached.
+   */
+  @Nullable
+  public ConstraintMetadata getUniqueKey(final String table,
+      final String name) {
+    return uniqueKeys.get(new Key(table, name));
+  }
+
+  /**
+   * Caches the metadata of a unique key, if the cache is not full.
+   *
+   * @param table
+   *     The name of the table of the unique key, as reported by the database.
+   * @param metadata
+   *     The metadata of the unique key.
+   */
+  public void putUniqueKey(final String table,
+      final ConstraintMetadata metadata) {
+    put(uniqueKeys, table, metadata);
+  }
+
+  /**
+   * Gets the cached metadata of a foreign key.
+   *
+   * @param table
+   *     The name of the referencing table, as reported by the database.
+   * @param name
+   *     The name of the foreign key constraint, as reported by the database.
+   * @return
+   *     The cached metadata, or {@code null} if it is not cached.
+   */
+  @Nullable
+  public ConstraintMetadata getForeignKey(final String table,
+      final String name) {
+    return foreignKeys.get(new Key(table, name));
+  }
+
+  /**
+   * Caches the metadata of a foreign key, if the cache is not full.
+   *
+   * @param table
+   *     The name of the referencing table, as reported by the database.
+   * @param metadata
+   *     The metadata of the foreign key.
+   */
+  public void putForeignKey(final String table,
+      final ConstraintMetadata metadata) {
+    put(foreignKeys, table, metadata);
+  }
+
+  /**
+   * Gets the number of cached constraints of all kinds.
+   *
+   * @return
+   *     The number of cached constraints.
+   */
+  public int size() {
+    return uniqueKeys.size() + foreignKeys.size();
+  }
+
+  /**
+   * Removes all the cached metadata.
+   */
+  public void invalidateAll() {
+    uniqueKeys.clear();
+    foreignKeys.clear();
+  }
+
+  private void put(final ConcurrentHashMap<Key, ConstraintMetadata> map,
+      final String table, final ConstraintMetadata metadata) {
+    // the size may be exceeded slightly by concurrent puts, which is harmless
+    if (map.size() < maxSize) {
+      map.putIfAbsent(new Key(table, metadata.getName()), metadata);
+    }
+  }
+
+  private record Key(String table, String name) {}
+}
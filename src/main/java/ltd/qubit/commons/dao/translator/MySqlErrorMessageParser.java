@@ -0,0 +1,826 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.translator;
+
+import javax.annotation.Nullable;
+
+/**
+ * Parses the messages of the constraint violation errors reported by the MySQL
+ * and H2 databases.
+ *
+ * <p>The messages are scanned by hand instead of by regular expressions, so
+ * that parsing a message allocates nothing but the extracted substrings and
+ * the returned {@link Violation}, if any. Every function returns {@code null}
+ * if the message does not have the expected format.</p>
+ *
+ * <p>The {@code locateXxx()} functions only extract the names of the violated
+ * constraint and its table, which are enough to look up the cached metadata of
+ * the constraint, and return the position where the rest of the message could
+ * be parsed from, so that the parts not cached, e.g., the duplicated value,
+ * are extracted without scanning the message again.</p>
+ *
+ * @author Haixing Hu
+ */
+public final class MySqlErrorMessageParser {
+
+  private static final String COLUMN_CANNOT_NULL_PREFIX = "Column '";
+  private static final String COLUMN_CANNOT_NULL_SUFFIX = "' cannot be null";
+  private static final String NO_DEFAULT_VALUE_PREFIX = "Field '";
+  private static final String NO_DEFAULT_VALUE_SUFFIX =
+      "' doesn't have a default value";
+  private static final String NULL_NOT_ALLOWED_PREFIX =
+      "NULL not allowed for column \"";
+  private static final String DUPLICATE_ENTRY_PREFIX = "Duplicate entry '";
+  private static final String DUPLICATE_ENTRY_INFIX = "' for key '";
+  private static final String UNIQUE_INDEX_PREFIX =
+      "Unique index or primary key violation: \"";
+  private static final String UNIQUE_INDEX_TABLE = " ON PUBLIC.";
+  private static final String UNIQUE_INDEX_VALUES = ") VALUES ('";
+  private static final String UNIQUE_INDEX_VALUE_END = "', ";
+  private static final String DATA_TOO_LONG_PREFIX =
+      "Data too long for column '";
+  private static final String VALUE_TOO_LONG_PREFIX =
+      "Value too long for column \"";
+  private static final String FOREIGN_KEY_PREFIX = "Cannot ";
+  private static final String FOREIGN_KEY_UPDATE = " or update a ";
+  private static final String FOREIGN_KEY_FAILS =
+      " row: a foreign key constraint fails (`";
+  private static final String FOREIGN_KEY_CONSTRAINT = ", CONSTRAINT `";
+  private static final String FOREIGN_KEY_COLUMN = "` FOREIGN KEY (`";
+  private static final String FOREIGN_KEY_REFERENCES = "`) REFERENCES `";
+  private static final String FOREIGN_KEY_REFERENCED_COLUMN = "` (`";
+  private static final String FOREIGN_KEY_END = "`)";
+  private static final String INTEGRITY_PREFIX =
+      "Referential integrity constraint violation: \"";
+  private static final String INTEGRITY_COLUMN = " FOREIGN KEY(";
+  private static final String INTEGRITY_REFERENCES = ") REFERENCES ";
+  private static final String INTEGRITY_STATEMENT = "\"; SQL statement:";
+  private static final String OUT_OF_RANGE_PREFIX =
+      "Out of range value for column '";
+  private static final String OUT_OF_RANGE_SUFFIX = "' at row";
+  private static final String INVALID_CHARACTER_PREFIX =
+      "Incorrect string value: '";
+  private static final String INVALID_CHARACTER_INFIX = "' for column '";
+
+  private MySqlErrorMessageParser() {}
+
+  /**
+   * Parses the message {@code Column '<field>' cannot be null} of MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The name of the field, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseColumnCannotBeNull(final String message) {
+    return between(message, COLUMN_CANNOT_NULL_PREFIX,
+        COLUMN_CANNOT_NULL_SUFFIX);
+  }
+
+  /**
+   * Parses the message {@code Field '<field>' doesn't have a default value} of
+   * MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The name of the field, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseNoDefaultValue(final String message) {
+    return between(message, NO_DEFAULT_VALUE_PREFIX, NO_DEFAULT_VALUE_SUFFIX);
+  }
+
+  /**
+   * Parses the message {@code NULL not allowed for column "<field>"} of H2.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The name of the field, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseNullNotAllowed(final String message) {
+    final int start = indexAfter(message, NULL_NOT_ALLOWED_PREFIX, 0);
+    if (start < 0) {
+      return null;
+    }
+    final int end = message.indexOf('"', start);
+    if (end <= start || message.lastIndexOf(' ', end) >= start) {
+      return null;
+    }
+    return message.substring(start, end);
+  }
+
+  /**
+   * Parses the message {@code Duplicate entry '<value>' for key '<key>'} of
+   * MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The violation with the value and the key, whose name may be prefixed
+   *     with the table name, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static Violation parseDuplicateEntry(final String message) {
+    final int valueStart = indexAfter(message, DUPLICATE_ENTRY_PREFIX, 0);
+    if (valueStart < 0) {
+      return null;
+    }
+    final int keyEnd = message.lastIndexOf('\'');
+    final int valueEnd = message.lastIndexOf(DUPLICATE_ENTRY_INFIX, keyEnd);
+    if (valueEnd <= valueStart) {
+      return null;
+    }
+    final int keyStart = valueEnd + DUPLICATE_ENTRY_INFIX.length();
+    if (keyEnd <= keyStart) {
+      return null;
+    }
+    final String key = message.substring(keyStart, keyEnd);
+    final String value = message.substring(valueStart, valueEnd);
+    return new Violation(null, key, key, value, null, null);
+  }
+
+  /**
+   * Locates the key in the message
+   * {@code Duplicate entry '<value>' for key '<key>'} of MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The location of the key, whose name is the key as reported, and whose
+   *     table is the prefix of the key qualified by its table, e.g., the
+   *     {@code user} of {@code user.uk_name}, or {@code null} if the key is
+   *     not qualified, as reported by MySQL 5.7; the end of the location is
+   *     the end of the value. Returns {@code null} if the message does not
+   *     match.
+   * @see #parseDuplicateEntryValue(String, int)
+   */
+  @Nullable
+  public static ConstraintLocation locateDuplicateEntry(final String message) {
+    final int keyEnd = message.lastIndexOf('\'');
+    final int valueEnd = message.lastIndexOf(DUPLICATE_ENTRY_INFIX, keyEnd);
+    if (valueEnd < 0) {
+      return null;
+    }
+    final int keyStart = valueEnd + DUPLICATE_ENTRY_INFIX.length();
+    if (keyEnd <= keyStart) {
+      return null;
+    }
+    final int dot = message.lastIndexOf('.', keyEnd);
+    final String table = (dot > keyStart
+                          ? message.substring(keyStart, dot)
+                          : null);
+    return new ConstraintLocation(table, message.substring(keyStart, keyEnd),
+        valueEnd);
+  }
+
+  /**
+   * Extracts the duplicated value from the message
+   * {@code Duplicate entry '<value>' for key '<key>'} of MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @param end
+   *     The end of the value, i.e., the end of the location returned by
+   *     {@link #locateDuplicateEntry(String)}.
+   * @return
+   *     The duplicated value, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseDuplicateEntryValue(final String message,
+      final int end) {
+    final int start = indexAfter(message, DUPLICATE_ENTRY_PREFIX, 0);
+    if (start < 0 || end <= start) {
+      return null;
+    }
+    return message.substring(start, end);
+  }
+
+  /**
+   * Parses the message
+   * {@code Unique index or primary key violation: "<index> ON
+   * PUBLIC.<table>(<key>) VALUES ('<value>', <row>)"} of H2.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The violation with the index, the key and the value, or {@code null}
+   *     if the message does not match.
+   */
+  @Nullable
+  public static Violation parseUniqueIndex(final String message) {
+    final ConstraintLocation location = locateUniqueIndex(message);
+    if (location == null) {
+      return null;
+    }
+    final int open = location.getEnd();
+    final String value = parseUniqueIndexValue(message, open);
+    if (value == null) {
+      return null;
+    }
+    final String key = message.substring(open + 1, message.indexOf(')', open));
+    return new Violation(null, location.getName(), key, value, null, null);
+  }
+
+  /**
+   * Locates the index in the message
+   * {@code Unique index or primary key violation: "<index> ON
+   * PUBLIC.<table>(<key>) VALUES ('<value>', <row>)"} of H2.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The location of the index, whose end is the position of the
+   *     parenthesis opening the key, or {@code null} if the message does not
+   *     match.
+   * @see #parseUniqueIndexValue(String, int)
+   */
+  @Nullable
+  public static ConstraintLocation locateUniqueIndex(final String message) {
+    final int indexStart = indexAfter(message, UNIQUE_INDEX_PREFIX, 0);
+    if (indexStart < 0) {
+      return null;
+    }
+    final int indexEnd = message.indexOf(' ', indexStart);
+    if (indexEnd <= indexStart
+        || !message.startsWith(UNIQUE_INDEX_TABLE, indexEnd)) {
+      return null;
+    }
+    final int tableStart = indexEnd + UNIQUE_INDEX_TABLE.length();
+    final int open = message.indexOf('(', tableStart);
+    if (open <= tableStart) {
+      return null;
+    }
+    return new ConstraintLocation(message.substring(tableStart, open),
+        message.substring(indexStart, indexEnd), open);
+  }
+
+  /**
+   * Extracts the duplicated value from the message
+   * {@code Unique index or primary key violation: "<index> ON
+   * PUBLIC.<table>(<key>) VALUES ('<value>', <row>)"} of H2.
+   *
+   * @param message
+   *     The error message.
+   * @param open
+   *     The position of the parenthesis opening the key, i.e., the end of the
+   *     location returned by {@link #locateUniqueIndex(String)}.
+   * @return
+   *     The duplicated value, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseUniqueIndexValue(final String message,
+      final int open) {
+    final int keyEnd = message.indexOf(')', open + 1);
+    if (keyEnd <= open + 1
+        || !message.startsWith(UNIQUE_INDEX_VALUES, keyEnd)) {
+      return null;
+    }
+    final int valueStart = keyEnd + UNIQUE_INDEX_VALUES.length();
+    final int valueEnd = message.lastIndexOf(UNIQUE_INDEX_VALUE_END);
+    if (valueEnd <= valueStart) {
+      return null;
+    }
+    int pos = valueEnd + UNIQUE_INDEX_VALUE_END.length();
+    final int digits = pos;
+    while (pos < message.length() && isDigit(message.charAt(pos))) {
+      ++pos;
+    }
+    if (pos == digits || !message.startsWith(")\"", pos)) {
+      return null;
+    }
+    return message.substring(valueStart, valueEnd);
+  }
+
+
+
+  /**
+   * Parses the message {@code Data too long for column '<field>'} of MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The name of the field, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseDataTooLong(final String message) {
+    final int start = indexAfter(message, DATA_TOO_LONG_PREFIX, 0);
+    if (start < 0) {
+      return null;
+    }
+    final int end = message.lastIndexOf('\'');
+    return (end > start ? message.substring(start, end) : null);
+  }
+
+  /**
+   * Parses the message {@code Value too long for column "<field> ..."} of H2.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The name of the field, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseValueTooLong(final String message) {
+    final int start = indexAfter(message, VALUE_TOO_LONG_PREFIX, 0);
+    if (start < 0) {
+      return null;
+    }
+    int end = start;
+    while (end < message.length()) {
+      final char ch = message.charAt(end);
+      if (ch == ' ' || ch == '"') {
+        break;
+      }
+      ++end;
+    }
+    if (end == start || message.indexOf('"', end) < 0) {
+      return null;
+    }
+    return message.substring(start, end);
+  }
+
+  /**
+   * Parses the message
+   * {@code Cannot <op> or update a <parent|child> row: a foreign key
+   * constraint fails (`<db>`.`<table>`, CONSTRAINT `<name>` FOREIGN KEY
+   * (`<field>`) REFERENCES `<table>` (`<field>`) ...)} of MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The violation with the operation, the constraint, the field and the
+   *     referenced table and field, or {@code null} if the message does not
+   *     match.
+   */
+  @Nullable
+  public static Violation parseForeignKeyFails(final String message) {
+    final int opStart = indexAfter(message, FOREIGN_KEY_PREFIX, 0);
+    if (opStart < 0) {
+      return null;
+    }
+    final int opEnd = skipLowerCase(message, opStart);
+    if (opEnd == opStart || !message.startsWith(FOREIGN_KEY_UPDATE, opEnd)) {
+      return null;
+    }
+    final int rowStart = opEnd + FOREIGN_KEY_UPDATE.length();
+    final int rowEnd = skipLowerCase(message, rowStart);
+    if (rowEnd == rowStart || !message.startsWith(FOREIGN_KEY_FAILS, rowEnd)) {
+      return null;
+    }
+    final int nameStart = indexAfter(message, FOREIGN_KEY_CONSTRAINT,
+        rowEnd + FOREIGN_KEY_FAILS.length());
+    if (nameStart < 0) {
+      return null;
+    }
+    final int nameEnd = message.indexOf(FOREIGN_KEY_COLUMN, nameStart);
+    if (nameEnd <= nameStart) {
+      return null;
+    }
+    final int fieldStart = nameEnd + FOREIGN_KEY_COLUMN.length();
+    final int fieldEnd = message.indexOf(FOREIGN_KEY_REFERENCES, fieldStart);
+    if (fieldEnd <= fieldStart) {
+      return null;
+    }
+    final int tableStart = fieldEnd + FOREIGN_KEY_REFERENCES.length();
+    final int tableEnd = message.indexOf(FOREIGN_KEY_REFERENCED_COLUMN,
+        tableStart);
+    if (tableEnd <= tableStart) {
+      return null;
+    }
+    final int refStart = tableEnd + FOREIGN_KEY_REFERENCED_COLUMN.length();
+    final int refEnd = message.indexOf(FOREIGN_KEY_END, refStart);
+    if (refEnd <= refStart) {
+      return null;
+    }
+    return new Violation(message.substring(opStart, opEnd),
+        message.substring(nameStart, nameEnd),
+        message.substring(fieldStart, fieldEnd), null,
+        message.substring(tableStart, tableEnd),
+        message.substring(refStart, refEnd));
+  }
+
+  /**
+   * Locates the constraint in the message of a MySQL foreign key constraint
+   * violation, without parsing the rest of the message.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The location of the constraint, whose table is the referencing table
+   *     qualified by its database as reported, e.g., {@code `db`.`order`}, or
+   *     {@code null} if the message does not match.
+   * @see #parseForeignKeyFails(String)
+   * @see #parseForeignKeyOperation(String)
+   */
+  @Nullable
+  public static ConstraintLocation locateForeignKey(final String message) {
+    final int tableStart = indexAfter(message, FOREIGN_KEY_FAILS, 0) - 1;
+    if (tableStart < 0) {
+      return null;
+    }
+    // the table is followed by ", CONSTRAINT `"
+    final int tableEnd = message.indexOf(FOREIGN_KEY_CONSTRAINT, tableStart);
+    if (tableEnd <= tableStart) {
+      return null;
+    }
+    final int nameStart = tableEnd + FOREIGN_KEY_CONSTRAINT.length();
+    final int nameEnd = message.indexOf(FOREIGN_KEY_COLUMN, nameStart);
+    if (nameEnd <= nameStart) {
+      return null;
+    }
+    return new ConstraintLocation(message.substring(tableStart, tableEnd),
+        message.substring(nameStart, nameEnd), nameEnd);
+  }
+
+
+  /**
+   * Extracts the operation word from the message of a MySQL foreign key
+   * constraint violation, without parsing the rest of the message.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The operation word, e.g., {@code add} or {@code delete}, or
+   *     {@code null} if the message does not match.
+   * @see #parseForeignKeyFails(String)
+   */
+  @Nullable
+  public static String parseForeignKeyOperation(final String message) {
+    final int start = indexAfter(message, FOREIGN_KEY_PREFIX, 0);
+    if (start < 0) {
+      return null;
+    }
+    final int end = skipLowerCase(message, start);
+    if (end == start || !message.startsWith(FOREIGN_KEY_UPDATE, end)) {
+      return null;
+    }
+    return message.substring(start, end);
+  }
+
+  /**
+   * Parses the message
+   * {@code Referential integrity constraint violation: "<name>:
+   * PUBLIC.<table> FOREIGN KEY(<field>) REFERENCES PUBLIC.<table>(<field>)
+   * (<value>)"; SQL statement: <op> ...} of H2.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The violation with the operation, the constraint, the field and the
+   *     referenced table and field, or {@code null} if the message does not
+   *     match.
+   */
+  @Nullable
+  public static Violation parseIntegrityViolation(final String message) {
+    final ConstraintLocation location = locateIntegrityConstraint(message);
+    if (location == null) {
+      return null;
+    }
+    final int fieldStart = location.getEnd() + INTEGRITY_COLUMN.length();
+    final int fieldEnd = message.indexOf(')', fieldStart);
+    if (fieldEnd <= fieldStart
+        || !message.startsWith(INTEGRITY_REFERENCES, fieldEnd)) {
+      return null;
+    }
+    final int schemaStart = fieldEnd + INTEGRITY_REFERENCES.length();
+    final int dot = message.indexOf('.', schemaStart);
+    if (dot <= schemaStart) {
+      return null;
+    }
+    final int open = message.indexOf('(', dot + 1);
+    if (open <= dot + 1) {
+      return null;
+    }
+    final int refEnd = message.indexOf(')', open + 1);
+    if (refEnd <= open + 1) {
+      return null;
+    }
+    final int statement = message.indexOf(INTEGRITY_STATEMENT, refEnd);
+    if (statement < 0) {
+      return null;
+    }
+    final String operation = parseStatementWord(message,
+        statement + INTEGRITY_STATEMENT.length());
+    if (operation == null) {
+      return null;
+    }
+    return new Violation(operation, location.getName(),
+        message.substring(fieldStart, fieldEnd), null,
+        message.substring(dot + 1, open),
+        message.substring(open + 1, refEnd));
+  }
+
+  /**
+   * Locates the constraint in the message of an H2 referential integrity
+   * constraint violation, without parsing the rest of the message.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The location of the constraint, whose table is the referencing table
+   *     qualified by its schema, e.g., {@code PUBLIC.ORDER}, and whose end is
+   *     the end of the table, or {@code null} if the message does not match.
+   * @see #parseIntegrityViolation(String)
+   * @see #parseIntegrityOperation(String, int)
+   */
+  @Nullable
+  public static ConstraintLocation locateIntegrityConstraint(
+      final String message) {
+    final int nameStart = indexAfter(message, INTEGRITY_PREFIX, 0);
+    if (nameStart < 0) {
+      return null;
+    }
+    int nameEnd = nameStart;
+    while (nameEnd < message.length() && isWordChar(message.charAt(nameEnd))) {
+      ++nameEnd;
+    }
+    if (nameEnd == nameStart || !message.startsWith(": ", nameEnd)) {
+      return null;
+    }
+    final int tableStart = nameEnd + 2;
+    final int tableEnd = message.indexOf(' ', tableStart);
+    if (tableEnd <= tableStart
+        || !message.startsWith(INTEGRITY_COLUMN, tableEnd)) {
+      return null;
+    }
+    return new ConstraintLocation(message.substring(tableStart, tableEnd),
+        message.substring(nameStart, nameEnd), tableEnd);
+  }
+
+
+  /**
+   * Extracts the operation word from the message of an H2 referential
+   * integrity constraint violation, without parsing the rest of the message.
+   *
+   * @param message
+   *     The error message.
+   * @param from
+   *     The position to search the SQL statement from, e.g., the end of the
+   *     location returned by {@link #locateIntegrityConstraint(String)}.
+   * @return
+   *     The first word of the SQL statement, e.g., {@code INSERT} or
+   *     {@code DELETE}, or {@code null} if the message does not match.
+   * @see #parseIntegrityViolation(String)
+   */
+  @Nullable
+  public static String parseIntegrityOperation(final String message,
+      final int from) {
+    final int statement = message.indexOf(INTEGRITY_STATEMENT, from);
+    if (statement < 0) {
+      return null;
+    }
+    return parseStatementWord(message,
+        statement + INTEGRITY_STATEMENT.length());
+  }
+
+  /**
+   * Parses the message {@code Out of range value for column '<field>' at row}
+   * of MySQL.
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The name of the field, or {@code null} if the message does not match.
+   */
+  @Nullable
+  public static String parseOutOfRange(final String message) {
+    final int start = indexAfter(message, OUT_OF_RANGE_PREFIX, 0);
+    if (start < 0) {
+      return null;
+    }
+    final int end = message.indexOf('\'', start);
+    if (end <= start || !message.startsWith(OUT_OF_RANGE_SUFFIX, end)) {
+      return null;
+    }
+    return message.substring(start, end);
+  }
+
+  /**
+   * Parses the message
+   * {@code Incorrect string value: '<value>' for column '<field>'} of MySQL.
+   *
+   * <p>The escaped UTF-8 bytes of the value are decoded by the
+   * {@link Utf8HexDecoder}.</p>
+   *
+   * @param message
+   *     The error message.
+   * @return
+   *     The violation with the field and the decoded value, or {@code null}
+   *     if the message does not match.
+   */
+  @Nullable
+  public static Violation parseIncorrectString(final String message) {
+    final int valueStart = indexAfter(message, INVALID_CHARACTER_PREFIX, 0);
+    if (valueStart < 0) {
+      return null;
+    }
+    final int valueEnd = message.indexOf('\'', valueStart);
+    if (valueEnd <= valueStart
+        || !message.startsWith(INVALID_CHARACTER_INFIX, valueEnd)) {
+      return null;
+    }
+    final int fieldStart = valueEnd + INVALID_CHARACTER_INFIX.length();
+    final int fieldEnd = message.indexOf('\'', fieldStart);
+    if (fieldEnd <= fieldStart) {
+      return null;
+    }
+    final String field = message.substring(fieldStart, fieldEnd);
+    final String value = Utf8HexDecoder.decode(message, valueStart, valueEnd);
+    return new Violation(null, null, field, value, null, null);
+  }
+
+  @Nullable
+  private static String between(final String message, final String prefix,
+      final String suffix) {
+    final int start = indexAfter(message, prefix, 0);
+    if (start < 0) {
+      return null;
+    }
+    final int end = message.lastIndexOf(suffix);
+    return (end > start ? message.substring(start, end) : null);
+  }
+
+  @Nullable
+  private static String parseStatementWord(final String message,
+      final int from) {
+    int start = from;
+    while (start < message.length()
+        && Character.isWhitespace(message.charAt(start))) {
+      ++start;
+    }
+    int end = start;
+    while (end < message.length() && isLetter(message.charAt(end))) {
+      ++end;
+    }
+    return (end > start ? message.substring(start, end) : null);
+  }
+
+  private static int indexAfter(final String message, final String prefix,
+      final int from) {
+    final int pos = message.indexOf(prefix, from);
+    return (pos < 0 ? -1 : pos + prefix.length());
+  }
+
+  private static int skipLowerCase(final String message, final int from) {
+    int pos = from;
+    while (pos < message.length()) {
+      final char ch = message.charAt(pos);
+      if (ch < 'a' || ch > 'z') {
+        break;
+      }
+      ++pos;
+    }
+    return pos;
+  }
+
+  private static boolean isDigit(final char ch) {
+    return (ch >= '0' && ch <= '9');
+  }
+
+  private static boolean isLetter(final char ch) {
+    return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z');
+  }
+
+  private static boolean isWordChar(final char ch) {
+    return isLetter(ch) || isDigit(ch) || ch == '_';
+  }
+
+  /**
+   * The location of the violated constraint in the message of a constraint
+   * violation error.
+   */
+  public static final class ConstraintLocation {
+
+    @Nullable
+    private final String table;
+    private final String name;
+    private final int end;
+
+    ConstraintLocation(@Nullable final String table, final String name,
+        final int end) {
+      this.table = table;
+      this.name = name;
+      this.end = end;
+    }
+
+    /**
+     * Gets the name of the table of the constraint, as reported by the
+     * database.
+     *
+     * @return
+     *     The name of the table, or {@code null} if not present.
+     */
+    @Nullable
+    public String getTable() {
+      return table;
+    }
+
+    /**
+     * Gets the name of the constraint, as reported by the database.
+     *
+     * @return
+     *     The name of the constraint.
+     */
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Gets the position in the message where the rest of the message could
+     * be parsed from.
+     *
+     * @return
+     *     The position in the message, whose meaning is documented by the
+     *     function returning this location.
+     */
+    public int getEnd() {
+      return end;
+    }
+  }
+
+  /**
+   * The parts extracted from the message of a constraint violation error.
+   *
+   * <p>The parts not present in a message are {@code null}.</p>
+   */
+  public static final class Violation {
+
+    @Nullable
+    private final String operation;
+    @Nullable
+    private final String constraint;
+    @Nullable
+    private final String field;
+    @Nullable
+    private final String value;
+    @Nullable
+    private final String referenceTable;
+    @Nullable
+    private final String referenceField;
+
+    Violation(@Nullable final String operation,
+        @Nullable final String constraint, @Nullable final String field,
+        @Nullable final String value, @Nullable final String referenceTable,
+        @Nullable final String referenceField) {
+      this.operation = operation;
+      this.constraint = constraint;
+      this.field = field;
+      this.value = value;
+      this.referenceTable = referenceTable;
+      this.referenceField = referenceField;
+    }
+
+    /**
+     * Gets the operation word of the message, e.g., {@code add},
+     * {@code delete} or {@code INSERT}.
+     *
+     * @return
+     *     The operation word, or {@code null} if not present.
+     */
+    @Nullable
+    public String getOperation() {
+      return operation;
+    }
+
+    /**
+     * Gets the name of the violated constraint or index.
+     *
+     * @return
+     *     The name of the constraint or index, or {@code null} if not present.
+     */
+    @Nullable
+    public String getConstraint() {
+      return constraint;
+    }
+
+    @Nullable
+    public String getField() {
+      return field;
+    }
+
+    @Nullable
+    public String getValue() {
+      return value;
+    }
+
+    @Nullable
+    public String getReferenceTable() {
+      return referenceTable;
+    }
+
+    @Nullable
+    public String getReferenceField() {
+      return referenceField;
+    }
+  }
+}
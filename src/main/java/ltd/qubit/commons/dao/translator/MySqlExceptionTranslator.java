@@ -9,20 +9,23 @@
 package ltd.qubit.commons.dao.translator;
 
 import java.sql.SQLException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import javax.annotation.Nullable;
 import javax.sql.DataSource;
 
 import org.apache.ibatis.exceptions.PersistenceException;
 import org.mybatis.spring.MyBatisSystemException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.dao.support.PersistenceExceptionTranslator;
 import org.springframework.jdbc.support.SQLErrorCodeSQLExceptionTranslator;
 import org.springframework.jdbc.support.SQLExceptionTranslator;
 
+import ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.ConstraintLocation;
+import ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.Violation;
 import ltd.qubit.commons.error.DuplicateKeyException;
 import ltd.qubit.commons.error.FieldTooLongException;
 import ltd.qubit.commons.error.FieldValueOutOfRangeException;
@@ -30,58 +33,66 @@ import ltd.qubit.commons.error.ForeignKeyConstraintFailException;
 import ltd.qubit.commons.error.InvalidFieldValueCharacterException;
 import ltd.qubit.commons.error.NullFieldException;
 import ltd.qubit.commons.sql.DaoOperation;
-import ltd.qubit.commons.util.codec.HexCodec;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.locateDuplicateEntry;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.locateForeignKey;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.locateIntegrityConstraint;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.locateUniqueIndex;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseColumnCannotBeNull;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseDataTooLong;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseDuplicateEntry;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseDuplicateEntryValue;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseForeignKeyFails;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseForeignKeyOperation;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseIncorrectString;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseIntegrityOperation;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseIntegrityViolation;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseNoDefaultValue;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseNullNotAllowed;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseOutOfRange;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseUniqueIndex;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseUniqueIndexValue;
+import static ltd.qubit.commons.dao.translator.MySqlErrorMessageParser.parseValueTooLong;
 
 /**
  * The exception translator for the MySQL database.
  *
+ * <p>By default, the translator first dispatches on the vendor error code of
+ * the {@link SQLException}, and only parses the message with the pattern of
+ * the corresponding error. The errors with unknown codes, or whose messages do
+ * not match the expected pattern, are translated by trying all the patterns
+ * one after another, as {@link #translateMySqlError(Throwable)} does.</p>
+ *
+ * <p>The deadlocks and the lock wait timeouts are translated to the
+ * {@link PessimisticLockingFailureException} and the
+ * {@link CannotAcquireLockException}, respectively, whatever the dispatching
+ * mode is, so that the callers could recognize them as transient and retry;
+ * see {@link #translateLockFailure(SQLException)}.</p>
+ *
  * @author Haixing Hu
  */
 public class MySqlExceptionTranslator implements PersistenceExceptionTranslator {
 
-  private static final Pattern COLUMN_CANNOT_NULL =
-      Pattern.compile("Column '(.+)' cannot be null");
-
-  private static final Pattern NULL_NOT_ALLOWED =
-      Pattern.compile("NULL not allowed for column \"([^ ]+)\"");
-
-  private static final Pattern NO_DEFAULT_VALUE =
-      Pattern.compile("Field '(.+)' doesn't have a default value");
-
-  private static final Pattern DUPLICATED_KEY =
-      Pattern.compile("Duplicate entry '(.+)' for key '(.+)'");
-
-  private static final Pattern UNIQUE_INDEX =
-      Pattern.compile("Unique index or primary key violation: \"[^ ]+ ON "
-          + "PUBLIC\\.[^(]+\\(([^)]+)\\) VALUES \\('(.+)', [0-9]+\\)\"");
-
-  private static final Pattern DATA_TOO_LONG = Pattern
-      .compile("Data too long for column '(.+)'");
-
-  private static final Pattern VALUE_TOO_LONG =
-      Pattern.compile("Value too long for column \"([^ ]+).*\"");
-
-  private static final Pattern FOREIGN_KEY_FAILED =
-      Pattern.compile("Cannot ([a-z]+) or update a [a-z]+ row: "
-          + "a foreign key constraint fails "
-          + "\\(`.+`\\.`.+`, CONSTRAINT `.+` FOREIGN KEY \\(`(.+)`\\) "
-          + "REFERENCES `(.+)` \\(`(.+)`\\)[ A-Za-z]*\\)");
-
-  private static final Pattern INTEGRITY_VIOLATION =
-      Pattern.compile("Referential integrity constraint violation: "
-          + "\"[a-zA-Z0-9_]+: [^ ]+ FOREIGN KEY\\(([^)]+)\\) REFERENCES "
-          + "[^.]+.([^(]+)\\(([^)]+)\\) \\([^)]+\\)\"; "
-          + "SQL statement:[\\s]+([a-zA-Z]+)");
-
-  private static final Pattern OUT_OF_RANGE =
-      Pattern.compile("Out of range value for column '([^']+)' at row");
-
-  private static final Pattern INVALID_CHARACTER =
-      Pattern.compile("Incorrect string value: '([^']+)' for column '([^']+)'");
-
-  private static final String ENDING_ELLIPSIS = "...";
+  // MySQL vendor error codes
+  private static final int ER_BAD_NULL_ERROR = 1048;
+  private static final int ER_DUP_ENTRY = 1062;
+  private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+  private static final int ER_LOCK_DEADLOCK = 1213;
+  private static final int ER_WARN_DATA_OUT_OF_RANGE = 1264;
+  private static final int ER_NO_DEFAULT_FOR_FIELD = 1364;
+  private static final int ER_TRUNCATED_WRONG_VALUE_FOR_FIELD = 1366;
+  private static final int ER_DATA_TOO_LONG = 1406;
+  private static final int ER_ROW_IS_REFERENCED_2 = 1451;
+  private static final int ER_NO_REFERENCED_ROW_2 = 1452;
+
+  // H2 vendor error codes, which are also used as the SQL states
+  private static final int H2_VALUE_TOO_LONG = 22001;
+  private static final int H2_NULL_NOT_ALLOWED = 23502;
+  private static final int H2_CHILD_EXISTS = 23503;
+  private static final int H2_DUPLICATE_KEY = 23505;
+  private static final int H2_PARENT_MISSING = 23506;
+  private static final int H2_DEADLOCK = 40001;
+  private static final int H2_LOCK_TIMEOUT = 50200;
 
   private static final Logger LOGGER = LoggerFactory.getLogger(MySqlExceptionTranslator.class);
 
@@ -90,6 +101,11 @@ public class MySqlExceptionTranslator implements PersistenceExceptionTranslator
 
   private final SQLExceptionTranslator fallbackTranslator;
 
+  private final ConstraintMetadataCache constraintCache =
+      new ConstraintMetadataCache();
+
+  private boolean dispatchOnErrorCode = true;
+
   /**
    * Creates a new {@code MySqlExceptionTranslator} instance.
    *
@@ -101,6 +117,41 @@ public class MySqlExceptionTranslator implements PersistenceExceptionTranslator
     fallbackTranslator = new SQLErrorCodeSQLExceptionTranslator(dataSource);
   }
 
+  /**
+   * Tests whether this translator dispatches on the vendor error code of the
+   * {@link SQLException} before trying the patterns of all known errors.
+   *
+   * @return
+   *     {@code true} if this translator dispatches on the vendor error code;
+   *     {@code false} otherwise.
+   */
+  public boolean isDispatchOnErrorCode() {
+    return dispatchOnErrorCode;
+  }
+
+  /**
+   * Sets whether this translator dispatches on the vendor error code of the
+   * {@link SQLException} before trying the patterns of all known errors.
+   *
+   * @param dispatchOnErrorCode
+   *     {@code true} to dispatch on the vendor error code; {@code false} to
+   *     always try the patterns of all known errors.
+   */
+  public void setDispatchOnErrorCode(final boolean dispatchOnErrorCode) {
+    this.dispatchOnErrorCode = dispatchOnErrorCode;
+  }
+
+  /**
+   * Gets the cache of the metadata of the constraints, which is used when
+   * dispatching on the vendor error code.
+   *
+   * @return
+   *     The cache of the metadata of the constraints.
+   */
+  public ConstraintMetadataCache getConstraintCache() {
+    return constraintCache;
+  }
+
   @Override
   public DataAccessException translateExceptionIfPossible(final RuntimeException e) {
     if (e instanceof PersistenceException) {
@@ -111,7 +162,13 @@ public class MySqlExceptionTranslator implements PersistenceExceptionTranslator
         ex = (PersistenceException) ex.getCause();
       }
       if (ex.getCause() instanceof final SQLException cause) {
-        final DataAccessException result = translateMySqlError(cause);
+        DataAccessException result = translateLockFailure(cause);
+        if ((result == null) && dispatchOnErrorCode) {
+          result = translateByErrorCode(cause, constraintCache);
+        }
+        if (result == null) {
+          result = translateMySqlError(cause);
+        }
         if (result != null) {
           return result;
         } else {
@@ -124,6 +181,140 @@ public class MySqlExceptionTranslator implements PersistenceExceptionTranslator
     }
   }
 
+  /**
+   * Translates a {@link SQLException} according to its vendor error code.
+   *
+   * <p>Only the message pattern of the error indicated by the vendor error
+   * code, or by the SQL state if the vendor error code is unavailable, is
+   * tried.</p>
+   *
+   * @param cause
+   *     The {@link SQLException} to be translated.
+   * @return
+   *     The translated exception, or {@code null} if the error code is unknown
+   *     or the message does not match the pattern of the error.
+   */
+  public static DataAccessException translateByErrorCode(
+      final SQLException cause) {
+    return translateByErrorCode(cause, null);
+  }
+
+  /**
+   * Translates a {@link SQLException} according to its vendor error code,
+   * resolving the metadata of the violated constraints through a cache.
+   *
+   * <p>Only the message pattern of the error indicated by the vendor error
+   * code, or by the SQL state if the vendor error code is unavailable, is
+   * tried. For the violations of the unique keys and foreign keys, the
+   * metadata derived from the message of the first violation of a constraint
+   * is cached by the names of the table and the constraint, and reused by the
+   * following violations of the same constraint, whose messages are only
+   * scanned for the names and the parts not cached, i.e., the duplicated
+   * value or the operation word. The unique keys reported without their
+   * tables, e.g., by MySQL 5.7, are never cached.</p>
+   *
+   * @param cause
+   *     The {@link SQLException} to be translated.
+   * @param cache
+   *     The cache of the metadata of the constraints, or {@code null} to
+   *     derive the metadata from every message.
+   * @return
+   *     The translated exception, or {@code null} if the error code is unknown
+   *     or the message does not match the pattern of the error.
+   */
+  public static DataAccessException translateByErrorCode(
+      final SQLException cause, @Nullable final ConstraintMetadataCache cache) {
+    final String message = cause.getMessage();
+    if (message == null) {
+      return null;
+    }
+    final int code = getErrorCode(cause);
+    LOGGER.debug("Try to translate the error message with the error code {}: "
+        + "{}", code, message);
+    switch (code) {
+      case ER_BAD_NULL_ERROR:
+        return translateNullField(parseColumnCannotBeNull(message));
+      case ER_NO_DEFAULT_FOR_FIELD:
+        return translateNullField(parseNoDefaultValue(message));
+      case H2_NULL_NOT_ALLOWED:
+        return translateNullField(parseNullNotAllowed(message));
+      case ER_DUP_ENTRY:
+        return translateDuplicatedKey(message, false, cache);
+      case H2_DUPLICATE_KEY:
+        return translateDuplicatedKey(message, true, cache);
+      case ER_DATA_TOO_LONG:
+        return translateDataTooLong(parseDataTooLong(message));
+      case H2_VALUE_TOO_LONG:
+        return translateDataTooLong(parseValueTooLong(message));
+      case ER_ROW_IS_REFERENCED_2:
+      case ER_NO_REFERENCED_ROW_2:
+        return translateForeignKeyFail(message, false, cache);
+      case H2_CHILD_EXISTS:
+      case H2_PARENT_MISSING:
+        return translateForeignKeyFail(message, true, cache);
+      case ER_WARN_DATA_OUT_OF_RANGE:
+        return translateOutOfRange(parseOutOfRange(message));
+      case ER_TRUNCATED_WRONG_VALUE_FOR_FIELD:
+        return translateInvalidCharacter(parseIncorrectString(message));
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Translates the failures to acquire the row locks, which are transient and
+   * could be retried.
+   *
+   * <p>A deadlock (MySQL error 1213, or H2 error 40001) is translated to a
+   * {@link PessimisticLockingFailureException}, and a lock wait timeout (MySQL
+   * error 1205, or H2 error 50200) is translated to a
+   * {@link CannotAcquireLockException}. Note that MySQL rolls back the whole
+   * transaction of the victim of a deadlock, so a deadlock should be retried
+   * by retrying the whole transaction.</p>
+   *
+   * @param cause
+   *     The {@link SQLException} to be translated.
+   * @return
+   *     The translated exception, or {@code null} if the error is not a
+   *     failure to acquire a lock.
+   */
+  @Nullable
+  public static DataAccessException translateLockFailure(
+      final SQLException cause) {
+    switch (getErrorCode(cause)) {
+      case ER_LOCK_DEADLOCK:
+      case H2_DEADLOCK:
+        return new PessimisticLockingFailureException(cause.getMessage(),
+            cause);
+      case ER_LOCK_WAIT_TIMEOUT:
+      case H2_LOCK_TIMEOUT:
+        return new CannotAcquireLockException(cause.getMessage(), cause);
+      default:
+        return null;
+    }
+  }
+
+  private static int getErrorCode(final SQLException cause) {
+    final int code = cause.getErrorCode();
+    if (code != 0) {
+      return code;
+    }
+    // some wrappers drop the vendor code, but the H2 codes are also SQL states
+    final String state = cause.getSQLState();
+    if ((state == null) || (state.length() != 5)) {
+      return 0;
+    }
+    int result = 0;
+    for (int i = 0; i < state.length(); ++i) {
+      final char ch = state.charAt(i);
+      if (ch < '0' || ch > '9') {
+        return 0;
+      }
+      result = result * 10 + (ch - '0');
+    }
+    return result;
+  }
+
   public static DataAccessException translateMySqlError(final Throwable cause) {
     DataAccessException ex = translateNullField(cause);
     if (ex != null) {
@@ -153,122 +344,216 @@ public class MySqlExceptionTranslator implements PersistenceExceptionTranslator
     // match MySQL database exceptions
     final String message = cause.getMessage();
     LOGGER.debug("Try to translate the MySQL error message for NullFieldException: {}", message);
-    final Matcher cannotNull = COLUMN_CANNOT_NULL.matcher(message);
-    if (cannotNull.find()) {
-      final String field = cannotNull.group(1).toLowerCase();
-      return new NullFieldException(field);
-    } else {
+    DataAccessException ex =
+        translateNullField(parseColumnCannotBeNull(message));
+    if (ex == null) {
       // field no default value
-      final Matcher noDefaultValue = NO_DEFAULT_VALUE.matcher(message);
-      if (noDefaultValue.find()) {
-        final String field = noDefaultValue.group(1).toLowerCase();
-        return new NullFieldException(field);
-      } else {  // match H2 database exceptions
-        final Matcher nullNotAllowed = NULL_NOT_ALLOWED.matcher(message);
-        if (nullNotAllowed.find()) {
-          final String field = nullNotAllowed.group(1).toLowerCase();
-          return new NullFieldException(field);
-        }
-        return null;
-      }
+      ex = translateNullField(parseNoDefaultValue(message));
+    }
+    if (ex == null) {
+      // match H2 database exceptions
+      ex = translateNullField(parseNullNotAllowed(message));
     }
+    return ex;
+  }
+
+  private static DataAccessException translateNullField(
+      @Nullable final String field) {
+    return (field == null ? null : new NullFieldException(field.toLowerCase()));
   }
 
   public static DataAccessException translateDuplicatedKey(final Throwable cause) {
     // match MySQL database exceptions
     final String message = cause.getMessage();
     LOGGER.debug("Try to translate the MySQL error message for DuplicateKeyException: {}", message);
-    final Matcher duplicatedKey = DUPLICATED_KEY.matcher(message);
-    if (duplicatedKey.find()) {
-      final String key = getLastField(duplicatedKey.group(2).toLowerCase());
-      final String value = duplicatedKey.group(1);
-      return new DuplicateKeyException(key, value);
+    final DataAccessException ex =
+        translateDuplicatedKey(parseDuplicateEntry(message), true);
+    if (ex != null) {
+      return ex;
     } else {  // match H2 database exceptions
-      final Matcher uniqueIndex = UNIQUE_INDEX.matcher(message);
-      if (uniqueIndex.find()) {
-        final String key = uniqueIndex.group(1).toLowerCase();
-        final String value = uniqueIndex.group(2);
-        return new DuplicateKeyException(key, value);
+      return translateDuplicatedKey(parseUniqueIndex(message), false);
+    }
+  }
+
+  private static DataAccessException translateDuplicatedKey(
+      final String message, final boolean h2,
+      @Nullable final ConstraintMetadataCache cache) {
+    if (cache == null) {
+      return translateDuplicatedKey(h2
+                                    ? parseUniqueIndex(message)
+                                    : parseDuplicateEntry(message), !h2);
+    }
+    final ConstraintLocation location = (h2
+                                         ? locateUniqueIndex(message)
+                                         : locateDuplicateEntry(message));
+    if (location == null) {
+      return null;
+    }
+    final String table = location.getTable();
+    if (table == null) {
+      // the key is not qualified by its table, e.g., by MySQL 5.7
+      return translateDuplicatedKey(parseDuplicateEntry(message), true);
+    }
+    final ConstraintMetadata metadata =
+        cache.getUniqueKey(table, location.getName());
+    if (metadata == null) {
+      final Violation violation = (h2
+                                   ? parseUniqueIndex(message)
+                                   : parseDuplicateEntry(message));
+      if (violation == null) {
+        return null;
       }
+      final ConstraintMetadata parsed = getUniqueKeyMetadata(violation, !h2);
+      cache.putUniqueKey(table, parsed);
+      return new DuplicateKeyException(parsed.getField(),
+          violation.getValue());
+    }
+    final String value = (h2
+                          ? parseUniqueIndexValue(message, location.getEnd())
+                          : parseDuplicateEntryValue(message,
+                              location.getEnd()));
+    if (value == null) {
+      return null;
+    }
+    return new DuplicateKeyException(metadata.getField(), value);
+  }
+
+  private static DataAccessException translateDuplicatedKey(
+      @Nullable final Violation violation, final boolean qualified) {
+    if (violation == null) {
       return null;
     }
+    final ConstraintMetadata metadata =
+        getUniqueKeyMetadata(violation, qualified);
+    return new DuplicateKeyException(metadata.getField(), violation.getValue());
+  }
+
+  private static ConstraintMetadata getUniqueKeyMetadata(
+      final Violation violation, final boolean qualified) {
+    // the key of MySQL 8.0 is qualified by its table, e.g., "user.uk_name"
+    final String key = violation.getField().toLowerCase();
+    return new ConstraintMetadata(violation.getConstraint(),
+        qualified ? getLastField(key) : key);
   }
 
+
   public static DataAccessException translateDataTooLong(final Throwable cause) {
     // match MySQL database exceptions
     final String message = cause.getMessage();
     LOGGER.debug("Try to translate the MySQL error message for FieldTooLongException: {}", message);
-    final Matcher dataTooLong = DATA_TOO_LONG.matcher(message);
-    if (dataTooLong.find()) {
-      final String field = dataTooLong.group(1).toLowerCase();
-      return new FieldTooLongException(field);
+    final DataAccessException ex =
+        translateDataTooLong(parseDataTooLong(message));
+    if (ex != null) {
+      return ex;
     } else {  // match H2 database exceptions
-      final Matcher valueTooLong = VALUE_TOO_LONG.matcher(message);
-      if (valueTooLong.find()) {
-        final String field = valueTooLong.group(1).toLowerCase();
-        return new FieldTooLongException(field);
-      }
-      return null;
+      return translateDataTooLong(parseValueTooLong(message));
     }
   }
 
+  private static DataAccessException translateDataTooLong(
+      @Nullable final String field) {
+    return (field == null
+            ? null
+            : new FieldTooLongException(field.toLowerCase()));
+  }
+
   public static DataAccessException translateForeignKeyFail(
       final Throwable cause) {
     final String message = cause.getMessage();
     LOGGER.debug("Try to translate the MySQL error message for "
         + "ForeignKeyConstraintFailException: {}", message);
     // match MySQL database exceptions
-    final Matcher foreignKeyFailed = FOREIGN_KEY_FAILED.matcher(message);
-    if (foreignKeyFailed.find()) {
-      final DaoOperation operation;
-      final String op = foreignKeyFailed.group(1);
-      if (op.equalsIgnoreCase("add")) {
-        operation = DaoOperation.ADD_OR_UPDATE;
-      } else if (op.equalsIgnoreCase("delete")) {
-        operation = DaoOperation.DELETE;
-      } else {
-        operation = DaoOperation.UNKNOWN;
-      }
-      final String field = foreignKeyFailed.group(2).toLowerCase();
-      final String referenceEntry = foreignKeyFailed.group(3).toLowerCase();
-      final String referenceField = foreignKeyFailed.group(4).toLowerCase();
-      return new ForeignKeyConstraintFailException(operation, field, referenceEntry,
-          referenceField);
-    } else {
-      // match h2 database exceptions
-      final Matcher integrityViolation = INTEGRITY_VIOLATION.matcher(message);
-      if (integrityViolation.find()) {
-        final DaoOperation operation;
-        final String op = integrityViolation.group(4);
-        if (op.equalsIgnoreCase("insert")) {
-          operation = DaoOperation.ADD_OR_UPDATE;
-        } else if (op.equalsIgnoreCase("update")) {
-          operation = DaoOperation.ADD_OR_UPDATE;
-        } else if (op.equalsIgnoreCase("delete")) {
-          operation = DaoOperation.DELETE;
-        } else {
-          operation = DaoOperation.UNKNOWN;
-        }
-        final String field = integrityViolation.group(1).toLowerCase();
-        final String referenceEntry = integrityViolation.group(2).toLowerCase();
-        final String referenceField = integrityViolation.group(3).toLowerCase();
-        return new ForeignKeyConstraintFailException(operation, field, referenceEntry,
-            referenceField);
+    final DataAccessException ex =
+        translateForeignKeyFail(parseForeignKeyFails(message));
+    if (ex != null) {
+      return ex;
+    } else {  // match h2 database exceptions
+      return translateForeignKeyFail(parseIntegrityViolation(message));
+    }
+  }
+
+  private static DataAccessException translateForeignKeyFail(
+      final String message, final boolean h2,
+      @Nullable final ConstraintMetadataCache cache) {
+    if (cache == null) {
+      return translateForeignKeyFail(h2
+                                     ? parseIntegrityViolation(message)
+                                     : parseForeignKeyFails(message));
+    }
+    final ConstraintLocation location = (h2
+                                         ? locateIntegrityConstraint(message)
+                                         : locateForeignKey(message));
+    if (location == null) {
+      return null;
+    }
+    final String table = location.getTable();
+    final ConstraintMetadata metadata =
+        cache.getForeignKey(table, location.getName());
+    if (metadata == null) {
+      final Violation violation = (h2
+                                   ? parseIntegrityViolation(message)
+                                   : parseForeignKeyFails(message));
+      if (violation == null) {
+        return null;
       }
+      cache.putForeignKey(table, getForeignKeyMetadata(violation));
+      return translateForeignKeyFail(violation);
+    }
+    // the operation word of MySQL leads the message
+    final String op = (h2
+                       ? parseIntegrityOperation(message, location.getEnd())
+                       : parseForeignKeyOperation(message));
+    if (op == null) {
       return null;
     }
+    return new ForeignKeyConstraintFailException(getOperation(op),
+        metadata.getField(), metadata.getReferenceEntry(),
+        metadata.getReferenceField());
+  }
+
+  private static DataAccessException translateForeignKeyFail(
+      @Nullable final Violation violation) {
+    if (violation == null) {
+      return null;
+    }
+    final DaoOperation operation = getOperation(violation.getOperation());
+    final ConstraintMetadata metadata = getForeignKeyMetadata(violation);
+    return new ForeignKeyConstraintFailException(operation,
+        metadata.getField(), metadata.getReferenceEntry(),
+        metadata.getReferenceField());
+  }
+
+  private static ConstraintMetadata getForeignKeyMetadata(
+      final Violation violation) {
+    final String field = violation.getField().toLowerCase();
+    final String referenceEntry = violation.getReferenceTable().toLowerCase();
+    final String referenceField = violation.getReferenceField().toLowerCase();
+    return new ConstraintMetadata(violation.getConstraint(), field,
+        referenceEntry, referenceField);
+  }
+
+  private static DaoOperation getOperation(final String op) {
+    if (op.equalsIgnoreCase("add")
+        || op.equalsIgnoreCase("insert")
+        || op.equalsIgnoreCase("update")) {
+      return DaoOperation.ADD_OR_UPDATE;
+    } else if (op.equalsIgnoreCase("delete")) {
+      return DaoOperation.DELETE;
+    } else {
+      return DaoOperation.UNKNOWN;
+    }
   }
 
   public static DataAccessException translateOutOfRange(final Throwable cause) {
     final String message = cause.getMessage();
     LOGGER.debug("Try to translate the MySQL error message for "
         + "FieldValueOutOfRangeException: {}", message);
-    final Matcher outOfRange = OUT_OF_RANGE.matcher(message);
-    if (outOfRange.find()) {
-      final String field = outOfRange.group(1);
-      return new FieldValueOutOfRangeException(field);
-    }
-    return null;
+    return translateOutOfRange(parseOutOfRange(message));
+  }
+
+  private static DataAccessException translateOutOfRange(
+      @Nullable final String field) {
+    return (field == null ? null : new FieldValueOutOfRangeException(field));
   }
 
   private static String getLastField(final String fieldPath) {
@@ -284,34 +569,15 @@ public class MySqlExceptionTranslator implements PersistenceExceptionTranslator
     final String message = cause.getMessage();
     LOGGER.debug("Try to translate the MySQL error message for "
         + "InvalidFieldValueCharacterException: {}", message);
-    final Matcher invalidCharacter = INVALID_CHARACTER.matcher(message);
-    if (invalidCharacter.find()) {
-      final String value = translateUtf8Hex(invalidCharacter.group(1));
-      final String field = invalidCharacter.group(2);
-      return new InvalidFieldValueCharacterException(field, value);
-    }
-    return null;
+    return translateInvalidCharacter(parseIncorrectString(message));
   }
 
-  private static String translateUtf8Hex(final String hexString) {
-    final boolean ellipsis;
-    final String str;
-    if (hexString.endsWith(ENDING_ELLIPSIS)) {
-      ellipsis = true;
-      str = hexString.substring(0, hexString.length() - ENDING_ELLIPSIS.length());
-    } else {
-      ellipsis = false;
-      str = hexString;
-    }
-    final HexCodec codec = new HexCodec();
-    codec.setShowRadix(false);
-    codec.setPrefix("\\x");
-    final byte[] bytes = codec.decode(str);
-    final String result = new String(bytes, UTF_8);
-    if (ellipsis) {
-      return result + ENDING_ELLIPSIS;
-    } else {
-      return result;
+  private static DataAccessException translateInvalidCharacter(
+      @Nullable final Violation violation) {
+    if (violation == null) {
+      return null;
     }
+    return new InvalidFieldValueCharacterException(violation.getField(),
+        violation.getValue());
   }
 }
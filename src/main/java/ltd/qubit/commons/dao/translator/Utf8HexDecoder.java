@@ -0,0 +1,106 @@
+////////////////////////////////////////////////////////////////////////////////
+//
+//    Copyright (c) 2022 - 2023.
+//    Haixing Hu, Qubit Co. Ltd.
+//
+//    All rights reserved.
+//
+////////////////////////////////////////////////////////////////////////////////
+package ltd.qubit.commons.dao.translator;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Decodes the strings of UTF-8 bytes escaped as {@code \xNN} sequences, as
+ * reported by MySQL in the messages of the "Incorrect string value" errors,
+ * e.g., {@code \xF0\x9F\x98\x80}.
+ *
+ * <p>This class has no state, and its functions could be called concurrently.
+ * The characters not belonging to an escape sequence are decoded as they
+ * are, and a trailing ellipsis, which is appended by MySQL to a truncated
+ * value, is preserved.</p>
+ *
+ * @author Haixing Hu
+ */
+public final class Utf8HexDecoder {
+
+  private static final String ENDING_ELLIPSIS = "...";
+
+  private static final int MAX_BYTES_PER_CHAR = 3;
+
+  private Utf8HexDecoder() {}
+
+  /**
+   * Decodes a string of escaped UTF-8 bytes.
+   *
+   * @param str
+   *     The string to be decoded.
+   * @return
+   *     The decoded string.
+   */
+  public static String decode(final String str) {
+    return decode(str, 0, str.length());
+  }
+
+  /**
+   * Decodes a range of a string of escaped UTF-8 bytes.
+   *
+   * @param str
+   *     The string containing the range to be decoded.
+   * @param start
+   *     The index of the first character of the range.
+   * @param end
+   *     The index after the last character of the range.
+   * @return
+   *     The decoded string.
+   */
+  public static String decode(final String str, final int start,
+      final int end) {
+    final boolean ellipsis = (end - start >= ENDING_ELLIPSIS.length())
+        && str.startsWith(ENDING_ELLIPSIS, end - ENDING_ELLIPSIS.length());
+    final int last = (ellipsis ? end - ENDING_ELLIPSIS.length() : end);
+    // an unescaped character is encoded into at most 3 bytes per char
+    final byte[] bytes = new byte[MAX_BYTES_PER_CHAR * (last - start)];
+    int n = 0;
+    int i = start;
+    while (i < last) {
+      final char ch = str.charAt(i);
+      if (ch == '\\' && i + 3 < last && str.charAt(i + 1) == 'x') {
+        final int high = Character.digit(str.charAt(i + 2), 16);
+        final int low = Character.digit(str.charAt(i + 3), 16);
+        if (high >= 0 && low >= 0) {
+          bytes[n++] = (byte) ((high << 4) | low);
+          i += 4;
+          continue;
+        }
+      }
+      if (ch < 0x80) {
+        bytes[n++] = (byte) ch;
+        ++i;
+      } else {
+        final int codePoint = str.codePointAt(i);
+        n = encode(codePoint, bytes, n);
+        i += Character.charCount(codePoint);
+      }
+    }
+    final String result = new String(bytes, 0, n, UTF_8);
+    return (ellipsis ? result + ENDING_ELLIPSIS : result);
+  }
+
+  private static int encode(final int codePoint, final byte[] bytes,
+      final int offset) {
+    int n = offset;
+    if (codePoint < 0x800) {
+      bytes[n++] = (byte) (0xC0 | (codePoint >> 6));
+    } else if (codePoint < 0x10000) {
+      bytes[n++] = (byte) (0xE0 | (codePoint >> 12));
+      bytes[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+    } else {
+      bytes[n++] = (byte) (0xF0 | (codePoint >> 18));
+      bytes[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      bytes[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+    }
+    bytes[n++] = (byte) (0x80 | (codePoint & 0x3F));
+    return n;
+  }
+}